@@ -1,12 +1,14 @@
 package bstmap;
 
 import java.util.Iterator;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Stack;
+import java.util.function.BiConsumer;
 
 public class BST<Key extends Comparable<Key>, Value> implements Iterable<Key> {
 
-    private class Node {
+    private class Node implements Map.Entry<Key, Value> {
         private Key key;
         private Value val;
         private Node left, right;
@@ -21,6 +23,23 @@ public class BST<Key extends Comparable<Key>, Value> implements Iterable<Key> {
             this.left = left;
             this.right = right;
         }
+
+        @Override
+        public Key getKey() {
+            return key;
+        }
+
+        @Override
+        public Value getValue() {
+            return val;
+        }
+
+        @Override
+        public Value setValue(Value value) {
+            Value old = val;
+            val = value;
+            return old;
+        }
     }
 
     private Node root;
@@ -37,6 +56,11 @@ public class BST<Key extends Comparable<Key>, Value> implements Iterable<Key> {
         return x.val;
     }
 
+    /** Returns the node of key as an entry, or null if key is not present. */
+    public Map.Entry<Key, Value> findEntry(Key key) {
+        return find(root, key);
+    }
+
     private Node find(Node x, Key key) {
         if (x == null) {
             return null;
@@ -140,7 +164,7 @@ public class BST<Key extends Comparable<Key>, Value> implements Iterable<Key> {
                 x = x.right;
             }
         } else {
-            x = deleteMin(x.left);
+            x.left = deleteMin(x.left);
         }
         return x;
     }
@@ -156,25 +180,60 @@ public class BST<Key extends Comparable<Key>, Value> implements Iterable<Key> {
                 x = x.left;
             }
         } else {
-            x = deleteMax(x.right);
+            x.right = deleteMax(x.right);
         }
         return x;
     }
 
+    /** Performs action for each key and value, in order of the keys. */
+    public void forEach(BiConsumer<? super Key, ? super Value> action) {
+        forEach(root, action);
+    }
+
+    private void forEach(Node x, BiConsumer<? super Key, ? super Value> action) {
+        if (x == null) {
+            return;
+        }
+        forEach(x.left, action);
+        action.accept(x.key, x.val);
+        forEach(x.right, action);
+    }
+
     @Override
     public Iterator<Key> iterator() {
         return new BSTIterator();
     }
 
-    private class BSTIterator implements Iterator<Key> {
+    /** Returns an iterator over the nodes as entries, in order of the keys. */
+    public Iterator<Map.Entry<Key, Value>> entryIterator() {
+        return new EntryIterator();
+    }
+
+    private class BSTIterator extends NodeIterator<Key> {
+        @Override
+        public Key next() {
+            return nextNode().key;
+        }
+    }
+
+    private class EntryIterator extends NodeIterator<Map.Entry<Key, Value>> {
+        @Override
+        public Map.Entry<Key, Value> next() {
+            return nextNode();
+        }
+    }
+
+    private abstract class NodeIterator<T> implements Iterator<T> {
         private Node x;
         private Stack<Node> st;
         private Boolean canPushLeft;
 
-        public BSTIterator() {
+        public NodeIterator() {
             x = root;
             st = new Stack<>();
-            st.push(x);
+            if (x != null) {
+                st.push(x);
+            }
             canPushLeft = true;
         }
 
@@ -183,8 +242,7 @@ public class BST<Key extends Comparable<Key>, Value> implements Iterable<Key> {
             return !st.empty();
         }
 
-        @Override
-        public Key next() {
+        Node nextNode() {
             if (!hasNext()) {
                 throw new NoSuchElementException();
             }
@@ -201,7 +259,7 @@ public class BST<Key extends Comparable<Key>, Value> implements Iterable<Key> {
                 st.push(t.right);
                 canPushLeft = true;
             }
-            return t.key;
+            return t;
         }
     }
 }
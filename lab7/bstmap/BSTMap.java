@@ -1,12 +1,16 @@
 package bstmap;
 
 import java.util.Iterator;
+import java.util.Map;
 import java.util.Set;
-import java.util.TreeSet;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 public class BSTMap<K extends Comparable<K>, V> implements Map61B<K, V> {
     private BST<K, V> bst;
     private int size;
+    private Set<K> keySet;
 
     public BSTMap() {
         this.bst = new BST<>();
@@ -44,11 +48,51 @@ public class BSTMap<K extends Comparable<K>, V> implements Map61B<K, V> {
 
     @Override
     public Set<K> keySet() {
-        Set<K> result = new TreeSet<>();
-        for (K key : this) {
-            result.add(key);
+        if (keySet == null) {
+            keySet = Map61B.super.keySet();
+        }
+        return keySet;
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        bst.forEach(action);
+    }
+
+    @Override
+    public Iterator<Map.Entry<K, V>> entryIterator() {
+        return bst.entryIterator();
+    }
+
+    @Override
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        Map.Entry<K, V> e = bst.findEntry(key);
+        if (e != null) {
+            return e.getValue();
+        }
+        V value = mappingFunction.apply(key);
+        if (value != null) {
+            bst.insert(key, value);
+            size += 1;
+        }
+        return value;
+    }
+
+    @Override
+    public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        Map.Entry<K, V> e = bst.findEntry(key);
+        if (e == null) {
+            bst.insert(key, value);
+            size += 1;
+            return value;
+        }
+        V newValue = remappingFunction.apply(e.getValue(), value);
+        if (newValue == null) {
+            remove(key);
+        } else {
+            e.setValue(newValue);
         }
-        return result;
+        return newValue;
     }
 
     @Override
@@ -1,6 +1,13 @@
 package bstmap;
 
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 /* Your implementation BSTMap should implement this interface. To do so,
  * append "implements Map61B<K,V>" to the end of your "public class..."
@@ -25,9 +32,116 @@ public interface Map61B<K, V> extends Iterable<K> {
     /* Associates the specified value with the specified key in this map. */
     void put(K key, V value);
 
-    /* Returns a Set view of the keys contained in this map. Not required for Lab 7.
-     * If you don't implement this, throw an UnsupportedOperationException. */
-    Set<K> keySet();
+    /**
+     * Returns a Set view of the keys contained in this map. The set is backed
+     * by the map: it allocates nothing upfront, and removing a key from the set
+     * removes it from the map.
+     */
+    default Set<K> keySet() {
+        return new AbstractSet<K>() {
+            @Override
+            public Iterator<K> iterator() {
+                return Map61B.this.iterator();
+            }
+
+            @Override
+            public int size() {
+                return Map61B.this.size();
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public boolean contains(Object o) {
+                return containsKey((K) o);
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public boolean remove(Object o) {
+                if (!containsKey((K) o)) {
+                    return false;
+                }
+                Map61B.this.remove((K) o);
+                return true;
+            }
+
+            @Override
+            public void clear() {
+                Map61B.this.clear();
+            }
+        };
+    }
+
+    /**
+     * Performs action for each key-value mapping in this map. The default
+     * implementation calls get() for each key, implementations override it to
+     * walk their entries directly.
+     */
+    default void forEach(BiConsumer<? super K, ? super V> action) {
+        for (K key : this) {
+            action.accept(key, get(key));
+        }
+    }
+
+    /**
+     * Returns an iterator over the key-value mappings in this map. The default
+     * implementation creates an entry for each key, implementations override it
+     * to return their own entries, which are only valid until the map is changed.
+     */
+    default Iterator<Map.Entry<K, V>> entryIterator() {
+        Iterator<K> keys = iterator();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return keys.hasNext();
+            }
+
+            @Override
+            public Map.Entry<K, V> next() {
+                K key = keys.next();
+                return new AbstractMap.SimpleImmutableEntry<>(key, get(key));
+            }
+        };
+    }
+
+    /** Copies all of the mappings from the specified map to this map. */
+    default void putAll(Map61B<? extends K, ? extends V> m) {
+        m.forEach(this::put);
+    }
+
+    /**
+     * If the specified key is not mapped to a value, computes its value with
+     * mappingFunction and puts it unless it is null. Returns the current value
+     * of the key. The default implementation is not atomic.
+     */
+    default V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        V value = get(key);
+        if (value == null) {
+            value = mappingFunction.apply(key);
+            if (value != null) {
+                put(key, value);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * If the specified key is not mapped to a value, maps it to value, else
+     * replaces its value with remappingFunction applied to the old value and
+     * value, or removes it if the result is null. Returns the new value.
+     * The default implementation is not atomic.
+     */
+    default V merge(K key, V value,
+                    BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        V oldValue = get(key);
+        V newValue = oldValue == null ? value : remappingFunction.apply(oldValue, value);
+        if (newValue == null) {
+            remove(key);
+        } else {
+            put(key, newValue);
+        }
+        return newValue;
+    }
 
     /* Removes the mapping for the specified key from this map if present.
      * Not required for Lab 7. If you don't implement this, throw an
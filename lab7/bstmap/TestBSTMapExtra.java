@@ -2,6 +2,8 @@ package bstmap;
 
 import java.util.Set;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
 import static org.junit.Assert.*;
 import org.junit.Test;
 
@@ -113,4 +115,85 @@ public class TestBSTMapExtra {
         assertEquals(null, noChild.get('Z'));
     }
 
+    /* Remove Test 4
+     * Removing a node with two children keeps the rest of the
+     * right subtree, when the successor is deep in it.
+     */
+    @Test
+    public void testRemoveDeepSuccessor() {
+        BSTMap<String, Integer> q = new BSTMap<>();
+        String keys = "dbhfegjac";
+        for (int i = 0; i < keys.length(); i++) {
+            q.put(keys.substring(i, i + 1), i);
+        }
+        assertEquals(Integer.valueOf(0), q.remove("d")); // successor is e
+        assertEquals(8, q.size());
+        for (String key : new String[]{"a", "b", "c", "e", "f", "g", "h", "j"}) {
+            assertTrue(q.containsKey(key));
+        }
+        StringBuilder inOrder = new StringBuilder();
+        for (String key : q) {
+            inOrder.append(key);
+        }
+        assertEquals("abcefghj", inOrder.toString());
+    }
+
+    /* forEach and entryIterator visit the entries in order of the keys,
+     * without calling get for each key.
+     */
+    @Test
+    public void testForEachAndEntryIterator() {
+        BSTMap<String, Integer> b = new BSTMap<>();
+        b.put("b", 2);
+        b.put("a", 1);
+        b.put("c", 3);
+        StringBuilder sb = new StringBuilder();
+        b.forEach((k, v) -> sb.append(k).append(v));
+        assertEquals("a1b2c3", sb.toString());
+
+        Iterator<Map.Entry<String, Integer>> it = b.entryIterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Integer> e = it.next();
+            e.setValue(e.getValue() * 10);
+        }
+        assertEquals(Integer.valueOf(20), b.get("b"));
+        assertFalse(new BSTMap<String, Integer>().entryIterator().hasNext());
+    }
+
+    @Test
+    public void testComputeIfAbsentMergePutAll() {
+        BSTMap<String, Integer> b = new BSTMap<>();
+        assertEquals(Integer.valueOf(3), b.computeIfAbsent("abc", String::length));
+        assertEquals(Integer.valueOf(3), b.computeIfAbsent("abc", k -> 100));
+        for (String w : new String[]{"a", "b", "a", "a"}) {
+            b.merge(w, 1, Integer::sum);
+        }
+        assertEquals(Integer.valueOf(3), b.get("a"));
+        assertEquals(3, b.size());
+        assertNull(b.merge("b", 1, (x, y) -> null));
+        assertEquals(2, b.size());
+
+        BSTMap<String, Integer> c = new BSTMap<>();
+        c.put("z", 26);
+        c.putAll(b);
+        assertEquals(3, c.size());
+        assertEquals(Integer.valueOf(3), c.get("a"));
+    }
+
+    /* The keySet is a view, it follows the map and removes from it. */
+    @Test
+    public void testKeySetView() {
+        BSTMap<String, Integer> b = new BSTMap<>();
+        Set<String> keys = b.keySet();
+        assertTrue(keys.isEmpty());
+        assertFalse(keys.iterator().hasNext());
+        b.put("a", 1);
+        b.put("b", 2);
+        assertEquals(2, keys.size());
+        assertTrue(keys.contains("b"));
+        assertTrue(keys.remove("a"));
+        assertFalse(b.containsKey("a"));
+        assertEquals(1, b.size());
+    }
+
 }
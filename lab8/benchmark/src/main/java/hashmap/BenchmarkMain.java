@@ -0,0 +1,30 @@
+package hashmap;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the map benchmarks and writes the results as JSON, for comparing runs
+ * across changes. Takes the usual JMH command line options, for example
+ * `-p map=MyHashMap,BSTMap -p distribution=colliding ReadBenchmark` to run the lookup
+ * benchmarks of two maps on keys with the same hashCode.
+ */
+public class BenchmarkMain {
+
+    static final String DEFAULT_RESULT_FILE = "map-benchmark.json";
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+        Options options = new OptionsBuilder()
+                .parent(commandLineOptions)
+                .resultFormat(ResultFormatType.JSON)
+                .result(commandLineOptions.getResult().orElse(DEFAULT_RESULT_FILE))
+                .build();
+        new Runner(options).run();
+    }
+}
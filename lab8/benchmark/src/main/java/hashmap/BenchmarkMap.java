@@ -0,0 +1,91 @@
+package hashmap;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The keys a map benchmark runs on, generated once per trial so that making the
+ * Strings is not part of the measured time.
+ * <p>
+ * Every benchmark invocation does one operation for each of the n keys, so the
+ * score is the time of n operations. The keys that are put in the map and the keys
+ * that are looked up and missed come from the same distribution. ULLMap, and BSTMap
+ * on keys in order, take time quadratic in n. BSTMap recurses as deep as the tree,
+ * so the benchmarks fork with a large thread stack.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xss64m")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public abstract class BenchmarkMap {
+
+    @Param({"ULLMap", "BSTMap", "MyHashMap", "MyHashMapALBuckets", "MyHashMapLLBuckets",
+            "MyHashMapTSBuckets", "MyHashMapHSBuckets", "MyHashMapPQBuckets",
+            "MyHashMapOpenAddressing", "MyConcurrentHashMap", "OffHeapStringMap", "HashMap"})
+    public String map;
+
+    @Param({"1000", "10000", "100000"})
+    public int n;
+
+    @Param({KeyGenerator.RANDOM, KeyGenerator.IN_ORDER, KeyGenerator.HIGH_BITS})
+    public String distribution;
+
+    @Param({"61"})
+    public long seed;
+
+    static final byte[] VALUE = {6, 1, 11, 2};
+
+    /** Keys that are put in the map. */
+    protected String[] keys;
+
+    /** Keys that are never put in the map. */
+    protected String[] missingKeys;
+
+    @Setup(Level.Trial)
+    public void generateKeys() {
+        String[] all = new KeyGenerator(seed).generate(distribution, 2 * n);
+        // Interleave the two halves, so that both follow the distribution
+        keys = new String[n];
+        missingKeys = new String[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = all[2 * i];
+            missingKeys[i] = all[2 * i + 1];
+        }
+    }
+
+    /** Returns a new empty map of the benchmarked class. */
+    protected Map61B<String, byte[]> newMap() {
+        return MapFactory.create(map);
+    }
+
+    /** Returns a new map of the benchmarked class holding all the keys. */
+    protected Map61B<String, byte[]> newFullMap() {
+        Map61B<String, byte[]> m = newMap();
+        for (String key : keys) {
+            m.put(key, VALUE);
+        }
+        return m;
+    }
+
+    /** Releases the memory of m, if it holds memory outside the Java heap. */
+    protected static void close(Map61B<String, byte[]> m) throws IOException {
+        if (m instanceof Closeable) {
+            ((Closeable) m).close();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package hashmap;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Generates distinct String keys, the same seed always generates the same keys.
+ * <p>
+ * The distributions are:
+ * <ul>
+ * <li>random: random lowercase strings of a fixed length, as typed keys would be.</li>
+ * <li>inorder: zero-padded numbers in increasing order, the worst case of an
+ * unbalanced binary search tree.</li>
+ * <li>colliding: strings made of "Aa" and "BB" blocks, which all have the same
+ * hashCode, the worst case of a hash table.</li>
+ * <li>highbits: strings made of "0aa" and "tgc" blocks, whose hashCodes only differ
+ * in their high 16 bits, like Integer keys i &lt;&lt; 16. Unless the hash table
+ * spreads the high bits of hashCodes, they all land in one bucket.</li>
+ * </ul>
+ */
+class KeyGenerator {
+
+    static final String RANDOM = "random";
+
+    static final String IN_ORDER = "inorder";
+
+    static final String COLLIDING = "colliding";
+
+    static final String HIGH_BITS = "highbits";
+
+    private static final int RANDOM_KEY_LENGTH = 10;
+
+    private static final int ALPHABET_SIZE = 26;
+
+    private final Random random;
+
+    KeyGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /** Returns count distinct keys of distribution. */
+    String[] generate(String distribution, int count) {
+        switch (distribution) {
+            case RANDOM:
+                return randomKeys(count);
+            case IN_ORDER:
+                return inOrderKeys(count);
+            case COLLIDING:
+                return collidingKeys(count);
+            case HIGH_BITS:
+                return highBitsKeys(count);
+            default:
+                throw new IllegalArgumentException("Unknown key distribution: " + distribution);
+        }
+    }
+
+    private String[] randomKeys(int count) {
+        Set<String> seen = new HashSet<>();
+        String[] keys = new String[count];
+        char[] chars = new char[RANDOM_KEY_LENGTH];
+        int n = 0;
+        while (n < count) {
+            for (int i = 0; i < chars.length; i++) {
+                chars[i] = (char) ('a' + random.nextInt(ALPHABET_SIZE));
+            }
+            String key = new String(chars);
+            if (seen.add(key)) {
+                keys[n++] = key;
+            }
+        }
+        return keys;
+    }
+
+    private static String[] inOrderKeys(int count) {
+        String[] keys = new String[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = String.format("%010d", i);
+        }
+        return keys;
+    }
+
+    // "Aa" and "BB" have the same hashCode, so all strings of as many blocks do too
+    private static String[] collidingKeys(int count) {
+        int blocks = Math.max(1, 32 - Integer.numberOfLeadingZeros(count - 1));
+        String[] keys = new String[count];
+        StringBuilder sb = new StringBuilder(2 * blocks);
+        for (int i = 0; i < count; i++) {
+            sb.setLength(0);
+            for (int b = blocks - 1; b >= 0; b--) {
+                sb.append((i >>> b & 1) == 0 ? "Aa" : "BB");
+            }
+            keys[i] = sb.toString();
+        }
+        return keys;
+    }
+
+    // The hashCode of "tgc" is 961 * 68 + 31 * 6 + 2 = 1 << 16 more than the one of
+    // "0aa", so swapping one block for the other in a string of blocks changes its
+    // hashCode by a power of 31 times 1 << 16, leaving the low 16 bits alone
+    private static String[] highBitsKeys(int count) {
+        int blocks = Math.max(1, 32 - Integer.numberOfLeadingZeros(count - 1));
+        String[] keys = new String[count];
+        StringBuilder sb = new StringBuilder(3 * blocks);
+        for (int i = 0; i < count; i++) {
+            sb.setLength(0);
+            for (int b = blocks - 1; b >= 0; b--) {
+                sb.append((i >>> b & 1) == 0 ? "0aa" : "tgc");
+            }
+            keys[i] = sb.toString();
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,159 @@
+package hashmap;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+import bstmap.BSTMap;
+
+/**
+ * Creates the maps to benchmark by class name. BSTMap implements the Map61B of
+ * lab7, and java.util.HashMap is there as a baseline, so both are adapted to
+ * hashmap.Map61B.
+ */
+class MapFactory {
+
+    private MapFactory() {
+    }
+
+    /** Returns a new empty map of class name. */
+    static Map61B<String, byte[]> create(String name) {
+        switch (name) {
+            case "ULLMap":
+                return new ULLMap<>();
+            case "BSTMap":
+                return new BSTMapAdapter<String, byte[]>(new BSTMap<>());
+            case "MyHashMap":
+                return new MyHashMap<>();
+            case "MyHashMapALBuckets":
+                return new MyHashMapALBuckets<>();
+            case "MyHashMapLLBuckets":
+                return new MyHashMapLLBuckets<>();
+            case "MyHashMapTSBuckets":
+                return new MyHashMapTSBuckets<>();
+            case "MyHashMapHSBuckets":
+                return new MyHashMapHSBuckets<>();
+            case "MyHashMapPQBuckets":
+                return new MyHashMapPQBuckets<>();
+            case "MyHashMapOpenAddressing":
+                return new MyHashMapOpenAddressing<>();
+            case "MyConcurrentHashMap":
+                return new MyConcurrentHashMap<>();
+            case "OffHeapStringMap":
+                return new OffHeapStringMap();
+            case "HashMap":
+                return new HashMapAdapter<>(new HashMap<>());
+            default:
+                throw new IllegalArgumentException("Unknown map: " + name);
+        }
+    }
+
+    private static class BSTMapAdapter<K extends Comparable<K>, V> implements Map61B<K, V> {
+
+        private final BSTMap<K, V> map;
+
+        BSTMapAdapter(BSTMap<K, V> map) {
+            this.map = map;
+        }
+
+        @Override
+        public void clear() {
+            map.clear();
+        }
+
+        @Override
+        public boolean containsKey(K key) {
+            return map.containsKey(key);
+        }
+
+        @Override
+        public V get(K key) {
+            return map.get(key);
+        }
+
+        @Override
+        public int size() {
+            return map.size();
+        }
+
+        @Override
+        public void put(K key, V value) {
+            map.put(key, value);
+        }
+
+        @Override
+        public V remove(K key) {
+            return map.remove(key);
+        }
+
+        @Override
+        public V remove(K key, V value) {
+            return map.remove(key, value);
+        }
+
+        @Override
+        public void forEach(BiConsumer<? super K, ? super V> action) {
+            map.forEach(action);
+        }
+
+        @Override
+        public Iterator<K> iterator() {
+            return map.iterator();
+        }
+    }
+
+    private static class HashMapAdapter<K, V> implements Map61B<K, V> {
+
+        private final Map<K, V> map;
+
+        HashMapAdapter(Map<K, V> map) {
+            this.map = map;
+        }
+
+        @Override
+        public void clear() {
+            map.clear();
+        }
+
+        @Override
+        public boolean containsKey(K key) {
+            return map.containsKey(key);
+        }
+
+        @Override
+        public V get(K key) {
+            return map.get(key);
+        }
+
+        @Override
+        public int size() {
+            return map.size();
+        }
+
+        @Override
+        public void put(K key, V value) {
+            map.put(key, value);
+        }
+
+        @Override
+        public V remove(K key) {
+            return map.remove(key);
+        }
+
+        @Override
+        public V remove(K key, V value) {
+            return map.remove(key, value) ? value : null;
+        }
+
+        @Override
+        public void forEach(BiConsumer<? super K, ? super V> action) {
+            map.forEach(action);
+        }
+
+        @Override
+        public Iterator<K> iterator() {
+            return map.keySet().iterator();
+        }
+    }
+}
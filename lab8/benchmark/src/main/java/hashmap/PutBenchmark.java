@@ -0,0 +1,34 @@
+package hashmap;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Benchmark of putting the keys in an empty map, resizes included.
+ */
+public class PutBenchmark extends BenchmarkMap {
+
+    private Map61B<String, byte[]> m;
+
+    @Setup(Level.Invocation)
+    public void createMap() {
+        m = newMap();
+    }
+
+    @TearDown(Level.Invocation)
+    public void closeMap() throws IOException {
+        close(m);
+    }
+
+    @Benchmark
+    public Map61B<String, byte[]> put() {
+        for (String key : keys) {
+            m.put(key, VALUE);
+        }
+        return m;
+    }
+}
@@ -0,0 +1,48 @@
+package hashmap;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks of the operations that only read the map, on a map filled once per trial.
+ */
+public class ReadBenchmark extends BenchmarkMap {
+
+    private Map61B<String, byte[]> m;
+
+    @Setup(Level.Trial)
+    public void fillMap() {
+        m = newFullMap();
+    }
+
+    @TearDown(Level.Trial)
+    public void closeMap() throws IOException {
+        close(m);
+    }
+
+    @Benchmark
+    public void getHit(Blackhole bh) {
+        for (String key : keys) {
+            bh.consume(m.get(key));
+        }
+    }
+
+    @Benchmark
+    public void getMiss(Blackhole bh) {
+        for (String key : missingKeys) {
+            bh.consume(m.get(key));
+        }
+    }
+
+    @Benchmark
+    public void iterate(Blackhole bh) {
+        for (String key : m) {
+            bh.consume(key);
+        }
+    }
+}
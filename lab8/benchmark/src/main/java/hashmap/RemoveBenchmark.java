@@ -0,0 +1,34 @@
+package hashmap;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Benchmark of removing all the keys of a full map.
+ */
+public class RemoveBenchmark extends BenchmarkMap {
+
+    private Map61B<String, byte[]> m;
+
+    @Setup(Level.Invocation)
+    public void fillMap() {
+        m = newFullMap();
+    }
+
+    @TearDown(Level.Invocation)
+    public void closeMap() throws IOException {
+        close(m);
+    }
+
+    @Benchmark
+    public Map61B<String, byte[]> remove() {
+        for (String key : keys) {
+            m.remove(key);
+        }
+        return m;
+    }
+}
@@ -0,0 +1,53 @@
+package hashmap;
+
+/**
+ * Hashing helpers shared by the hash maps of this package: table sizes, spreading
+ * hashCodes over the mask, mixing primitive keys, and backward-shift removal from
+ * linear probing tables.
+ */
+class Hashing {
+
+    private Hashing() {
+    }
+
+    /** Returns the smallest power of two that is at least size. */
+    static int tableSizeFor(int size) {
+        int n = 1;
+        while (n < size) {
+            n <<= 1;
+        }
+        return n;
+    }
+
+    /**
+     * Spreads the high bits of a hash to the low bits, which are the only ones used
+     * by the mask of a power-of-two table.
+     */
+    static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    /** Mixes the bits of an int key, so close keys get far apart slots. */
+    static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /** Mixes the bits of a long key, so close keys get far apart slots. */
+    static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Returns true if the entry in slot, whose home slot is home, can be moved to
+     * the empty slot hole before it in its probe sequence, that is, if home is not
+     * cyclically in (hole, slot].
+     */
+    static boolean canShift(int home, int hole, int slot) {
+        if (hole <= slot) {
+            return home <= hole || home > slot;
+        }
+        return home <= hole && home > slot;
+    }
+}
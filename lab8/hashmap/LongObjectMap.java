@@ -0,0 +1,200 @@
+package hashmap;
+
+/**
+ *  A hash map from long keys to object values, without boxing keys.
+ *
+ *  Entries are stored in parallel arrays with open addressing and linear
+ *  probing, remove() shifts back the following entries of the probe sequence so
+ *  no tombstones are left. 0 marks an empty slot, so the entry of key 0 is kept
+ *  apart from the arrays. Keys are mixed with a multiplicative hash, so sequential
+ *  keys are spread over the table.
+ *
+ *  Does not resize down upon remove().
+ */
+public class LongObjectMap<V> {
+
+    /* Instance Variables */
+    private long[] keys;
+
+    private Object[] values;
+
+    private boolean hasZeroKey;
+
+    private V zeroValue;
+
+    private final int initialSize;
+
+    private final double maxLoad;
+
+    // Number of entries in the arrays, not counting key 0
+    private int size;
+
+    /** Constructors */
+    public LongObjectMap() {
+        this(16);
+    }
+
+    public LongObjectMap(int initialSize) {
+        this(initialSize, 0.75);
+    }
+
+    /**
+     * LongObjectMap constructor that creates backing arrays of at least initialSize
+     * slots, rounded up to a power of two.
+     *
+     * @param initialSize initial size of backing arrays
+     * @param maxLoad maximum load factor, in (0, 1)
+     */
+    public LongObjectMap(int initialSize, double maxLoad) {
+        if (maxLoad <= 0 || maxLoad >= 1) {
+            throw new IllegalArgumentException("maxLoad must be in (0, 1)");
+        }
+        this.initialSize = Hashing.tableSizeFor(initialSize);
+        this.maxLoad = maxLoad;
+        this.keys = new long[this.initialSize];
+        this.values = new Object[this.initialSize];
+    }
+
+    // Return the slot of a non-zero key, or -1 if key is not present
+    private int findSlot(long key) {
+        int mask = keys.length - 1;
+        for (int i = Hashing.mix(key) & mask; keys[i] != 0; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Insert the entry of a non-zero key, return true if key was not present
+    private boolean insert(long key, Object value) {
+        int mask = keys.length - 1;
+        int i = Hashing.mix(key) & mask;
+        while (keys[i] != 0) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        return true;
+    }
+
+    // Remove the entry in slot, and shift back the entries that can move closer to home
+    private void removeSlot(int slot) {
+        int mask = keys.length - 1;
+        int i = slot;
+        for (int j = (i + 1) & mask; keys[j] != 0; j = (j + 1) & mask) {
+            int home = Hashing.mix(keys[j]) & mask;
+            if (Hashing.canShift(home, i, j)) {
+                keys[i] = keys[j];
+                values[i] = values[j];
+                i = j;
+            }
+        }
+        keys[i] = 0;
+        values[i] = null;
+        size -= 1;
+    }
+
+    private void conditionalResize() {
+        if (size + 1 > maxLoad * keys.length) {
+            long[] oldKeys = keys;
+            Object[] oldValues = values;
+            keys = new long[2 * oldKeys.length];
+            values = new Object[2 * oldKeys.length];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    insert(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+    }
+
+    /** Removes all of the mappings from this map. */
+    public void clear() {
+        keys = new long[initialSize];
+        values = new Object[initialSize];
+        hasZeroKey = false;
+        zeroValue = null;
+        size = 0;
+    }
+
+    /** Returns true if this map contains a mapping for the specified key. */
+    public boolean containsKey(long key) {
+        return key == 0 ? hasZeroKey : findSlot(key) >= 0;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or null if this
+     * map contains no mapping for the key.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        if (key == 0) {
+            return zeroValue;
+        }
+        int slot = findSlot(key);
+        return slot < 0 ? null : (V) values[slot];
+    }
+
+    /** Returns the number of key-value mappings in this map. */
+    public int size() {
+        return hasZeroKey ? size + 1 : size;
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map.
+     * If the map previously contained a mapping for the key,
+     * the old value is replaced.
+     */
+    public void put(long key, V value) {
+        if (key == 0) {
+            hasZeroKey = true;
+            zeroValue = value;
+            return;
+        }
+        conditionalResize();
+        if (insert(key, value)) {
+            size += 1;
+        }
+    }
+
+    /**
+     * Removes the mapping for the specified key from this map if present,
+     * returns the value it was mapped to, or null.
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        if (key == 0) {
+            V value = zeroValue;
+            hasZeroKey = false;
+            zeroValue = null;
+            return value;
+        }
+        int slot = findSlot(key);
+        if (slot < 0) {
+            return null;
+        }
+        V value = (V) values[slot];
+        removeSlot(slot);
+        return value;
+    }
+
+    /** Returns the keys of this map, in no particular order. */
+    public long[] keys() {
+        long[] res = new long[size()];
+        int n = 0;
+        if (hasZeroKey) {
+            res[n++] = 0;
+        }
+        for (long key : keys) {
+            if (key != 0) {
+                res[n++] = key;
+            }
+        }
+        return res;
+    }
+}
@@ -0,0 +1,541 @@
+package hashmap;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ *  A thread-safe hash table-backed Map implementation, in the style of
+ *  java.util.concurrent.ConcurrentHashMap.
+ *
+ *  Each bin of the table holds a linked list of nodes. get() and containsKey()
+ *  take no lock: the table slots are read through an AtomicReferenceArray and
+ *  the value and next fields of a node are volatile, so a reader always sees
+ *  a complete list. put() and remove() CAS a node into an empty bin, and
+ *  otherwise lock the first node of the bin, so writers only contend when they
+ *  hit the same bin. computeIfAbsent() and merge() are atomic: they call their
+ *  function with the bin locked, after placing a ReservationNode in an empty
+ *  bin, so the function should be short and must not change this map.
+ *
+ *  When the map passes maxLoad, the table is doubled by every thread that
+ *  writes to it: a thread claims a range of bins at a time, copies the nodes of
+ *  each bin into the two bins they map to in the new table, and replaces the
+ *  old bin with a ForwardingNode. Readers that meet a ForwardingNode look in
+ *  the new table, writers help finish the resize first. The new table becomes
+ *  the table when the last helper is done.
+ *
+ *  The iterator is weakly consistent: it never throws
+ *  ConcurrentModificationException and returns every key present for the whole
+ *  iteration, keys put or removed during the iteration may or may not be
+ *  returned. size() is exact only when no writer is running.
+ *
+ *  Assumes null keys and values will never be inserted, and does not resize
+ *  down upon remove().
+ */
+public class MyConcurrentHashMap<K, V> implements Map61B<K, V> {
+
+    /** A key/value pair in a bin of the table. */
+    private static class Node<K, V> {
+        final int hash;
+        final K key;
+        volatile V value;
+        volatile Node<K, V> next;
+
+        Node(int hash, K key, V value, Node<K, V> next) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+            this.next = next;
+        }
+    }
+
+    /** Placed in a bin of the old table once its nodes have been copied. */
+    private static class ForwardingNode<K, V> extends Node<K, V> {
+        final Resize<K, V> resize;
+
+        ForwardingNode(Resize<K, V> resize) {
+            super(0, null, null, null);
+            this.resize = resize;
+        }
+    }
+
+    /** Holds an empty bin while computeIfAbsent() or merge() runs with it locked. */
+    private static class ReservationNode<K, V> extends Node<K, V> {
+        ReservationNode() {
+            super(RESERVED, null, null, null);
+        }
+    }
+
+    /** The state of one doubling of the table, shared by the threads doing it. */
+    private static class Resize<K, V> {
+        final AtomicReferenceArray<Node<K, V>> oldTable;
+
+        // Set by the thread which started the resize, before any forwarding node
+        volatile AtomicReferenceArray<Node<K, V>> newTable;
+
+        // Bins below transferIndex have not been claimed yet
+        final AtomicInteger transferIndex;
+
+        // Number of threads transferring bins, 0 once the resize is done
+        final AtomicInteger resizers = new AtomicInteger(1);
+
+        Resize(AtomicReferenceArray<Node<K, V>> oldTable) {
+            this.oldTable = oldTable;
+            this.transferIndex = new AtomicInteger(oldTable.length());
+        }
+    }
+
+    // Number of bins a resizing thread claims at a time
+    private static final int TRANSFER_STRIDE = 16;
+
+    // Hash of reservation nodes, the hashes of keys are never negative
+    private static final int RESERVED = -1;
+
+    /* Instance Variables */
+    private volatile AtomicReferenceArray<Node<K, V>> table;
+
+    private final AtomicReference<Resize<K, V>> resizing = new AtomicReference<>();
+
+    // Size at which the next resize starts
+    private volatile int threshold;
+
+    private final double maxLoad;
+
+    private final LongAdder count = new LongAdder();
+
+    /** Constructors */
+    public MyConcurrentHashMap() {
+        this(16);
+    }
+
+    public MyConcurrentHashMap(int initialSize) {
+        this(initialSize, 0.75);
+    }
+
+    /**
+     * MyConcurrentHashMap constructor that creates a backing array of at least
+     * initialSize bins, rounded up to a power of two.
+     *
+     * @param initialSize initial size of backing array
+     * @param maxLoad maximum load factor
+     */
+    public MyConcurrentHashMap(int initialSize, double maxLoad) {
+        if (maxLoad <= 0) {
+            throw new IllegalArgumentException("maxLoad must be positive");
+        }
+        int tableSize = Hashing.tableSizeFor(initialSize);
+        this.maxLoad = maxLoad;
+        this.table = new AtomicReferenceArray<>(tableSize);
+        this.threshold = (int) (tableSize * maxLoad);
+    }
+
+    // Spread the high bits of hashCode to the low bits used by the mask, and
+    // clear the sign bit, which no table is large enough to use
+    private static int spread(Object key) {
+        return Hashing.spread(key.hashCode()) & Integer.MAX_VALUE;
+    }
+
+    // Return the node of key in the table or in the tables it was forwarded to
+    private Node<K, V> findNode(Object key) {
+        int h = spread(key);
+        AtomicReferenceArray<Node<K, V>> tab = table;
+        while (true) {
+            Node<K, V> e = tab.get(h & (tab.length() - 1));
+            if (e instanceof ForwardingNode) {
+                tab = ((ForwardingNode<K, V>) e).resize.newTable;
+                continue;
+            }
+            for (; e != null; e = e.next) {
+                if (e.hash == h && e.key.equals(key)) {
+                    return e;
+                }
+            }
+            return null;
+        }
+    }
+
+    @Override
+    public void clear() {
+        AtomicReferenceArray<Node<K, V>> tab = table;
+        int i = 0;
+        while (i < tab.length()) {
+            Node<K, V> f = tab.get(i);
+            if (f == null) {
+                i += 1;
+            } else if (f instanceof ForwardingNode) {
+                // Clear the new table from the start, the bins before i may have been copied
+                tab = helpResize(((ForwardingNode<K, V>) f).resize);
+                i = 0;
+            } else {
+                synchronized (f) {
+                    if (tab.get(i) == f) {
+                        int removed = 0;
+                        for (Node<K, V> e = f; e != null; e = e.next) {
+                            removed += 1;
+                        }
+                        tab.set(i, null);
+                        count.add(-removed);
+                        i += 1;
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        return findNode(key) != null;
+    }
+
+    @Override
+    public V get(K key) {
+        Node<K, V> e = findNode(key);
+        return e == null ? null : e.value;
+    }
+
+    @Override
+    public int size() {
+        long n = count.sum();
+        return n < 0 ? 0 : (int) Math.min(n, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public void put(K key, V value) {
+        int h = spread(key);
+        AtomicReferenceArray<Node<K, V>> tab = table;
+        while (true) {
+            int i = h & (tab.length() - 1);
+            Node<K, V> f = tab.get(i);
+            if (f == null) {
+                if (tab.compareAndSet(i, null, new Node<>(h, key, value, null))) {
+                    break;
+                }
+            } else if (f instanceof ForwardingNode) {
+                tab = helpResize(((ForwardingNode<K, V>) f).resize);
+            } else {
+                boolean added = false;
+                synchronized (f) {
+                    // Retry if the bin was changed before the lock was taken
+                    if (tab.get(i) != f) {
+                        continue;
+                    }
+                    Node<K, V> e = f;
+                    while (true) {
+                        if (e.hash == h && e.key.equals(key)) {
+                            e.value = value;
+                            return;
+                        }
+                        if (e.next == null) {
+                            e.next = new Node<>(h, key, value, null);
+                            added = true;
+                            break;
+                        }
+                        e = e.next;
+                    }
+                }
+                if (added) {
+                    break;
+                }
+            }
+        }
+        count.increment();
+        if (count.sum() >= threshold) {
+            startResize(tab);
+        }
+    }
+
+    @Override
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        Node<K, V> e = findNode(key);
+        if (e != null) {
+            return e.value;
+        }
+        return remapNode(key, v -> v != null ? v : mappingFunction.apply(key));
+    }
+
+    @Override
+    public V merge(K key, V value,
+                   BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        return remapNode(key, v -> v == null ? value : remappingFunction.apply(v, value));
+    }
+
+    // With the bin of key locked, replace its value, or null if key is absent,
+    // with the result of remap: put key if absent, or remove it if the result is
+    // null. Returns the new value
+    private V remapNode(K key, Function<? super V, ? extends V> remap) {
+        int h = spread(key);
+        AtomicReferenceArray<Node<K, V>> tab = table;
+        V newValue = null;
+        int delta = 0;
+        while (true) {
+            int i = h & (tab.length() - 1);
+            Node<K, V> f = tab.get(i);
+            if (f == null) {
+                Node<K, V> r = new ReservationNode<>();
+                synchronized (r) {
+                    if (tab.compareAndSet(i, null, r)) {
+                        try {
+                            newValue = remap.apply(null);
+                        } finally {
+                            tab.set(i, newValue == null ? null : new Node<>(h, key, newValue, null));
+                        }
+                        delta = newValue == null ? 0 : 1;
+                        break;
+                    }
+                }
+            } else if (f instanceof ForwardingNode) {
+                tab = helpResize(((ForwardingNode<K, V>) f).resize);
+            } else {
+                synchronized (f) {
+                    if (tab.get(i) != f) {
+                        continue;
+                    }
+                    Node<K, V> e = f;
+                    Node<K, V> pred = null;
+                    while (e != null && !(e.hash == h && e.key.equals(key))) {
+                        pred = e;
+                        e = e.next;
+                    }
+                    if (e != null) {
+                        V oldValue = e.value;
+                        newValue = remap.apply(oldValue);
+                        if (newValue == null) {
+                            if (pred == null) {
+                                tab.set(i, e.next);
+                            } else {
+                                pred.next = e.next;
+                            }
+                            delta = -1;
+                        } else if (newValue != oldValue) {
+                            e.value = newValue;
+                        }
+                    } else {
+                        newValue = remap.apply(null);
+                        if (newValue != null) {
+                            pred.next = new Node<>(h, key, newValue, null);
+                            delta = 1;
+                        }
+                    }
+                }
+                break;
+            }
+        }
+        if (delta < 0) {
+            count.decrement();
+        } else if (delta > 0) {
+            count.increment();
+            if (count.sum() >= threshold) {
+                startResize(tab);
+            }
+        }
+        return newValue;
+    }
+
+    @Override
+    public V remove(K key) {
+        return removeNode(key, null);
+    }
+
+    @Override
+    public V remove(K key, V value) {
+        return removeNode(key, value);
+    }
+
+    // Remove the node of key if it is mapped to value, or to any value if value
+    // is null, and return its value, else return null
+    private V removeNode(K key, V value) {
+        int h = spread(key);
+        AtomicReferenceArray<Node<K, V>> tab = table;
+        while (true) {
+            int i = h & (tab.length() - 1);
+            Node<K, V> f = tab.get(i);
+            if (f == null) {
+                return null;
+            } else if (f instanceof ForwardingNode) {
+                tab = helpResize(((ForwardingNode<K, V>) f).resize);
+                continue;
+            }
+            synchronized (f) {
+                if (tab.get(i) != f) {
+                    continue;
+                }
+                for (Node<K, V> e = f, pred = null; e != null; pred = e, e = e.next) {
+                    if (e.hash == h && e.key.equals(key)) {
+                        V v = e.value;
+                        if (value != null && !value.equals(v)) {
+                            return null;
+                        }
+                        if (pred == null) {
+                            tab.set(i, e.next);
+                        } else {
+                            pred.next = e.next;
+                        }
+                        count.decrement();
+                        return v;
+                    }
+                }
+                return null;
+            }
+        }
+    }
+
+    // Start doubling tab, unless it has already been replaced or another resize is running
+    private void startResize(AtomicReferenceArray<Node<K, V>> tab) {
+        if (table != tab || resizing.get() != null) {
+            return;
+        }
+        Resize<K, V> resize = new Resize<>(tab);
+        if (!resizing.compareAndSet(null, resize)) {
+            return;
+        }
+        // A resize of tab may have ended between reading table and the CAS
+        if (table != tab) {
+            resizing.set(null);
+            return;
+        }
+        resize.newTable = new AtomicReferenceArray<>(2 * tab.length());
+        transfer(resize);
+    }
+
+    // Join resize unless it is done, and return its new table
+    private AtomicReferenceArray<Node<K, V>> helpResize(Resize<K, V> resize) {
+        while (true) {
+            int n = resize.resizers.get();
+            if (n == 0) {
+                break;
+            }
+            if (resize.resizers.compareAndSet(n, n + 1)) {
+                transfer(resize);
+                break;
+            }
+        }
+        return resize.newTable;
+    }
+
+    // Copy the bins of the old table claimed by this thread into the new table
+    private void transfer(Resize<K, V> resize) {
+        AtomicReferenceArray<Node<K, V>> oldTab = resize.oldTable;
+        AtomicReferenceArray<Node<K, V>> newTab = resize.newTable;
+        int n = oldTab.length();
+        ForwardingNode<K, V> fwd = new ForwardingNode<>(resize);
+        while (true) {
+            int end = resize.transferIndex.get();
+            if (end <= 0) {
+                break;
+            }
+            int start = Math.max(0, end - TRANSFER_STRIDE);
+            if (!resize.transferIndex.compareAndSet(end, start)) {
+                continue;
+            }
+            for (int i = start; i < end; i++) {
+                transferBin(oldTab, newTab, i, n, fwd);
+            }
+        }
+        // The last thread out publishes the new table
+        if (resize.resizers.decrementAndGet() == 0) {
+            table = newTab;
+            threshold = (int) (newTab.length() * maxLoad);
+            resizing.set(null);
+        }
+    }
+
+    // Split bin i of oldTab into bins i and i + n of newTab, then forward it
+    private void transferBin(AtomicReferenceArray<Node<K, V>> oldTab,
+                             AtomicReferenceArray<Node<K, V>> newTab,
+                             int i, int n, ForwardingNode<K, V> fwd) {
+        while (true) {
+            Node<K, V> f = oldTab.get(i);
+            if (f == null) {
+                if (oldTab.compareAndSet(i, null, fwd)) {
+                    return;
+                }
+                continue;
+            }
+            synchronized (f) {
+                if (oldTab.get(i) != f) {
+                    continue;
+                }
+                // Copy the nodes, readers may still be walking the old list
+                Node<K, V> lo = null;
+                Node<K, V> hi = null;
+                for (Node<K, V> e = f; e != null; e = e.next) {
+                    if ((e.hash & n) == 0) {
+                        lo = new Node<>(e.hash, e.key, e.value, lo);
+                    } else {
+                        hi = new Node<>(e.hash, e.key, e.value, hi);
+                    }
+                }
+                newTab.set(i, lo);
+                newTab.set(i + n, hi);
+                oldTab.set(i, fwd);
+                return;
+            }
+        }
+    }
+
+    @Override
+    public Iterator<K> iterator() {
+        return new MyConcurrentHashMapIterator();
+    }
+
+    private class MyConcurrentHashMapIterator implements Iterator<K> {
+
+        private final AtomicReferenceArray<Node<K, V>> tab = table;
+
+        // Index of next bin of tab
+        private int index = 0;
+
+        // Lists left to visit of bins forwarded to larger tables
+        private final Deque<Node<K, V>> pending = new ArrayDeque<>();
+
+        private Node<K, V> next;
+
+        @Override
+        public boolean hasNext() {
+            if (next != null) {
+                return true;
+            }
+            while (pending.isEmpty() && index < tab.length()) {
+                push(tab, index);
+                index += 1;
+            }
+            if (pending.isEmpty()) {
+                return false;
+            }
+            next = pending.pop();
+            return true;
+        }
+
+        // Push the list of bin i of t, or of the bins it was forwarded to
+        private void push(AtomicReferenceArray<Node<K, V>> t, int i) {
+            Node<K, V> f = t.get(i);
+            if (f instanceof ForwardingNode) {
+                AtomicReferenceArray<Node<K, V>> nt = ((ForwardingNode<K, V>) f).resize.newTable;
+                push(nt, i + t.length());
+                push(nt, i);
+            } else if (f != null && !(f instanceof ReservationNode)) {
+                pending.push(f);
+            }
+        }
+
+        @Override
+        public K next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Node<K, V> e = next;
+            next = null;
+            if (e.next != null) {
+                pending.push(e.next);
+            }
+            return e.key;
+        }
+    }
+}
@@ -1,12 +1,44 @@
 package hashmap;
 
 import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 /**
  *  A hash table-backed Map implementation. Provides amortized constant time
  *  access to elements via get(), remove(), and put() in the best case.
  *
- *  Assumes null keys will never be inserted, and does not resize down upon remove().
+ *  The table size is a power of two, so the bucket of a key is its hash masked
+ *  by the table size. The hash spreads the high bits of hashCode() into the low
+ *  bits, so keys whose hashCodes only differ in their high bits do not all land
+ *  in one bucket. Each node caches the hash of its key: a resize does not call
+ *  hashCode() again, and a bucket scan only calls equals() on matching hashes.
+ *
+ *  With incremental resizing, a resize allocates the new table but leaves the
+ *  nodes in the old one, and each put() and remove() then moves a few old buckets
+ *  to the new table, enough to empty the old table before the next grow or
+ *  shrink. Until the old table is empty, lookups check both tables. This spreads
+ *  the cost of rehashing over many operations, so no single put() or remove()
+ *  has to rehash the whole map. Lookups do not move buckets, so they never
+ *  modify the map.
+ *
+ *  A bucket which grows past TREEIFY_THRESHOLD nodes, because of poor or
+ *  adversarial hashCodes, is converted to a TreeBucket if its keys are Comparable
+ *  and of one class, so a lookup in it takes O(log n) compareTo calls instead of
+ *  O(n) equals calls. It is converted back to a bucket of createBucket() when it
+ *  shrinks to UNTREEIFY_THRESHOLD nodes. A bucket whose keys can't be treeified
+ *  becomes a PlainBucket, which is not treeified again until it is emptied or
+ *  the table is resized, so each put() into it does not rebuild a tree in vain.
+ *
+ *  The table is halved when remove() takes the load below minLoad, down to
+ *  initialSize, so the memory used follows the number of entries. minLoad is at
+ *  most a quarter of maxLoad, so a table that was just halved is half full at
+ *  most, and one that was just doubled is twice the shrink threshold at least:
+ *  alternating put() and remove() around either threshold does not resize again
+ *  and again. trimToSize() shrinks the table right away.
+ *
+ *  Assumes null keys will never be inserted.
  *  @author YOUR NAME HERE
  */
 public class MyHashMap<K, V> implements Map61B<K, V> {
@@ -14,17 +46,140 @@ public class MyHashMap<K, V> implements Map61B<K, V> {
     /**
      * Protected helper class to store key/value pairs
      * The protected qualifier allows subclass access
+     * Nodes are also the entries returned by entryIterator(), they are
+     * compared by identity, so they can be kept in any bucket type
      */
-    protected class Node {
+    protected class Node implements Map.Entry<K, V> {
         K key;
         V value;
+        final int hash;
 
         Node(K k, V v) {
+            this(k, v, hash(k));
+        }
+
+        Node(K k, V v, int h) {
             key = k;
             value = v;
+            hash = h;
+        }
+
+        @Override
+        public K getKey() {
+            return key;
+        }
+
+        @Override
+        public V getValue() {
+            return value;
+        }
+
+        @Override
+        public V setValue(V v) {
+            V old = value;
+            value = v;
+            return old;
         }
     }
 
+    /**
+     * A bucket of nodes kept in a TreeMap by key, for keys of one Comparable class.
+     * compareTo has to be consistent with equals for the keys in the bucket, add()
+     * refuses a node of another class or whose key compares equal to another key.
+     */
+    private class TreeBucket extends AbstractCollection<Node> {
+        private final Class<?> keyClass;
+
+        private final TreeMap<K, Node> nodes = new TreeMap<>();
+
+        TreeBucket(Class<?> keyClass) {
+            this.keyClass = keyClass;
+        }
+
+        // Return the node of key, or null if key is not present
+        Node find(K key) {
+            if (key.getClass() != keyClass) {
+                // An equal key of another class, can't be compared with the keys
+                for (Node x : nodes.values()) {
+                    if (x.key.equals(key)) {
+                        return x;
+                    }
+                }
+                return null;
+            }
+            Node x = nodes.get(key);
+            return x != null && x.key.equals(key) ? x : null;
+        }
+
+        @Override
+        public boolean add(Node node) {
+            if (node.key.getClass() != keyClass || nodes.containsKey(node.key)) {
+                return false;
+            }
+            nodes.put(node.key, node);
+            return true;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean remove(Object o) {
+            Node node = (Node) o;
+            return nodes.remove(node.key, node);
+        }
+
+        @Override
+        public Iterator<Node> iterator() {
+            return nodes.values().iterator();
+        }
+
+        @Override
+        public int size() {
+            return nodes.size();
+        }
+    }
+
+    /**
+     * A bucket of createBucket() whose keys can't be kept in a TreeBucket: they
+     * are not Comparable, of several classes, or compare equal without being equal.
+     */
+    private class PlainBucket extends AbstractCollection<Node> {
+        private final Collection<Node> nodes = createBucket();
+
+        PlainBucket(Collection<Node> bucket) {
+            nodes.addAll(bucket);
+        }
+
+        @Override
+        public boolean add(Node node) {
+            return nodes.add(node);
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            return nodes.remove(o);
+        }
+
+        @Override
+        public Iterator<Node> iterator() {
+            return nodes.iterator();
+        }
+
+        @Override
+        public int size() {
+            return nodes.size();
+        }
+    }
+
+    // A bucket with more nodes than this is converted to a TreeBucket
+    private static final int TREEIFY_THRESHOLD = 8;
+
+    // A TreeBucket with this many nodes is converted back
+    private static final int UNTREEIFY_THRESHOLD = 6;
+
+    // Buckets are only converted in tables at least this large, in a smaller
+    // table a long bucket is more likely due to a high load than to collisions
+    private static final int MIN_TREEIFY_CAPACITY = 64;
+
     /* Instance Variables */
     private Collection<Node>[] buckets;
 
@@ -32,8 +187,25 @@ public class MyHashMap<K, V> implements Map61B<K, V> {
 
     private final double maxLoad;
 
+    private final double minLoad;
+
+    private final boolean incrementalResize;
+
+    // Table being migrated by an incremental resize, or null
+    private Collection<Node>[] oldBuckets;
+
+    // Index of the next bucket of oldBuckets to migrate
+    private int migrateIndex;
+
+    // Number of old buckets moved to the new table by each put() and remove(),
+    // so the old table is empty before the next resize can start
+    private int migrateStep;
+
     private int size;
 
+    // View returned by keySet(), created on first use
+    private Set<K> keySet;
+
     /** Constructors */
     public MyHashMap() {
         this(16);
@@ -44,16 +216,51 @@ public class MyHashMap<K, V> implements Map61B<K, V> {
     }
 
     /**
-     * MyHashMap constructor that creates a backing array of initialSize.
+     * MyHashMap constructor that creates a backing array of initialSize,
+     * rounded up to a power of two.
      * The load factor (# items / # buckets) should always be <= loadFactor
      *
      * @param initialSize initial size of backing array
      * @param maxLoad maximum load factor
      */
     public MyHashMap(int initialSize, double maxLoad) {
-        this.buckets = createTable(initialSize);
-        this.initialSize = initialSize;
+        this(initialSize, maxLoad, false);
+    }
+
+    /**
+     * MyHashMap constructor that creates a backing array of initialSize,
+     * rounded up to a power of two.
+     * If incrementalResize is true, the nodes are moved to a larger array a few
+     * buckets at a time, instead of all at once by the put() which resizes.
+     *
+     * @param initialSize initial size of backing array
+     * @param maxLoad maximum load factor
+     * @param incrementalResize whether to resize incrementally
+     */
+    public MyHashMap(int initialSize, double maxLoad, boolean incrementalResize) {
+        this(initialSize, maxLoad, maxLoad / 4, incrementalResize);
+    }
+
+    /**
+     * MyHashMap constructor that creates a backing array of initialSize,
+     * rounded up to a power of two, and halves it when the load factor falls
+     * below minLoad. minLoad is at most maxLoad / 4, 0 to never shrink.
+     *
+     * @param initialSize initial size of backing array, and the smallest size remove() shrinks to
+     * @param maxLoad maximum load factor
+     * @param minLoad minimum load factor
+     * @param incrementalResize whether to resize incrementally
+     */
+    public MyHashMap(int initialSize, double maxLoad, double minLoad,
+                     boolean incrementalResize) {
+        if (minLoad < 0 || minLoad > maxLoad / 4) {
+            throw new IllegalArgumentException("minLoad must be in [0, maxLoad / 4]");
+        }
+        this.initialSize = Hashing.tableSizeFor(initialSize);
+        this.buckets = createTable(this.initialSize);
         this.maxLoad = maxLoad;
+        this.minLoad = minLoad;
+        this.incrementalResize = incrementalResize;
         this.size = 0;
     }
 
@@ -64,6 +271,11 @@ public class MyHashMap<K, V> implements Map61B<K, V> {
         return new Node(key, value);
     }
 
+    // Return a new node of key, whose hash is already known
+    private Node createNode(K key, V value, int hash) {
+        return new Node(key, value, hash);
+    }
+
     /**
      * Returns a data structure to be a hash table bucket
      *
@@ -99,133 +311,274 @@ public class MyHashMap<K, V> implements Map61B<K, V> {
         return new Collection[tableSize];
     }
 
-    // Compute hashCode and reduce to get index
-    private int getIndex(K key) {
-        return getIndex(this.buckets, key);
+    // Spread the high bits of hashCode to the low bits used by the mask
+    private static int hash(Object key) {
+        return Hashing.spread(key.hashCode());
     }
 
-    private int getIndex(Collection<Node>[] buckets, K key) {
-        return Math.floorMod(key.hashCode(), buckets.length);
+    // Mask hash to get index, the table size is a power of two
+    private int getIndex(Collection<Node>[] buckets, int hash) {
+        return hash & (buckets.length - 1);
     }
 
     private Node putNode(Node node) {
         return putNode(this.buckets, node);
     }
 
+    // Return the node of key in bucket, or null if key is not present
+    private Node findInBucket(Collection<Node> bucket, K key, int hash) {
+        if (bucket == null) {
+            return null;
+        }
+        if (bucket instanceof MyHashMap.TreeBucket) {
+            return ((TreeBucket) bucket).find(key);
+        }
+        for (Node x : bucket) {
+            if (x.hash == hash && x.key.equals(key)) {
+                return x;
+            }
+        }
+        return null;
+    }
+
+    // Return a TreeBucket of the nodes of bucket, or null if their keys are not
+    // Comparable, of one class and distinct by compareTo
+    private TreeBucket treeify(Collection<Node> bucket) {
+        Class<?> keyClass = bucket.iterator().next().key.getClass();
+        if (!Comparable.class.isAssignableFrom(keyClass)) {
+            return null;
+        }
+        TreeBucket tree = new TreeBucket(keyClass);
+        for (Node x : bucket) {
+            if (!tree.add(x)) {
+                return null;
+            }
+        }
+        return tree;
+    }
+
+    private Collection<Node> untreeify(Collection<Node> bucket) {
+        Collection<Node> res = createBucket();
+        res.addAll(bucket);
+        return res;
+    }
+
     // Return the inserted node if node's key is not present, else return null
     private Node putNode(Collection<Node>[] buckets, Node node) {
-        int index = getIndex(buckets, node.key);
+        int index = getIndex(buckets, node.hash);
         if (buckets[index] == null) {
             buckets[index] = createBucket();
         }
         // Update node's value if key is present
-        for (Node x : buckets[index]) {
-            if (x.key.equals(node.key)) {
-                x.value = node.value;
-                return null;
-            }
+        Node x = findInBucket(buckets[index], node.key, node.hash);
+        if (x != null) {
+            x.value = node.value;
+            return null;
         }
-        // Or insert new node
-        buckets[index].add(node);
+        insertNode(buckets, index, node);
         return node;
     }
 
-    private Node removeNode(K key) {
-        return removeNode(this.buckets, key);
+    // Insert node of a key which is not present into bucket index of buckets
+    private void insertNode(Collection<Node>[] buckets, int index, Node node) {
+        // Insert new node, in a plain bucket if the tree refuses its key
+        if (!buckets[index].add(node)) {
+            buckets[index] = new PlainBucket(buckets[index]);
+            buckets[index].add(node);
+        } else if (buckets[index].size() > TREEIFY_THRESHOLD
+                && buckets.length >= MIN_TREEIFY_CAPACITY
+                && !(buckets[index] instanceof MyHashMap.TreeBucket)
+                && !(buckets[index] instanceof MyHashMap.PlainBucket)) {
+            TreeBucket tree = treeify(buckets[index]);
+            buckets[index] = tree != null ? tree : new PlainBucket(buckets[index]);
+        }
     }
 
-    // Return the removed node if node's key is present, else return null
-    private Node removeNode(Collection<Node>[] buckets, K key) {
-        int index = getIndex(buckets, key);
-        if (buckets[index] == null) {
-            return null;
+    // Add the node of a key which is in neither table, without searching for it again
+    private void addNode(Node node) {
+        migrateBuckets(migrateStep);
+        conditionalResize();
+        int index = getIndex(this.buckets, node.hash);
+        if (this.buckets[index] == null) {
+            this.buckets[index] = createBucket();
         }
-        for (Node x : buckets[index]) {
-            if (x.key.equals(key)) {
-                Node res = createNode(x.key, x.value);
-                buckets[index].remove(x);
-                if (buckets[index].size() == 0) {
-                    buckets[index] = null;
-                }
-                return res;
-            }
+        insertNode(this.buckets, index, node);
+        this.size += 1;
+    }
+
+    // Remove x from bucket index of buckets, and return it
+    private Node removeFromBucket(Collection<Node>[] buckets, int index, Node x) {
+        buckets[index].remove(x);
+        if (buckets[index].size() == 0) {
+            buckets[index] = null;
+        } else if (buckets[index] instanceof MyHashMap.TreeBucket
+                && buckets[index].size() <= UNTREEIFY_THRESHOLD) {
+            buckets[index] = untreeify(buckets[index]);
         }
-        return null;
+        return x;
     }
 
-    private Node removeNode(K key, V value) {
-        return removeNode(this.buckets, key, value);
+    // Return the removed node if node's key is present, else return null
+    private Node removeNode(Collection<Node>[] buckets, K key, int hash) {
+        int index = getIndex(buckets, hash);
+        Node x = findInBucket(buckets[index], key, hash);
+        if (x == null) {
+            return null;
+        }
+        return removeFromBucket(buckets, index, x);
     }
 
     // Return the removed node if node's key is present and mapped to specified value,
     // else return null
-    private Node removeNode(Collection<Node>[] buckets, K key, V value) {
-        int index = getIndex(buckets, key);
-        if (buckets[index] == null) {
+    private Node removeNode(Collection<Node>[] buckets, K key, int hash, V value) {
+        int index = getIndex(buckets, hash);
+        Node x = findInBucket(buckets[index], key, hash);
+        if (x == null || !x.value.equals(value)) {
             return null;
         }
-        for (Node x : buckets[index]) {
-            if (x.key.equals(key) && x.value.equals(value)) {
-                Node res = createNode(x.key, x.value);
-                buckets[index].remove(x);
-                if (buckets[index].size() == 0) {
-                    buckets[index] = null;
-                }
-                return res;
+        return removeFromBucket(buckets, index, x);
+    }
+
+    // Return the node of key in buckets, or null if key is not present
+    private Node findNode(Collection<Node>[] buckets, K key, int hash) {
+        return findInBucket(buckets[getIndex(buckets, hash)], key, hash);
+    }
+
+    // Return the node of key, looking in the old table too during a migration
+    private Node findNode(K key) {
+        return findNode(key, hash(key));
+    }
+
+    private Node findNode(K key, int h) {
+        Node x = findNode(this.buckets, key, h);
+        if (x == null && this.oldBuckets != null) {
+            x = findNode(this.oldBuckets, key, h);
+        }
+        return x;
+    }
+
+    // Move up to n buckets of the old table to the new table
+    private void migrateBuckets(int n) {
+        if (this.oldBuckets == null) {
+            return;
+        }
+        for (int i = 0; i < n && migrateIndex < oldBuckets.length; i++, migrateIndex++) {
+            Collection<Node> bucket = oldBuckets[migrateIndex];
+            if (bucket == null) {
+                continue;
+            }
+            for (Node x : bucket) {
+                putNode(x);
             }
+            oldBuckets[migrateIndex] = null;
+        }
+        if (migrateIndex >= oldBuckets.length) {
+            this.oldBuckets = null;
         }
-        return null;
     }
 
     private void conditionalResize() {
         double curLoad = 1.0 * this.size / this.buckets.length;
         if (curLoad >= maxLoad) {
-            Collection<Node>[] newBuckets = createTable(2 * this.buckets.length);
-            // Copy elements to new bucket
-            for (Collection<Node> bucket : this.buckets) {
-                if (bucket == null) {
-                    continue;
-                }
-                for (Node x : bucket) {
-                    putNode(newBuckets, createNode(x.key, x.value));
-                }
+            resize(2 * this.buckets.length);
+        }
+    }
+
+    private void conditionalShrink() {
+        double curLoad = 1.0 * this.size / this.buckets.length;
+        if (curLoad < minLoad && this.buckets.length > initialSize) {
+            resize(this.buckets.length / 2);
+        }
+    }
+
+    // Move the nodes to a table of tableSize, incrementally or all at once
+    private void resize(int tableSize) {
+        // Normally a no-op, the previous migration ended before the size reached a threshold
+        migrateBuckets(Integer.MAX_VALUE);
+        if (incrementalResize) {
+            this.oldBuckets = this.buckets;
+            this.migrateIndex = 0;
+            this.buckets = createTable(tableSize);
+            this.migrateStep = migrateStep(this.oldBuckets.length, tableSize);
+        } else {
+            rehash(tableSize);
+        }
+    }
+
+    // Number of buckets each put() and remove() must migrate to empty an old
+    // table of oldSize, before the entries can reach either resize threshold of
+    // a table of tableSize. Each operation changes the size by one at most.
+    private int migrateStep(int oldSize, int tableSize) {
+        int operations = (int) Math.ceil(maxLoad * tableSize) - this.size;
+        if (minLoad > 0 && tableSize > initialSize) {
+            int shrinkAt = (int) Math.ceil(minLoad * tableSize);
+            operations = Math.min(operations, this.size - shrinkAt + 1);
+        }
+        operations = Math.max(operations, 1);
+        return (oldSize + operations - 1) / operations;
+    }
+
+    private void rehash(int tableSize) {
+        Collection<Node>[] newBuckets = createTable(tableSize);
+        // Copy elements to new bucket
+        for (Collection<Node> bucket : this.buckets) {
+            if (bucket == null) {
+                continue;
+            }
+            for (Node x : bucket) {
+                putNode(newBuckets, x);
             }
-            this.buckets = newBuckets;
         }
+        this.buckets = newBuckets;
+    }
+
+    /**
+     * Shrinks the table to the smallest power of two which holds the entries
+     * below maxLoad, finishing any incremental resize. Unlike remove(), it may
+     * shrink the table below initialSize.
+     */
+    public void trimToSize() {
+        migrateBuckets(Integer.MAX_VALUE);
+        int tableSize = 1;
+        while (this.size >= maxLoad * tableSize) {
+            tableSize *= 2;
+        }
+        if (tableSize < this.buckets.length) {
+            rehash(tableSize);
+        }
+    }
+
+    /** Returns the number of buckets in the table, for tests. */
+    int bucketCount() {
+        return this.buckets.length;
+    }
+
+    /** Returns the number of buckets of the old table left to migrate, for tests. */
+    int pendingMigration() {
+        return this.oldBuckets == null ? 0 : this.oldBuckets.length - migrateIndex;
     }
 
     @Override
     public void clear() {
-        this.buckets = createTable(initialSize);
+        // Reuse the table if it has the initial size, else let the large table go
+        if (this.buckets.length == initialSize) {
+            Arrays.fill(this.buckets, null);
+        } else {
+            this.buckets = createTable(initialSize);
+        }
+        this.oldBuckets = null;
         this.size = 0;
     }
 
     @Override
     public boolean containsKey(K key) {
-        Collection<Node> bucket = this.buckets[getIndex(key)];
-        if (bucket == null) {
-            return false;
-        }
-        for (Node x : bucket) {
-            if (x.key.equals(key)) {
-                return true;
-            }
-        }
-        return false;
+        return findNode(key) != null;
     }
 
     @Override
     public V get(K key) {
-        Collection<Node> bucket = this.buckets[getIndex(key)];
-        if (bucket == null) {
-            return null;
-        }
-        for (Node x : bucket) {
-            if (x.key.equals(key)) {
-                return x.value;
-            }
-        }
-        return null;
+        Node x = findNode(key);
+        return x == null ? null : x.value;
     }
 
     @Override
@@ -235,8 +588,18 @@ public class MyHashMap<K, V> implements Map61B<K, V> {
 
     @Override
     public void put(K key, V value) {
+        migrateBuckets(migrateStep);
         conditionalResize();
-        Node x = putNode(createNode(key, value));
+        Node node = createNode(key, value);
+        if (this.oldBuckets != null) {
+            // Update the node in place if key has not been migrated yet
+            Node old = findNode(this.oldBuckets, key, node.hash);
+            if (old != null) {
+                old.value = value;
+                return;
+            }
+        }
+        Node x = putNode(node);
         if (x == null) {
             return;
         }
@@ -245,30 +608,101 @@ public class MyHashMap<K, V> implements Map61B<K, V> {
 
     @Override
     public Set<K> keySet() {
-        Set<K> s = new HashSet<>();
-        for (K key : this) {
-            s.add(key);
+        if (this.keySet == null) {
+            this.keySet = Map61B.super.keySet();
+        }
+        return this.keySet;
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        forEachNode(this.buckets, action);
+        if (this.oldBuckets != null) {
+            forEachNode(this.oldBuckets, action);
+        }
+    }
+
+    private void forEachNode(Collection<Node>[] buckets, BiConsumer<? super K, ? super V> action) {
+        for (Collection<Node> bucket : buckets) {
+            if (bucket == null) {
+                continue;
+            }
+            for (Node x : bucket) {
+                action.accept(x.key, x.value);
+            }
+        }
+    }
+
+    /**
+     * Returns an iterator over the nodes of this map, as entries. setValue()
+     * on an entry changes the map.
+     */
+    @Override
+    public Iterator<Map.Entry<K, V>> entryIterator() {
+        return new EntryIterator();
+    }
+
+    @Override
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        int h = hash(key);
+        Node x = findNode(key, h);
+        if (x != null) {
+            return x.value;
+        }
+        V value = mappingFunction.apply(key);
+        if (value != null) {
+            addNode(createNode(key, value, h));
+        }
+        return value;
+    }
+
+    @Override
+    public V merge(K key, V value,
+                   BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        int h = hash(key);
+        Node x = findNode(key, h);
+        if (x == null) {
+            addNode(createNode(key, value, h));
+            return value;
         }
-        return s;
+        V newValue = remappingFunction.apply(x.value, value);
+        if (newValue == null) {
+            remove(key);
+        } else {
+            x.value = newValue;
+        }
+        return newValue;
     }
 
     @Override
     public V remove(K key) {
-        Node x = removeNode(key);
+        migrateBuckets(migrateStep);
+        int h = hash(key);
+        Node x = removeNode(this.buckets, key, h);
+        if (x == null && this.oldBuckets != null) {
+            x = removeNode(this.oldBuckets, key, h);
+        }
         if (x == null) {
             return null;
         }
         this.size -= 1;
+        conditionalShrink();
         return x.value;
     }
 
     @Override
     public V remove(K key, V value) {
-        Node x = removeNode(key, value);
+        migrateBuckets(migrateStep);
+        int h = hash(key);
+        Node x = removeNode(this.buckets, key, h, value);
+        if (x == null && this.oldBuckets != null) {
+            x = removeNode(this.oldBuckets, key, h, value);
+        }
         if (x == null) {
             return null;
         }
         this.size -= 1;
+        conditionalShrink();
         return x.value;
     }
 
@@ -277,50 +711,81 @@ public class MyHashMap<K, V> implements Map61B<K, V> {
         return new MyHashMapIterator();
     }
 
-    private class MyHashMapIterator implements Iterator<K> {
+    private class MyHashMapIterator extends NodeIterator<K> {
+        @Override
+        public K next() {
+            return nextNode().key;
+        }
+    }
+
+    private class EntryIterator extends NodeIterator<Map.Entry<K, V>> {
+        @Override
+        public Map.Entry<K, V> next() {
+            return nextNode();
+        }
+    }
+
+    private abstract class NodeIterator<T> implements Iterator<T> {
+
+        // Tables to iterate, the old table is only present during a migration
+        private final Collection<Node>[][] tables;
+
+        // Index of table
+        private int tIndex = 0;
 
         // Iterator of bucket
-        private Iterator<Node> bIterator;
+        private Iterator<Node> bIterator = Collections.emptyIterator();
+
+        // Bucket walked by index instead of bIterator if it is an ArrayList,
+        // so iterating allocates no Iterator per bucket
+        private List<Node> list;
 
-        // Index of bucket
+        // Index of next node of list
+        private int listIndex;
+
+        // Index of next bucket
         private int index = 0;
 
-        public MyHashMapIterator() {
-            // Advance to first non-null bucket
-            while (index < buckets.length && buckets[index] == null) {
-                index += 1;
+        @SuppressWarnings("unchecked")
+        NodeIterator() {
+            tables = (Collection<Node>[][]) new Collection<?>[oldBuckets == null ? 1 : 2][];
+            tables[0] = buckets;
+            if (oldBuckets != null) {
+                tables[1] = oldBuckets;
             }
-            // No next non-null bucket
-            if (index >= buckets.length) {
-                return;
-            }
-            bIterator = buckets[index].iterator();
         }
 
         @Override
+        @SuppressWarnings("unchecked")
         public boolean hasNext() {
-            if (bIterator.hasNext()) {
-                return true;
-            }
-            // Advance to next non-null bucket
-            index += 1;
-            while (index < buckets.length && buckets[index] == null) {
+            while (list != null ? listIndex >= list.size() : !bIterator.hasNext()) {
+                // Advance to next non-null bucket, in this table or the next one
+                while (tIndex < tables.length && index >= tables[tIndex].length) {
+                    tIndex += 1;
+                    index = 0;
+                }
+                // No next non-null bucket
+                if (tIndex >= tables.length) {
+                    return false;
+                }
+                Collection<Node> bucket = tables[tIndex][index];
                 index += 1;
+                if (bucket instanceof List && bucket instanceof RandomAccess) {
+                    list = (List<Node>) bucket;
+                    listIndex = 0;
+                } else if (bucket != null) {
+                    list = null;
+                    bIterator = bucket.iterator();
+                }
             }
-            // No next non-null bucket
-            if (index >= buckets.length) {
-                return false;
-            }
-            bIterator = buckets[index].iterator();
             return true;
         }
 
-        @Override
-        public K next() {
+        Node nextNode() {
             if (!hasNext()) {
                 throw new NoSuchElementException();
             }
-            return bIterator.next().key;
+            return list != null ? list.get(listIndex++) : bIterator.next();
         }
     }
 
@@ -0,0 +1,241 @@
+package hashmap;
+
+import java.util.*;
+
+/**
+ *  A hash table-backed Map implementation using open addressing, entries are
+ *  stored directly in parallel key/value arrays instead of Node objects in buckets.
+ *
+ *  Collisions are resolved by linear probing with Robin Hood hashing: an entry
+ *  being inserted takes the slot of any entry that is closer to its home slot,
+ *  which keeps probe sequences short and lets a lookup stop as soon as it meets
+ *  an entry closer to home than the key would be. remove() shifts the following
+ *  entries of the probe sequence back by one slot, so no tombstones are left.
+ *
+ *  Assumes null keys will never be inserted, and does not resize down upon remove().
+ */
+public class MyHashMapOpenAddressing<K, V> implements Map61B<K, V> {
+
+    /* Instance Variables */
+    private Object[] keys;
+
+    private Object[] values;
+
+    // Cached hash of each key, to compute probe distances without calling hashCode()
+    private int[] hashes;
+
+    private final int initialSize;
+
+    private final double maxLoad;
+
+    private int size;
+
+    /** Constructors */
+    public MyHashMapOpenAddressing() {
+        this(16);
+    }
+
+    public MyHashMapOpenAddressing(int initialSize) {
+        this(initialSize, 0.75);
+    }
+
+    /**
+     * MyHashMapOpenAddressing constructor that creates backing arrays of at least
+     * initialSize slots, rounded up to a power of two.
+     * The load factor (# items / # slots) should always be <= maxLoad < 1,
+     * so there is always an empty slot to end a probe sequence.
+     *
+     * @param initialSize initial size of backing arrays
+     * @param maxLoad maximum load factor
+     */
+    public MyHashMapOpenAddressing(int initialSize, double maxLoad) {
+        if (maxLoad <= 0 || maxLoad >= 1) {
+            throw new IllegalArgumentException("maxLoad must be in (0, 1)");
+        }
+        this.initialSize = Hashing.tableSizeFor(initialSize);
+        this.maxLoad = maxLoad;
+        createTable(this.initialSize);
+    }
+
+    private void createTable(int tableSize) {
+        this.keys = new Object[tableSize];
+        this.values = new Object[tableSize];
+        this.hashes = new int[tableSize];
+        this.size = 0;
+    }
+
+    // Spread the high bits of hashCode to the low bits used by the mask
+    private static int hash(Object key) {
+        return Hashing.spread(key.hashCode());
+    }
+
+    // Distance of slot from the home slot of hash
+    private int probeDistance(int slot, int hash) {
+        return (slot - hash) & (keys.length - 1);
+    }
+
+    // Return the slot of key, or -1 if key is not present
+    private int findSlot(K key) {
+        int mask = keys.length - 1;
+        int h = hash(key);
+        int i = h & mask;
+        for (int dist = 0; keys[i] != null && dist <= probeDistance(i, hashes[i]); dist++) {
+            if (hashes[i] == h && keys[i].equals(key)) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    // Insert the entry, return true if key was not present
+    private boolean insert(Object key, Object value, int h) {
+        int mask = keys.length - 1;
+        int i = h & mask;
+        int dist = 0;
+        while (keys[i] != null) {
+            if (hashes[i] == h && keys[i].equals(key)) {
+                values[i] = value;
+                return false;
+            }
+            int existingDist = probeDistance(i, hashes[i]);
+            if (existingDist < dist) {
+                // Take the slot of the richer entry, and carry on inserting it
+                Object k = keys[i];
+                Object v = values[i];
+                int eh = hashes[i];
+                keys[i] = key;
+                values[i] = value;
+                hashes[i] = h;
+                key = k;
+                value = v;
+                h = eh;
+                dist = existingDist;
+            }
+            i = (i + 1) & mask;
+            dist += 1;
+        }
+        keys[i] = key;
+        values[i] = value;
+        hashes[i] = h;
+        return true;
+    }
+
+    // Remove the entry in slot, and shift back the entries after it
+    private void removeSlot(int slot) {
+        int mask = keys.length - 1;
+        int i = slot;
+        int next = (i + 1) & mask;
+        while (keys[next] != null && probeDistance(next, hashes[next]) > 0) {
+            keys[i] = keys[next];
+            values[i] = values[next];
+            hashes[i] = hashes[next];
+            i = next;
+            next = (next + 1) & mask;
+        }
+        keys[i] = null;
+        values[i] = null;
+        size -= 1;
+    }
+
+    private void conditionalResize() {
+        if (size + 1 > maxLoad * keys.length) {
+            Object[] oldKeys = keys;
+            Object[] oldValues = values;
+            int[] oldHashes = hashes;
+            int oldSize = size;
+            createTable(2 * oldKeys.length);
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != null) {
+                    insert(oldKeys[i], oldValues[i], oldHashes[i]);
+                }
+            }
+            size = oldSize;
+        }
+    }
+
+    @Override
+    public void clear() {
+        createTable(initialSize);
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        return findSlot(key) >= 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(K key) {
+        int slot = findSlot(key);
+        return slot < 0 ? null : (V) values[slot];
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public void put(K key, V value) {
+        conditionalResize();
+        if (insert(key, value, hash(key))) {
+            size += 1;
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(K key) {
+        int slot = findSlot(key);
+        if (slot < 0) {
+            return null;
+        }
+        V value = (V) values[slot];
+        removeSlot(slot);
+        return value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(K key, V value) {
+        int slot = findSlot(key);
+        if (slot < 0 || !values[slot].equals(value)) {
+            return null;
+        }
+        V res = (V) values[slot];
+        removeSlot(slot);
+        return res;
+    }
+
+    @Override
+    public Iterator<K> iterator() {
+        return new MyHashMapOpenAddressingIterator();
+    }
+
+    private class MyHashMapOpenAddressingIterator implements Iterator<K> {
+
+        // Index of next slot to check
+        private int index = 0;
+
+        @Override
+        public boolean hasNext() {
+            // Advance to next non-empty slot
+            while (index < keys.length && keys[index] == null) {
+                index += 1;
+            }
+            return index < keys.length;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public K next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            K key = (K) keys[index];
+            index += 1;
+            return key;
+        }
+    }
+}
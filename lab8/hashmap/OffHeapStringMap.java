@@ -0,0 +1,567 @@
+package hashmap;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
+
+/**
+ *  A hash map from String keys to byte[] values which keeps its entries outside
+ *  of the Java heap, so holding millions of them costs neither object headers
+ *  nor GC time.
+ *
+ *  Entries are appended as records to an arena, a direct ByteBuffer or a file
+ *  mapped in memory. A record is the key length, the value length, the UTF-8
+ *  bytes of the key and the bytes of the value. The index is an open addressing
+ *  table in another direct ByteBuffer, each slot holds the hash of a key and the
+ *  offset of its record, 0 for an empty slot. Lookups compare the stored bytes
+ *  with the encoded key, without creating a String.
+ *
+ *  A put() of a value of the same length overwrites the record, any other update
+ *  or remove() marks the record dead by storing -1 - its key length. When the arena
+ *  is full, dead records are compacted away if they take at least half of it,
+ *  else the arena is doubled. get() returns a copy of the value.
+ *
+ *  A map opened on a file persists there: the arena starts with a header holding
+ *  the end of the records, and reopening the file rebuilds the index from the
+ *  live records. close() writes the mapped arena back to the file, then the map
+ *  can't be used anymore.
+ *
+ *  Assumes null keys and values will never be inserted, does not resize down
+ *  upon remove(), and holds at most 2GB of records. The map must not be changed
+ *  while it is iterated.
+ */
+public class OffHeapStringMap implements Map61B<String, byte[]>, Closeable {
+
+    private static final int MAGIC = 0x4F48534D;
+
+    private static final int VERSION = 1;
+
+    /* The header is the magic number, the version and the end of the records. */
+    private static final int END_OFFSET = 8;
+
+    private static final int HEADER_LENGTH = 16;
+
+    /* A record starts with the key length and the value length. */
+    private static final int RECORD_HEADER_LENGTH = 8;
+
+    /* A slot of the index is the hash and the record offset of a key. */
+    private static final int SLOT_LENGTH = 8;
+
+    private static final double MAX_LOAD = 0.5;
+
+    /* Instance Variables */
+    private ByteBuffer arena;
+
+    private ByteBuffer index;
+
+    // Number of slots of the index, a power of two
+    private int capacity;
+
+    private final int initialCapacity;
+
+    private final int initialArenaSize;
+
+    // Channel of the mapped file, or null if the arena is in memory
+    private FileChannel channel;
+
+    // End of the records in the arena
+    private int end;
+
+    // Bytes of the dead records
+    private long garbage;
+
+    private int size;
+
+    // Number of changes of the entries, to detect a change during iteration
+    private int modCount;
+
+    /** Constructors */
+    public OffHeapStringMap() {
+        this(16, 4096);
+    }
+
+    /**
+     * OffHeapStringMap constructor that creates an index of at least
+     * initialCapacity slots and an arena of initialArenaSize bytes, both
+     * outside of the heap.
+     *
+     * @param initialCapacity initial number of slots of the index
+     * @param initialArenaSize initial size of the arena in bytes
+     */
+    public OffHeapStringMap(int initialCapacity, int initialArenaSize) {
+        this.initialCapacity = Hashing.tableSizeFor(initialCapacity);
+        this.initialArenaSize = Math.max(initialArenaSize, HEADER_LENGTH);
+        this.arena = ByteBuffer.allocateDirect(this.initialArenaSize);
+        writeHeader();
+        createIndex(this.initialCapacity);
+    }
+
+    /**
+     * OffHeapStringMap constructor that maps file as the arena, creating it if
+     * it does not exist, and rebuilds the index from the records of an existing
+     * file. Throws IOException if file is not a map written by this class.
+     *
+     * @param file the file holding the records
+     */
+    public OffHeapStringMap(File file) throws IOException {
+        this.initialCapacity = 16;
+        this.initialArenaSize = 4096;
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long length = channel.size();
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("file too large: " + file);
+            }
+            if (length == 0) {
+                this.arena = channel.map(FileChannel.MapMode.READ_WRITE, 0, initialArenaSize);
+                writeHeader();
+            } else {
+                // Check the header first, mapping a file also writes it
+                readHeader(file, length);
+                this.arena = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+            }
+            createIndex(initialCapacity);
+            rebuildIndex();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private void writeHeader() {
+        arena.putInt(0, MAGIC);
+        arena.putInt(4, VERSION);
+        end = HEADER_LENGTH;
+        arena.putInt(END_OFFSET, end);
+    }
+
+    // Read the header of a file of length bytes from the channel
+    private void readHeader(File file, long length) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+        while (header.hasRemaining()) {
+            if (channel.read(header, header.position()) < 0) {
+                break;
+            }
+        }
+        if (header.hasRemaining() || header.getInt(0) != MAGIC) {
+            throw new IOException("not an off-heap map: " + file);
+        }
+        if (header.getInt(4) > VERSION) {
+            throw new IOException("unsupported version " + header.getInt(4) + ": " + file);
+        }
+        end = header.getInt(END_OFFSET);
+        if (end < HEADER_LENGTH || end > length) {
+            throw new IOException("corrupt off-heap map: " + file);
+        }
+    }
+
+    private void createIndex(int slots) {
+        this.capacity = slots;
+        this.index = ByteBuffer.allocateDirect(slots * SLOT_LENGTH);
+    }
+
+    // Hash the UTF-8 bytes of a key with FNV-1a, so it can be computed from a record
+    private static int hash(ByteBuffer buf, int offset, int length) {
+        int h = 0x811C9DC5;
+        for (int i = 0; i < length; i++) {
+            h = (h ^ (buf.get(offset + i) & 0xff)) * 0x01000193;
+        }
+        return Hashing.spread(h);
+    }
+
+    private static int hash(byte[] key) {
+        int h = 0x811C9DC5;
+        for (byte b : key) {
+            h = (h ^ (b & 0xff)) * 0x01000193;
+        }
+        return Hashing.spread(h);
+    }
+
+    private int slotHash(int slot) {
+        return index.getInt(slot * SLOT_LENGTH);
+    }
+
+    private int slotRecord(int slot) {
+        return index.getInt(slot * SLOT_LENGTH + 4);
+    }
+
+    private void setSlot(int slot, int hash, int record) {
+        index.putInt(slot * SLOT_LENGTH, hash);
+        index.putInt(slot * SLOT_LENGTH + 4, record);
+    }
+
+    private int keyLength(int record) {
+        return arena.getInt(record);
+    }
+
+    // Key length of a record from its stored key length, which is -1 - the key length if dead
+    private static int liveKeyLength(int storedKeyLength) {
+        return storedKeyLength < 0 ? -1 - storedKeyLength : storedKeyLength;
+    }
+
+    private int valueLength(int record) {
+        return arena.getInt(record + 4);
+    }
+
+    // Return true if the record holds key
+    private boolean keyEquals(int record, byte[] key) {
+        if (keyLength(record) != key.length) {
+            return false;
+        }
+        int offset = record + RECORD_HEADER_LENGTH;
+        for (int i = 0; i < key.length; i++) {
+            if (arena.get(offset + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Return the slot of key, or -1 if key is not present
+    private int findSlot(byte[] key, int hash) {
+        int mask = capacity - 1;
+        for (int i = hash & mask; slotRecord(i) != 0; i = (i + 1) & mask) {
+            if (slotHash(i) == hash && keyEquals(slotRecord(i), key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Return the empty slot where key would be inserted
+    private int emptySlot(int hash) {
+        int mask = capacity - 1;
+        int i = hash & mask;
+        while (slotRecord(i) != 0) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    // Remove the slot, and shift back the slots that can move closer to home
+    private void removeSlot(int slot) {
+        int mask = capacity - 1;
+        int i = slot;
+        for (int j = (i + 1) & mask; slotRecord(j) != 0; j = (j + 1) & mask) {
+            int home = slotHash(j) & mask;
+            if (Hashing.canShift(home, i, j)) {
+                setSlot(i, slotHash(j), slotRecord(j));
+                i = j;
+            }
+        }
+        setSlot(i, 0, 0);
+    }
+
+    private void conditionalResize() {
+        if (size + 1 > MAX_LOAD * capacity) {
+            ByteBuffer oldIndex = index;
+            int oldCapacity = capacity;
+            createIndex(2 * capacity);
+            for (int i = 0; i < oldCapacity; i++) {
+                int record = oldIndex.getInt(i * SLOT_LENGTH + 4);
+                if (record != 0) {
+                    int h = oldIndex.getInt(i * SLOT_LENGTH);
+                    setSlot(emptySlot(h), h, record);
+                }
+            }
+        }
+    }
+
+    // Insert the live records of the arena into an empty index
+    private void rebuildIndex() {
+        size = 0;
+        garbage = 0;
+        int record = HEADER_LENGTH;
+        while (record < end) {
+            int keyLength = keyLength(record);
+            int length = RECORD_HEADER_LENGTH + liveKeyLength(keyLength) + valueLength(record);
+            if (keyLength >= 0) {
+                conditionalResize();
+                int h = hash(arena, record + RECORD_HEADER_LENGTH, keyLength);
+                setSlot(emptySlot(h), h, record);
+                size += 1;
+            } else {
+                garbage += length;
+            }
+            record += length;
+        }
+    }
+
+    // Return the offset of a new record of key and value, appended to the arena
+    private int append(byte[] key, byte[] value) {
+        long length = (long) RECORD_HEADER_LENGTH + key.length + value.length;
+        if (end + length > arena.capacity()) {
+            makeRoom(length);
+        }
+        int record = end;
+        arena.putInt(record, key.length);
+        arena.putInt(record + 4, value.length);
+        putBytes(record + RECORD_HEADER_LENGTH, key);
+        putBytes(record + RECORD_HEADER_LENGTH + key.length, value);
+        end += (int) length;
+        arena.putInt(END_OFFSET, end);
+        return record;
+    }
+
+    // Compact or grow the arena so a record of length bytes fits after the end
+    private void makeRoom(long length) {
+        if (garbage >= arena.capacity() / 2) {
+            compact();
+        }
+        if (end + length <= arena.capacity()) {
+            return;
+        }
+        long newSize = Math.max(2L * arena.capacity(), end + length);
+        if (end + length > Integer.MAX_VALUE) {
+            throw new IllegalStateException("arena full");
+        }
+        newSize = Math.min(newSize, Integer.MAX_VALUE);
+        if (channel != null) {
+            // Mapping a larger region of the file extends it
+            try {
+                arena = channel.map(FileChannel.MapMode.READ_WRITE, 0, newSize);
+            } catch (IOException e) {
+                throw new IllegalStateException("cannot grow arena", e);
+            }
+        } else {
+            ByteBuffer newArena = ByteBuffer.allocateDirect((int) newSize);
+            arena.position(0).limit(end);
+            newArena.put(arena);
+            arena.clear();
+            arena = newArena;
+        }
+    }
+
+    // Slide the live records down over the dead ones, then rebuild the index
+    private void compact() {
+        int from = HEADER_LENGTH;
+        int to = HEADER_LENGTH;
+        while (from < end) {
+            int keyLength = keyLength(from);
+            int length = RECORD_HEADER_LENGTH + liveKeyLength(keyLength) + valueLength(from);
+            if (keyLength >= 0) {
+                if (from != to) {
+                    ByteBuffer src = arena.duplicate();
+                    src.position(from).limit(from + length);
+                    ByteBuffer dst = arena.duplicate();
+                    dst.position(to);
+                    dst.put(src);
+                }
+                to += length;
+            }
+            from += length;
+        }
+        end = to;
+        arena.putInt(END_OFFSET, end);
+        createIndex(capacity);
+        rebuildIndex();
+    }
+
+    // Mark record dead
+    private void kill(int record) {
+        int keyLength = keyLength(record);
+        arena.putInt(record, -1 - keyLength);
+        garbage += RECORD_HEADER_LENGTH + keyLength + valueLength(record);
+    }
+
+    private void ensureOpen() {
+        if (arena == null) {
+            throw new IllegalStateException("map is closed");
+        }
+    }
+
+    private void putBytes(int offset, byte[] src) {
+        arena.position(offset);
+        arena.put(src);
+    }
+
+    private void getBytes(int offset, byte[] dst) {
+        arena.position(offset);
+        arena.get(dst);
+    }
+
+    private static byte[] encode(String key) {
+        return key.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private String keyAt(int record) {
+        byte[] key = new byte[keyLength(record)];
+        getBytes(record + RECORD_HEADER_LENGTH, key);
+        return new String(key, StandardCharsets.UTF_8);
+    }
+
+    private byte[] valueAt(int record) {
+        byte[] value = new byte[valueLength(record)];
+        getBytes(record + RECORD_HEADER_LENGTH + keyLength(record), value);
+        return value;
+    }
+
+    @Override
+    public void clear() {
+        ensureOpen();
+        writeHeader();
+        createIndex(initialCapacity);
+        size = 0;
+        garbage = 0;
+        modCount += 1;
+    }
+
+    @Override
+    public boolean containsKey(String key) {
+        ensureOpen();
+        byte[] k = encode(key);
+        return findSlot(k, hash(k)) >= 0;
+    }
+
+    @Override
+    public byte[] get(String key) {
+        ensureOpen();
+        byte[] k = encode(key);
+        int slot = findSlot(k, hash(k));
+        return slot < 0 ? null : valueAt(slotRecord(slot));
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void put(String key, byte[] value) {
+        ensureOpen();
+        byte[] k = encode(key);
+        int h = hash(k);
+        int slot = findSlot(k, h);
+        if (slot >= 0) {
+            int record = slotRecord(slot);
+            if (valueLength(record) == value.length) {
+                putBytes(record + RECORD_HEADER_LENGTH + k.length, value);
+                return;
+            }
+            // Remove the old entry, appending may compact the arena and move records
+            kill(record);
+            removeSlot(slot);
+            size -= 1;
+        }
+        conditionalResize();
+        int record = append(k, value);
+        setSlot(emptySlot(h), h, record);
+        size += 1;
+        modCount += 1;
+    }
+
+    @Override
+    public byte[] remove(String key) {
+        ensureOpen();
+        byte[] k = encode(key);
+        int slot = findSlot(k, hash(k));
+        if (slot < 0) {
+            return null;
+        }
+        int record = slotRecord(slot);
+        byte[] value = valueAt(record);
+        kill(record);
+        removeSlot(slot);
+        size -= 1;
+        modCount += 1;
+        return value;
+    }
+
+    @Override
+    public byte[] remove(String key, byte[] value) {
+        ensureOpen();
+        byte[] old = get(key);
+        if (old == null || !Arrays.equals(old, value)) {
+            return null;
+        }
+        return remove(key);
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super String, ? super byte[]> action) {
+        ensureOpen();
+        for (int i = 0; i < capacity; i++) {
+            int record = slotRecord(i);
+            if (record != 0) {
+                action.accept(keyAt(record), valueAt(record));
+            }
+        }
+    }
+
+    /** Returns the number of bytes used outside of the heap by the arena and the index. */
+    public long offHeapBytes() {
+        ensureOpen();
+        return (long) arena.capacity() + index.capacity();
+    }
+
+    /**
+     * Writes a mapped arena back to its file and closes it. The map can't be used
+     * after close(), closing it again does nothing. The off-heap memory is only
+     * released once the map is garbage collected, Java has no public API to free
+     * a direct or mapped buffer.
+     */
+    @Override
+    public void close() throws IOException {
+        if (arena == null) {
+            return;
+        }
+        try {
+            if (channel != null) {
+                ((MappedByteBuffer) arena).force();
+                channel.close();
+            }
+        } finally {
+            // The memory is released when the buffers are garbage collected
+            arena = null;
+            index = null;
+            channel = null;
+        }
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        ensureOpen();
+        return new OffHeapStringMapIterator();
+    }
+
+    private class OffHeapStringMapIterator implements Iterator<String> {
+
+        // Index of next slot to check
+        private int slot = 0;
+
+        private final int expectedModCount = modCount;
+
+        @Override
+        public boolean hasNext() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            // Advance to next non-empty slot
+            while (slot < capacity && slotRecord(slot) == 0) {
+                slot += 1;
+            }
+            return slot < capacity;
+        }
+
+        @Override
+        public String next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            String key = keyAt(slotRecord(slot));
+            slot += 1;
+            return key;
+        }
+    }
+}
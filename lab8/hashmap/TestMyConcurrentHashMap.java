@@ -0,0 +1,163 @@
+package hashmap;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** Tests of the thread-safe hash map, MyConcurrentHashMap. */
+public class TestMyConcurrentHashMap {
+
+    @Test
+    public void sanityTests() {
+        TestMyHashMap.sanityTests(MyConcurrentHashMap::new);
+    }
+
+    @Test
+    public void functionalityTest() {
+        TestMyHashMap.functionalityTest(MyConcurrentHashMap::new);
+    }
+
+    @Test
+    public void randomizedTest() {
+        TestMyHashMap.randomizedTest(MyConcurrentHashMap::new);
+    }
+
+    /** Threads putting into a small table resize it together without losing keys. */
+    @Test
+    public void testConcurrentPutsAndRemoves() throws InterruptedException {
+        int threads = 4;
+        int perThread = 20000;
+        MyConcurrentHashMap<Integer, Integer> q = new MyConcurrentHashMap<>(2);
+        runThreads(threads, t -> {
+            for (int i = 0; i < perThread; i++) {
+                int key = i * threads + t;
+                q.put(key, key);
+                // Readers may run into forwarded bins while the table is resized
+                assertEquals(Integer.valueOf(key), q.get(key));
+            }
+        });
+        assertEquals(threads * perThread, q.size());
+        Set<Integer> keys = new HashSet<>();
+        for (int key : q) {
+            assertTrue(keys.add(key));
+        }
+        assertEquals(threads * perThread, keys.size());
+
+        // Remove the odd keys
+        runThreads(threads, t -> {
+            for (int i = 0; i < perThread; i++) {
+                int key = i * threads + t;
+                if (key % 2 == 1) {
+                    assertEquals(Integer.valueOf(key), q.remove(key));
+                }
+            }
+        });
+        assertEquals(threads * perThread / 2, q.size());
+        for (int key = 0; key < threads * perThread; key++) {
+            assertEquals(key % 2 == 0, q.containsKey(key));
+        }
+    }
+
+    /** Keys present for the whole iteration are returned while other threads write. */
+    @Test
+    public void testWeaklyConsistentIterator() throws InterruptedException {
+        MyConcurrentHashMap<Integer, Integer> q = new MyConcurrentHashMap<>(2);
+        for (int key = 0; key < 1000; key++) {
+            q.put(key, key);
+        }
+        runThreads(2, t -> {
+            if (t == 0) {
+                // Grow the table a few times, starting resizes during the iteration
+                for (int key = 1000; key < 50000; key++) {
+                    q.put(key, key);
+                }
+            } else {
+                for (int n = 0; n < 5; n++) {
+                    Set<Integer> keys = new HashSet<>();
+                    for (int key : q) {
+                        keys.add(key);
+                    }
+                    for (int key = 0; key < 1000; key++) {
+                        assertTrue(keys.contains(key));
+                    }
+                }
+            }
+        });
+        assertEquals(50000, q.size());
+    }
+
+    /** Counts merged by many threads add up, and each absent value is computed once. */
+    @Test
+    public void testAtomicMergeAndComputeIfAbsent() throws InterruptedException {
+        int threads = 4;
+        int keys = 5000;
+        MyConcurrentHashMap<Integer, Integer> counts = new MyConcurrentHashMap<>(2);
+        MyConcurrentHashMap<Integer, Integer> computed = new MyConcurrentHashMap<>(2);
+        AtomicInteger calls = new AtomicInteger();
+        runThreads(threads, t -> {
+            for (int n = 0; n < 10; n++) {
+                for (int key = 0; key < keys; key++) {
+                    counts.merge(key, 1, Integer::sum);
+                    assertEquals(Integer.valueOf(-key), computed.computeIfAbsent(key, k -> {
+                        calls.incrementAndGet();
+                        return -k;
+                    }));
+                }
+            }
+        });
+        assertEquals(keys, counts.size());
+        for (int key = 0; key < keys; key++) {
+            assertEquals(Integer.valueOf(threads * 10), counts.get(key));
+        }
+        assertEquals(keys, calls.get());
+        assertEquals(keys, computed.size());
+
+        // A merge to null removes the key
+        runThreads(threads, t -> {
+            for (int key = t; key < keys; key += threads) {
+                assertNull(counts.merge(key, 0, (a, b) -> null));
+            }
+        });
+        assertEquals(0, counts.size());
+        assertFalse(counts.iterator().hasNext());
+    }
+
+    private interface Task {
+        void run(int thread);
+    }
+
+    // Run task on n threads at once, and rethrow the first failure
+    private static void runThreads(int n, Task task) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        List<Throwable> failures = new ArrayList<>();
+        for (int t = 0; t < n; t++) {
+            int id = t;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    task.run(id);
+                } catch (Throwable e) {
+                    synchronized (failures) {
+                        failures.add(e);
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        if (!failures.isEmpty()) {
+            throw new AssertionError(failures.get(0));
+        }
+    }
+}
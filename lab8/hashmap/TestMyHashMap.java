@@ -3,7 +3,10 @@ package hashmap;
 import static org.junit.Assert.*;
 import org.junit.Test;
 
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
 import java.util.Set;
 
 /**
@@ -27,7 +30,7 @@ public class TestMyHashMap {
         sanityClearTest(new MyHashMap<>());
     }
 
-    public static void sanityClearTest(MyHashMap<String, Integer> b) {
+    public static void sanityClearTest(Map61B<String, Integer> b) {
         for (int i = 0; i < 455; i++) {
             b.put("hi" + i, 1);
             //make sure put is working via containsKey and get
@@ -47,7 +50,7 @@ public class TestMyHashMap {
         sanityContainsKeyTest(new MyHashMap<>());
     }
 
-    public static void sanityContainsKeyTest(MyHashMap<String, Integer> b) {
+    public static void sanityContainsKeyTest(Map61B<String, Integer> b) {
         assertFalse(b.containsKey("waterYouDoingHere"));
         b.put("waterYouDoingHere", 0);
         assertTrue(b.containsKey("waterYouDoingHere"));
@@ -59,7 +62,7 @@ public class TestMyHashMap {
         sanityGetTest(new MyHashMap<>());
     }
 
-    public static void sanityGetTest(MyHashMap<String, Integer> b) {
+    public static void sanityGetTest(Map61B<String, Integer> b) {
         assertEquals(null, b.get("starChild"));
         b.put("starChild", 5);
         assertNotEquals(null, b.get("starChild"));
@@ -74,7 +77,7 @@ public class TestMyHashMap {
         sanitySizeTest(new MyHashMap<>());
     }
 
-    public static void sanitySizeTest(MyHashMap<String, Integer> b) {
+    public static void sanitySizeTest(Map61B<String, Integer> b) {
         assertEquals(0, b.size());
         b.put("hi", 1);
         assertEquals(1, b.size());
@@ -90,7 +93,7 @@ public class TestMyHashMap {
         sanityPutTest(new MyHashMap<>());
     }
 
-    public static void sanityPutTest(MyHashMap<String, Integer> b) {
+    public static void sanityPutTest(Map61B<String, Integer> b) {
         b.put("hi", 1);
         assertTrue(b.containsKey("hi") && b.get("hi") != null);
     }
@@ -100,7 +103,7 @@ public class TestMyHashMap {
         sanityKeySetTest(new MyHashMap<>());
     }
 
-    public static void sanityKeySetTest(MyHashMap<String, Integer> b) {
+    public static void sanityKeySetTest(Map61B<String, Integer> b) {
         HashSet<String> values = new HashSet<String>();
         for (int i = 0; i < 455; i++) {
             b.put("hi" + i, 1);
@@ -118,8 +121,8 @@ public class TestMyHashMap {
         functionalityTest(new MyHashMap<>(), new MyHashMap<>());
     }
 
-    public static void functionalityTest(MyHashMap<String, String> dictionary,
-                                   MyHashMap<String, Integer> studentIDs) {
+    public static void functionalityTest(Map61B<String, String> dictionary,
+                                   Map61B<String, Integer> studentIDs) {
         assertEquals(0, dictionary.size());
 
         // can put objects in dictionary and get them
@@ -158,4 +161,50 @@ public class TestMyHashMap {
         assertEquals(345, studentIDs.get("evil alan").intValue());
         assertEquals(studentIDs.get("evil alan"), studentIDs.get("alan"));
     }
+
+    @Test
+    public void randomizedTest() {
+        randomizedTest(MyHashMap::new);
+    }
+
+    /** Random puts and removes give the same mappings as java.util.HashMap. */
+    public static void randomizedTest(MapFactory factory) {
+        Random random = new Random(61);
+        Map61B<Integer, Integer> q = factory.create(4);
+        Map<Integer, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 100000; i++) {
+            int key = random.nextInt(4000);
+            if (random.nextInt(4) == 0) {
+                assertEquals(expected.remove(key), q.remove(key));
+            } else {
+                assertEquals(expected.get(key), q.get(key));
+                expected.put(key, i);
+                q.put(key, i);
+            }
+            assertEquals(expected.size(), q.size());
+        }
+        for (int key = 0; key < 4000; key++) {
+            assertEquals(expected.get(key), q.get(key));
+        }
+        assertEquals(expected.keySet(), q.keySet());
+    }
+
+    /** Makes empty maps of one Map61B implementation for the shared tests. */
+    public interface MapFactory {
+        <K, V> Map61B<K, V> create(int initialSize);
+    }
+
+    /** Runs every sanity test on new maps made by factory. */
+    public static void sanityTests(MapFactory factory) {
+        sanityClearTest(factory.create(16));
+        sanityContainsKeyTest(factory.create(16));
+        sanityGetTest(factory.create(16));
+        sanitySizeTest(factory.create(16));
+        sanityPutTest(factory.create(16));
+        sanityKeySetTest(factory.create(16));
+    }
+
+    public static void functionalityTest(MapFactory factory) {
+        functionalityTest(factory.create(16), factory.create(16));
+    }
 }
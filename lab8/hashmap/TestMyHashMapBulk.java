@@ -0,0 +1,136 @@
+package hashmap;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/** Tests of forEach, entryIterator, putAll, computeIfAbsent, merge and the keySet view. */
+public class TestMyHashMapBulk {
+
+    @Test
+    public void testForEachAndEntryIterator() {
+        // ULLMap uses the default methods of Map61B
+        for (Map61B<String, Integer> b : List.<Map61B<String, Integer>>of(
+                new MyHashMap<>(), new MyHashMap<>(4, 0.75, true), new ULLMap<>())) {
+            Map<String, Integer> expected = new HashMap<>();
+            for (int i = 0; i < 100; i++) {
+                b.put("hi" + i, i);
+                expected.put("hi" + i, i);
+            }
+            Map<String, Integer> seen = new HashMap<>();
+            b.forEach((k, v) -> assertNull(seen.put(k, v)));
+            assertEquals(expected, seen);
+
+            seen.clear();
+            Iterator<Map.Entry<String, Integer>> it = b.entryIterator();
+            while (it.hasNext()) {
+                Map.Entry<String, Integer> e = it.next();
+                assertNull(seen.put(e.getKey(), e.getValue()));
+            }
+            assertEquals(expected, seen);
+        }
+    }
+
+    @Test
+    public void testEntrySetValue() {
+        MyHashMap<String, Integer> b = new MyHashMap<>();
+        b.put("a", 1);
+        b.put("b", 2);
+        Iterator<Map.Entry<String, Integer>> it = b.entryIterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Integer> e = it.next();
+            e.setValue(e.getValue() * 10);
+        }
+        assertEquals(Integer.valueOf(10), b.get("a"));
+        assertEquals(Integer.valueOf(20), b.get("b"));
+    }
+
+    @Test
+    public void testPutAll() {
+        MyHashMap<String, Integer> a = new MyHashMap<>();
+        MyHashMap<String, Integer> b = new MyHashMap<>();
+        for (int i = 0; i < 100; i++) {
+            a.put("hi" + i, i);
+        }
+        b.put("hi0", -1);
+        b.put("other", -2);
+        b.putAll(a);
+        assertEquals(101, b.size());
+        assertEquals(Integer.valueOf(0), b.get("hi0"));
+        assertEquals(Integer.valueOf(-2), b.get("other"));
+    }
+
+    @Test
+    public void testComputeIfAbsentAndMerge() {
+        for (Map61B<String, Integer> b : List.<Map61B<String, Integer>>of(
+                new MyHashMap<>(), new ULLMap<>())) {
+            assertEquals(Integer.valueOf(3), b.computeIfAbsent("abc", String::length));
+            assertEquals(Integer.valueOf(3), b.computeIfAbsent("abc", k -> 100));
+            assertNull(b.computeIfAbsent("x", k -> null));
+            assertFalse(b.containsKey("x"));
+
+            String[] words = {"a", "b", "a", "c", "a", "b"};
+            for (String w : words) {
+                b.merge(w, 1, Integer::sum);
+            }
+            assertEquals(Integer.valueOf(3), b.get("a"));
+            assertEquals(Integer.valueOf(2), b.get("b"));
+            assertEquals(Integer.valueOf(1), b.get("c"));
+            assertEquals(4, b.size());
+        }
+        // A null result of the remapping function removes the key
+        for (Map61B<String, Integer> b : List.<Map61B<String, Integer>>of(
+                new MyHashMap<>(), new ULLMap<>())) {
+            b.put("a", 1);
+            b.put("b", 2);
+            assertNull(b.merge("a", 1, (x, y) -> null));
+            assertFalse(b.containsKey("a"));
+            assertNull(b.remove("b", 3));
+            assertEquals(Integer.valueOf(2), b.remove("b", 2));
+            assertEquals(0, b.size());
+        }
+    }
+
+    /** Inserting misses through computeIfAbsent and merge across resizes keeps every key once. */
+    @Test
+    public void testComputeIfAbsentAndMergeResize() {
+        MyHashMap<Integer, Integer> b = new MyHashMap<>();
+        for (int i = 0; i < 1000; i += 1) {
+            assertEquals(Integer.valueOf(i), b.computeIfAbsent(i, k -> k));
+            assertEquals(Integer.valueOf(1), b.merge(-1 - i, 1, Integer::sum));
+        }
+        for (int i = 0; i < 500; i += 1) {
+            assertEquals(Integer.valueOf(3), b.merge(-1 - i, 2, Integer::sum));
+        }
+        assertEquals(2000, b.size());
+        for (int i = 0; i < 1000; i += 1) {
+            assertEquals(Integer.valueOf(i), b.get(i));
+            assertEquals(Integer.valueOf(i < 500 ? 3 : 1), b.get(-1 - i));
+        }
+    }
+
+    /** The keySet is a view, it follows the map and removes from it. */
+    @Test
+    public void testKeySetView() {
+        MyHashMap<String, Integer> b = new MyHashMap<>();
+        Set<String> keys = b.keySet();
+        assertTrue(keys.isEmpty());
+        assertFalse(keys.iterator().hasNext());
+        b.put("a", 1);
+        b.put("b", 2);
+        assertEquals(2, keys.size());
+        assertTrue(keys.contains("a"));
+        assertSame(keys, b.keySet());
+        assertTrue(keys.remove("a"));
+        assertFalse(keys.remove("a"));
+        assertFalse(b.containsKey("a"));
+        assertEquals(Set.of("b"), keys);
+        keys.clear();
+        assertEquals(0, b.size());
+    }
+}
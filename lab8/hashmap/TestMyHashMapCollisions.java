@@ -0,0 +1,158 @@
+package hashmap;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/** Tests of MyHashMap with many keys of the same hashCode, which are treeified. */
+public class TestMyHashMapCollisions {
+
+    /** Comparable keys in one bucket are found, iterated and removed. */
+    @Test
+    public void testComparableCollisions() {
+        MyHashMap<CollidingKey, Integer> q = new MyHashMap<>();
+        for (int i = 0; i < 500; i++) {
+            q.put(new CollidingKey(i, i), i);
+        }
+        q.put(new CollidingKey(7, 7), -7);
+        assertEquals(500, q.size());
+        assertEquals(Integer.valueOf(-7), q.get(new CollidingKey(7, 7)));
+        assertNull(q.get(new CollidingKey(500, 500)));
+        Set<CollidingKey> keys = new HashSet<>();
+        for (CollidingKey key : q) {
+            keys.add(key);
+        }
+        assertEquals(500, keys.size());
+        // Remove down to a few keys, the bucket becomes a plain bucket again
+        for (int i = 0; i < 497; i++) {
+            assertEquals(Integer.valueOf(i == 7 ? -7 : i), q.remove(new CollidingKey(i, i)));
+        }
+        assertEquals(3, q.size());
+        for (int i = 497; i < 500; i++) {
+            assertTrue(q.containsKey(new CollidingKey(i, i)));
+        }
+    }
+
+    /** Keys which compare equal but are not equal can't be treeified, and stay apart. */
+    @Test
+    public void testCompareToInconsistentWithEquals() {
+        MyHashMap<CollidingKey, Integer> q = new MyHashMap<>();
+        for (int i = 0; i < 100; i++) {
+            q.put(new CollidingKey(i, i), i);
+        }
+        // Same rank as key 5, another id
+        q.put(new CollidingKey(1000, 5), 1000);
+        assertEquals(101, q.size());
+        assertEquals(Integer.valueOf(5), q.get(new CollidingKey(5, 5)));
+        assertEquals(Integer.valueOf(1000), q.get(new CollidingKey(1000, 5)));
+        assertEquals(Integer.valueOf(1000), q.remove(new CollidingKey(1000, 5)));
+        assertNull(q.remove(new CollidingKey(1000, 5)));
+        assertEquals(Integer.valueOf(5), q.remove(new CollidingKey(5, 5)));
+        assertEquals(99, q.size());
+    }
+
+    /** A bucket which failed to be treeified is not treeified again on each put. */
+    @Test
+    public void testNoRetreeify() {
+        MyHashMap<CollidingKey, Integer> q = new MyHashMap<>(1024);
+        for (int i = 0; i < 100; i++) {
+            q.put(new CollidingKey(i, i), i);
+        }
+        // Same rank as key 0, the tree refuses it
+        q.put(new CollidingKey(1000, 0), 1000);
+        CollidingKey.compareCount = 0;
+        for (int i = 100; i < 300; i++) {
+            q.put(new CollidingKey(i, i), i);
+        }
+        assertEquals(0, CollidingKey.compareCount);
+        assertEquals(301, q.size());
+        assertEquals(Integer.valueOf(1000), q.get(new CollidingKey(1000, 0)));
+        assertEquals(Integer.valueOf(0), q.get(new CollidingKey(0, 0)));
+    }
+
+    /** Keys which are not Comparable stay in a plain bucket. */
+    @Test
+    public void testNonComparableCollisions() {
+        MyHashMap<Object, Integer> q = new MyHashMap<>();
+        for (int i = 0; i < 100; i++) {
+            q.put(new PlainKey(i), i);
+        }
+        // A Comparable key in the same bucket as non-Comparable ones
+        q.put(new CollidingKey(0, 0), -1);
+        assertEquals(101, q.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(Integer.valueOf(i), q.get(new PlainKey(i)));
+        }
+        assertEquals(Integer.valueOf(-1), q.remove(new CollidingKey(0, 0)));
+        assertEquals(100, q.size());
+    }
+
+    /** Buckets with TreeSet and PriorityQueue buckets are treeified and restored too. */
+    @Test
+    public void testBucketSubclasses() {
+        MyHashMap<CollidingKey, Integer> ts = new MyHashMapTSBuckets<>();
+        MyHashMap<CollidingKey, Integer> pq = new MyHashMapPQBuckets<>();
+        for (int i = 0; i < 100; i++) {
+            ts.put(new CollidingKey(i, i), i);
+            pq.put(new CollidingKey(i, i), i);
+        }
+        for (int i = 0; i < 95; i++) {
+            assertEquals(Integer.valueOf(i), ts.remove(new CollidingKey(i, i)));
+            assertEquals(Integer.valueOf(i), pq.remove(new CollidingKey(i, i)));
+        }
+        for (int i = 95; i < 100; i++) {
+            assertEquals(Integer.valueOf(i), ts.get(new CollidingKey(i, i)));
+            assertEquals(Integer.valueOf(i), pq.get(new CollidingKey(i, i)));
+        }
+    }
+
+    /** A Comparable key with a constant hashCode, ordered by rank and equal by id. */
+    private static class CollidingKey implements Comparable<CollidingKey> {
+        // Number of compareTo calls
+        static int compareCount;
+
+        private final int id;
+        private final int rank;
+
+        CollidingKey(int id, int rank) {
+            this.id = id;
+            this.rank = rank;
+        }
+
+        @Override
+        public int compareTo(CollidingKey o) {
+            compareCount += 1;
+            return Integer.compare(rank, o.rank);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof CollidingKey && ((CollidingKey) o).id == id;
+        }
+
+        @Override
+        public int hashCode() {
+            return 42;
+        }
+    }
+
+    private static class PlainKey {
+        private final int id;
+
+        PlainKey(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof PlainKey && ((PlainKey) o).id == id;
+        }
+
+        @Override
+        public int hashCode() {
+            return 42;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package hashmap;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/** Tests of MyHashMap with incremental resizing. */
+public class TestMyHashMapIncrementalResize {
+
+    @Test
+    public void sanityTests() {
+        TestMyHashMap.sanityTests(TestMyHashMapIncrementalResize::incremental);
+    }
+
+    @Test
+    public void functionalityTest() {
+        TestMyHashMap.functionalityTest(TestMyHashMapIncrementalResize::incremental);
+    }
+
+    @Test
+    public void randomizedTest() {
+        TestMyHashMap.randomizedTest(TestMyHashMapIncrementalResize::incremental);
+    }
+
+    /** Every key is found, updated, iterated and removed while the old table is migrated. */
+    @Test
+    public void testDuringMigration() {
+        // 64 buckets, 48 keys fill it up and the 49th put starts a migration
+        MyHashMap<Integer, Integer> q = new MyHashMap<>(64, 0.75, true);
+        for (int i = 0; i < 49; i++) {
+            q.put(i, i);
+        }
+        for (int i = 0; i < 49; i++) {
+            assertTrue(q.containsKey(i));
+            assertEquals(Integer.valueOf(i), q.get(i));
+        }
+        Set<Integer> keys = new HashSet<>();
+        for (int key : q) {
+            assertTrue(keys.add(key));
+        }
+        assertEquals(49, keys.size());
+        q.put(48, -1);
+        assertEquals(49, q.size());
+        assertEquals(Integer.valueOf(-1), q.get(48));
+        assertNull(q.remove(47, 0));
+        assertEquals(Integer.valueOf(47), q.remove(47, 47));
+        assertEquals(Integer.valueOf(46), q.remove(46));
+        assertEquals(47, q.size());
+    }
+
+    private static <K, V> Map61B<K, V> incremental(int initialSize) {
+        return new MyHashMap<>(initialSize, 0.75, true);
+    }
+}
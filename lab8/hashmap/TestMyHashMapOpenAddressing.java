@@ -0,0 +1,63 @@
+package hashmap;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+
+/** Tests of the open addressing hash map, MyHashMapOpenAddressing. */
+public class TestMyHashMapOpenAddressing {
+
+    @Test
+    public void sanityTests() {
+        TestMyHashMap.sanityTests(MyHashMapOpenAddressing::new);
+    }
+
+    @Test
+    public void functionalityTest() {
+        TestMyHashMap.functionalityTest(MyHashMapOpenAddressing::new);
+    }
+
+    @Test
+    public void randomizedTest() {
+        TestMyHashMap.randomizedTest(MyHashMapOpenAddressing::new);
+    }
+
+    /** Keys with the same hashCode share a probe sequence, removing one shifts the rest. */
+    @Test
+    public void testRemoveWithCollisions() {
+        MyHashMapOpenAddressing<CollidingKey, Integer> q = new MyHashMapOpenAddressing<>(8);
+        for (int i = 0; i < 5; i++) {
+            q.put(new CollidingKey(i, 3), i);
+        }
+        q.put(new CollidingKey(5, 4), 5);
+        assertEquals(Integer.valueOf(2), q.remove(new CollidingKey(2, 3)));
+        assertNull(q.remove(new CollidingKey(2, 3)));
+        assertNull(q.remove(new CollidingKey(1, 3), 100));
+        assertEquals(Integer.valueOf(1), q.remove(new CollidingKey(1, 3), 1));
+        assertEquals(4, q.size());
+        for (int i : new int[]{0, 3, 4}) {
+            assertEquals(Integer.valueOf(i), q.get(new CollidingKey(i, 3)));
+        }
+        assertEquals(Integer.valueOf(5), q.get(new CollidingKey(5, 4)));
+    }
+
+    private static class CollidingKey {
+        private final int id;
+        private final int hash;
+
+        CollidingKey(int id, int hash) {
+            this.id = id;
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof CollidingKey && ((CollidingKey) o).id == id;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
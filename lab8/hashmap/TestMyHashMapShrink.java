@@ -0,0 +1,112 @@
+package hashmap;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/** Tests of MyHashMap shrinking its table upon remove() and trimToSize(). */
+public class TestMyHashMapShrink {
+
+    /** The table shrinks back to initialSize once the entries are removed. */
+    @Test
+    public void testShrinkOnRemove() {
+        for (boolean incremental : new boolean[]{false, true}) {
+            MyHashMap<Integer, Integer> q = new MyHashMap<>(16, 0.75, incremental);
+            for (int i = 0; i < 10000; i++) {
+                q.put(i, i);
+            }
+            assertTrue(q.bucketCount() >= 10000 / 0.75);
+            for (int i = 0; i < 9990; i++) {
+                assertEquals(Integer.valueOf(i), q.remove(i));
+            }
+            assertEquals(10, q.size());
+            assertTrue(q.bucketCount() <= 64);
+            for (int i = 9990; i < 10000; i++) {
+                assertEquals(Integer.valueOf(i), q.get(i));
+            }
+            for (int i = 9990; i < 10000; i++) {
+                q.remove(i);
+            }
+            assertEquals(16, q.bucketCount());
+        }
+    }
+
+    /** A put and a remove at a threshold don't resize the table each time. */
+    @Test
+    public void testNoThrashing() {
+        MyHashMap<Integer, Integer> q = new MyHashMap<>(16);
+        // Grow to 128 buckets, the 49th put resizes at 48 entries
+        for (int i = 0; i < 49; i++) {
+            q.put(i, i);
+        }
+        assertEquals(128, q.bucketCount());
+        for (int n = 0; n < 100; n++) {
+            q.remove(48);
+            q.put(48, 48);
+            assertEquals(128, q.bucketCount());
+        }
+        // Shrink to 64 buckets, then cross back and forth over the shrink threshold
+        while (q.bucketCount() == 128) {
+            q.remove(q.size() - 1);
+        }
+        int size = q.size();
+        assertEquals(64, q.bucketCount());
+        for (int n = 0; n < 100; n++) {
+            q.put(size, size);
+            q.remove(size);
+            assertEquals(64, q.bucketCount());
+        }
+    }
+
+    @Test
+    public void testTrimToSize() {
+        MyHashMap<Integer, Integer> q = new MyHashMap<>(1024, 0.75, 0, false);
+        for (int i = 0; i < 1000; i++) {
+            q.put(i, i);
+        }
+        for (int i = 0; i < 990; i++) {
+            q.remove(i);
+        }
+        // minLoad 0 never shrinks on remove
+        assertEquals(2048, q.bucketCount());
+        q.trimToSize();
+        assertEquals(16, q.bucketCount());
+        for (int i = 990; i < 1000; i++) {
+            assertEquals(Integer.valueOf(i), q.get(i));
+        }
+        q.clear();
+        q.trimToSize();
+        assertEquals(1, q.bucketCount());
+        q.put(1, 1);
+        assertEquals(Integer.valueOf(1), q.get(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMinLoadTooHigh() {
+        new MyHashMap<Integer, Integer>(16, 0.75, 0.5, false);
+    }
+
+    /** Shrinking incrementally, each remove() migrates a few buckets, even the one which resizes. */
+    @Test
+    public void testIncrementalShrink() {
+        MyHashMap<Integer, Integer> q = new MyHashMap<>(16, 0.75, true);
+        int n = 1 << 18;
+        for (int i = 0; i < n; i++) {
+            q.put(i, i);
+        }
+        int shrinks = 0;
+        for (int i = 0; i < n; i++) {
+            int tableSize = q.bucketCount();
+            int pending = q.pendingMigration();
+            assertEquals(Integer.valueOf(i), q.remove(i));
+            if (q.bucketCount() != tableSize) {
+                // The old table was (almost) empty before the resize
+                assertTrue(pending <= 16);
+                shrinks += 1;
+            } else {
+                assertTrue(pending - q.pendingMigration() <= 16);
+            }
+        }
+        assertTrue(shrinks > 10);
+        assertEquals(16, q.bucketCount());
+    }
+}
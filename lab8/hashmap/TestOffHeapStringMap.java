@@ -0,0 +1,145 @@
+package hashmap;
+
+import static org.junit.Assert.*;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/** Tests of the off-heap map, OffHeapStringMap. */
+public class TestOffHeapStringMap {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testPutGetRemove() throws IOException {
+        try (OffHeapStringMap q = new OffHeapStringMap()) {
+            assertNull(q.get("a"));
+            q.put("a", bytes("1"));
+            q.put("b", bytes("22"));
+            q.put("\u00e9t\u00e9", new byte[0]);
+            assertEquals(3, q.size());
+            assertArrayEquals(bytes("1"), q.get("a"));
+            assertArrayEquals(new byte[0], q.get("\u00e9t\u00e9"));
+            // Same length, overwritten in place, and a new length
+            q.put("a", bytes("9"));
+            q.put("b", bytes("333"));
+            assertArrayEquals(bytes("9"), q.get("a"));
+            assertArrayEquals(bytes("333"), q.get("b"));
+            assertEquals(3, q.size());
+            assertNull(q.remove("b", bytes("22")));
+            assertArrayEquals(bytes("333"), q.remove("b", bytes("333")));
+            assertNull(q.remove("b"));
+            assertFalse(q.containsKey("b"));
+            assertEquals(2, q.size());
+            Set<String> keys = new HashSet<>();
+            for (String key : q) {
+                keys.add(key);
+            }
+            assertEquals(Set.of("a", "\u00e9t\u00e9"), keys);
+            q.clear();
+            assertEquals(0, q.size());
+            assertFalse(q.containsKey("a"));
+        }
+    }
+
+    /** Random puts and removes give the same mappings as java.util.HashMap. */
+    @Test
+    public void randomizedTest() throws IOException {
+        Random random = new Random(61);
+        // A small arena is compacted and grown many times
+        try (OffHeapStringMap q = new OffHeapStringMap(2, 64)) {
+            Map<String, String> expected = new HashMap<>();
+            for (int i = 0; i < 50000; i++) {
+                String key = "k" + random.nextInt(2000);
+                if (random.nextInt(3) == 0) {
+                    String value = expected.remove(key);
+                    byte[] removed = q.remove(key);
+                    assertEquals(value, removed == null ? null : new String(removed, StandardCharsets.UTF_8));
+                } else {
+                    String value = "v" + random.nextInt(1 << random.nextInt(20));
+                    expected.put(key, value);
+                    q.put(key, bytes(value));
+                }
+                assertEquals(expected.size(), q.size());
+            }
+            for (int k = 0; k < 2000; k++) {
+                String value = expected.get("k" + k);
+                assertArrayEquals(value == null ? null : bytes(value), q.get("k" + k));
+            }
+            Map<String, String> seen = new HashMap<>();
+            q.forEach((k, v) -> seen.put(k, new String(v, StandardCharsets.UTF_8)));
+            assertEquals(expected, seen);
+        }
+    }
+
+    /** A map on a file is found again after close(), with its updates and removes. */
+    @Test
+    public void testPersistence() throws IOException {
+        File file = new File(folder.getRoot(), "map");
+        try (OffHeapStringMap q = new OffHeapStringMap(file)) {
+            for (int i = 0; i < 10000; i++) {
+                q.put("key" + i, bytes("value" + i));
+            }
+            for (int i = 0; i < 10000; i += 2) {
+                q.remove("key" + i);
+            }
+            q.put("key1", bytes("updated"));
+        }
+        try (OffHeapStringMap q = new OffHeapStringMap(file)) {
+            assertEquals(5000, q.size());
+            assertNull(q.get("key0"));
+            assertArrayEquals(bytes("updated"), q.get("key1"));
+            assertArrayEquals(bytes("value9999"), q.get("key9999"));
+            q.put("new", bytes("1"));
+        }
+        try (OffHeapStringMap q = new OffHeapStringMap(file)) {
+            assertEquals(5001, q.size());
+            assertArrayEquals(bytes("1"), q.get("new"));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testNotAMapFile() throws IOException {
+        File file = folder.newFile("junk");
+        java.nio.file.Files.write(file.toPath(), bytes("not a map at all"));
+        new OffHeapStringMap(file).close();
+    }
+
+    /** Opening a file which is not a map fails without changing it. */
+    @Test
+    public void testNotAMapFileUnchanged() throws IOException {
+        for (String content : new String[]{"short", "not a map, and longer than a header"}) {
+            File file = folder.newFile();
+            java.nio.file.Files.write(file.toPath(), bytes(content));
+            try {
+                new OffHeapStringMap(file).close();
+                fail("opened " + content);
+            } catch (IOException e) {
+                assertArrayEquals(bytes(content), java.nio.file.Files.readAllBytes(file.toPath()));
+            }
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testClosed() throws IOException {
+        OffHeapStringMap q = new OffHeapStringMap();
+        q.put("a", bytes("1"));
+        q.close();
+        q.close();
+        q.get("a");
+    }
+}
@@ -0,0 +1,87 @@
+package hashmap;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/** Tests of the maps with primitive keys, IntIntMap, IntObjectMap and LongObjectMap. */
+public class TestPrimitiveMaps {
+
+    @Test
+    public void testIntIntMap() {
+        IntIntMap q = new IntIntMap();
+        assertFalse(q.containsKey(0));
+        assertEquals(-1, q.get(0, -1));
+        q.put(0, 7);
+        q.put(1, 8);
+        q.put(-1, 9);
+        assertEquals(3, q.size());
+        assertEquals(7, q.get(0, -1));
+        assertEquals(9, q.get(-1, -1));
+        assertTrue(q.remove(0));
+        assertFalse(q.remove(0));
+        assertFalse(q.containsKey(0));
+        assertEquals(2, q.size());
+        q.clear();
+        assertEquals(0, q.size());
+        assertFalse(q.containsKey(1));
+    }
+
+    @Test
+    public void testObjectMapsZeroKey() {
+        IntObjectMap<String> a = new IntObjectMap<>();
+        LongObjectMap<String> b = new LongObjectMap<>();
+        a.put(0, "zero");
+        b.put(0L, "zero");
+        assertEquals("zero", a.get(0));
+        assertEquals("zero", b.get(0L));
+        assertEquals("zero", a.remove(0));
+        assertEquals("zero", b.remove(0L));
+        assertNull(a.get(0));
+        assertNull(b.get(0L));
+        assertEquals(0, a.size());
+        assertEquals(0, b.size());
+    }
+
+    /** Random puts and removes give the same mappings as java.util.HashMap. */
+    @Test
+    public void randomizedTest() {
+        Random random = new Random(61);
+        IntIntMap ii = new IntIntMap(4);
+        IntObjectMap<Integer> io = new IntObjectMap<>(4);
+        LongObjectMap<Integer> lo = new LongObjectMap<>(4);
+        Map<Integer, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 100000; i++) {
+            // Keys with a common stride collide often before mixing
+            int key = (random.nextInt(2000) - 1000) * 64;
+            if (random.nextInt(3) == 0) {
+                Integer value = expected.remove(key);
+                assertEquals(value != null, ii.remove(key));
+                assertEquals(value, io.remove(key));
+                assertEquals(value, lo.remove((long) key << 32));
+            } else {
+                expected.put(key, i);
+                ii.put(key, i);
+                io.put(key, i);
+                lo.put((long) key << 32, i);
+            }
+            assertEquals(expected.size(), ii.size());
+            assertEquals(expected.size(), io.size());
+            assertEquals(expected.size(), lo.size());
+        }
+        for (int k = -1000; k < 1000; k++) {
+            int key = k * 64;
+            Integer value = expected.get(key);
+            assertEquals(value == null ? -1 : value, ii.get(key, -1));
+            assertEquals(value, io.get(key));
+            assertEquals(value, lo.get((long) key << 32));
+        }
+        assertEquals(expected.size(), ii.keys().length);
+        for (int key : ii.keys()) {
+            assertTrue(expected.containsKey(key));
+        }
+    }
+}
@@ -145,14 +145,49 @@ public class ULLMap<K, V>  implements Map61B<K, V> {
     
     }
 
+    /**
+     * Removes the key-value pair of KEY from this dictionary, and returns its
+     * value, or null if there was no such pair.
+     */
     @Override
     public V remove(K key) {
-        throw new UnsupportedOperationException();
+        Entry prev = null;
+        for (Entry e = list; e != null; prev = e, e = e.next) {
+            if (key != null && key.equals(e.key)) {
+                unlink(prev, e);
+                return e.val;
+            }
+        }
+        return null;
     }
 
+    /**
+     * Removes the key-value pair of KEY only if its value is VALUE, and returns
+     * the value, or null if there was no such pair.
+     */
     @Override
     public V remove(K key, V value) {
-        throw new UnsupportedOperationException();
+        Entry prev = null;
+        for (Entry e = list; e != null; prev = e, e = e.next) {
+            if (key != null && key.equals(e.key)) {
+                if (e.val == null || !e.val.equals(value)) {
+                    return null;
+                }
+                unlink(prev, e);
+                return e.val;
+            }
+        }
+        return null;
+    }
+
+    /** Removes E, which follows PREV in the list, or is first if PREV is null. */
+    private void unlink(Entry prev, Entry e) {
+        if (prev == null) {
+            list = e.next;
+        } else {
+            prev.next = e.next;
+        }
+        size = size - 1;
     }
 
     @Override
@@ -0,0 +1,85 @@
+package speed;
+
+import hashmap.Map61B;
+import hashmap.MyHashMap;
+
+/** Times a MyHashMap under a hash collision attack: N distinct Strings with the
+ *  same hashCode, built from the blocks "Aa" and "BB", which hash alike.
+ *  String keys are Comparable, so their bucket is treeified. The same Strings
+ *  wrapped in a key which is not Comparable stay in a list, as a baseline.
+ *  N is rounded down to a power of two, the first argument, 16384 by default.
+ */
+public class CollisionAttackTest {
+
+    public static void main(String[] args) {
+        int n = Integer.highestOneBit(args.length > 0 ? Integer.parseInt(args[0]) : 16384);
+        String[] strings = collidingStrings(n);
+        PlainKey[] plain = new PlainKey[n];
+        for (int i = 0; i < n; i++) {
+            plain[i] = new PlainKey(strings[i]);
+        }
+        System.out.println("\n Put and get of " + n + " keys with the same hashCode\n");
+
+        // Warm up, then measure
+        for (int i = 0; i < 5; i++) {
+            timeAttack(null, new MyHashMap<>(), strings);
+        }
+        timeAttack("String keys (treeified)", new MyHashMap<>(), strings);
+        timeAttack("Keys without compareTo", new MyHashMap<>(), plain);
+    }
+
+    /** Puts and gets keys in map, and prints the times unless name is null. */
+    private static <K> void timeAttack(String name, Map61B<K, Integer> map, K[] keys) {
+        long start = System.nanoTime();
+        for (int i = 0; i < keys.length; i++) {
+            map.put(keys[i], i);
+        }
+        long putNanos = System.nanoTime() - start;
+        long maxGet = 0;
+        start = System.nanoTime();
+        for (K key : keys) {
+            long t = System.nanoTime();
+            map.get(key);
+            maxGet = Math.max(maxGet, System.nanoTime() - t);
+        }
+        long getNanos = System.nanoTime() - start;
+        if (name == null) {
+            return;
+        }
+        System.out.printf("%-25s put: %8.2f ms, get: %8.2f ms, slowest get: %8.1f us%n",
+                name, putNanos / 1e6, getNanos / 1e6, maxGet / 1e3);
+    }
+
+    /** Returns the n Strings made of log2(n) blocks of "Aa" or "BB". */
+    private static String[] collidingStrings(int n) {
+        int blocks = Integer.numberOfTrailingZeros(n);
+        String[] res = new String[n];
+        for (int i = 0; i < n; i++) {
+            StringBuilder sb = new StringBuilder();
+            for (int b = 0; b < blocks; b++) {
+                sb.append((i >>> b & 1) == 0 ? "Aa" : "BB");
+            }
+            res[i] = sb.toString();
+        }
+        return res;
+    }
+
+    /** Wraps a String, without implementing Comparable. */
+    private static class PlainKey {
+        private final String s;
+
+        PlainKey(String s) {
+            this.s = s;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof PlainKey && ((PlainKey) o).s.equals(s);
+        }
+
+        @Override
+        public int hashCode() {
+            return s.hashCode();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package speed;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import hashmap.Map61B;
+import hashmap.MyConcurrentHashMap;
+import hashmap.MyHashMap;
+
+/** Measures the throughput of MyConcurrentHashMap and of a MyHashMap behind one
+ *  lock, with 1, 2, 4, ... threads up to twice the number of processors. Each
+ *  thread runs OPS operations on random keys, 90% get() and 10% put().
+ *  The first argument is OPS, 1000000 by default.
+ */
+public class ConcurrentThroughputTest {
+
+    private static final int KEYS = 100000;
+
+    public static void main(String[] args) throws InterruptedException {
+        int ops = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        int maxThreads = 2 * Runtime.getRuntime().availableProcessors();
+        Integer[] keys = new Integer[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            keys[i] = i;
+        }
+        System.out.println("\n Millions of operations per second, " + ops
+                + " operations per thread, 90% get and 10% put\n");
+        System.out.printf("%8s %20s %20s%n", "threads", "synchronized", "concurrent");
+
+        // Warm up both maps
+        run(new SynchronizedMap61B<>(new MyHashMap<>()), keys, 2, ops);
+        run(new MyConcurrentHashMap<>(), keys, 2, ops);
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            double locked = run(new SynchronizedMap61B<>(new MyHashMap<>()), keys, threads, ops);
+            double concurrent = run(new MyConcurrentHashMap<>(), keys, threads, ops);
+            System.out.printf("%8d %20.2f %20.2f%n", threads, locked, concurrent);
+        }
+    }
+
+    /** Returns millions of operations per second of threads running ops operations each. */
+    private static double run(Map61B<Integer, Integer> map, Integer[] keys, int threads, int ops)
+            throws InterruptedException {
+        for (int i = 0; i < keys.length; i += 2) {
+            map.put(keys[i], i);
+        }
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Random random = new Random(t);
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < ops; i++) {
+                    Integer key = keys[random.nextInt(keys.length)];
+                    if (random.nextInt(10) == 0) {
+                        map.put(key, i);
+                    } else {
+                        map.get(key);
+                    }
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return (double) threads * ops / ((System.nanoTime() - begin) / 1e3);
+    }
+
+    /** A Map61B which runs every method of map holding the lock of this. */
+    private static class SynchronizedMap61B<K, V> implements Map61B<K, V> {
+        private final Map61B<K, V> map;
+
+        SynchronizedMap61B(Map61B<K, V> map) {
+            this.map = map;
+        }
+
+        public synchronized void clear() {
+            map.clear();
+        }
+
+        public synchronized boolean containsKey(K key) {
+            return map.containsKey(key);
+        }
+
+        public synchronized V get(K key) {
+            return map.get(key);
+        }
+
+        public synchronized int size() {
+            return map.size();
+        }
+
+        public synchronized void put(K key, V value) {
+            map.put(key, value);
+        }
+
+        public synchronized Set<K> keySet() {
+            return map.keySet();
+        }
+
+        public synchronized V remove(K key) {
+            return map.remove(key);
+        }
+
+        public synchronized V remove(K key, V value) {
+            return map.remove(key, value);
+        }
+
+        public Iterator<K> iterator() {
+            return keySet().iterator();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package speed;
+
+import java.io.IOException;
+import java.lang.ref.Reference;
+import java.nio.charset.StandardCharsets;
+
+import hashmap.MyHashMap;
+import hashmap.OffHeapStringMap;
+
+/** Compares the heap used by MyHashMap and OffHeapStringMap, when they map N
+ *  short String keys to 8 byte values. Heap use is printed as the maps grow,
+ *  the heap used by OffHeapStringMap should stay flat. N is the first argument,
+ *  10000000 by default, which needs a large heap for MyHashMap,
+ *  e.g. java -Xmx4g speed.OffHeapMapMemoryTest.
+ */
+public class OffHeapMapMemoryTest {
+
+    public static void main(String[] args) throws IOException {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 10000000;
+        System.out.println("\n Heap used by maps of up to " + n + " String keys\n");
+
+        try {
+            long before = usedHeap();
+            MyHashMap<String, byte[]> m = new MyHashMap<>();
+            for (int i = 1; i <= n; i++) {
+                m.put(key(i), value(i));
+                if (i % (n / 4) == 0) {
+                    print("MyHashMap<String, byte[]>", i, usedHeap() - before, 0);
+                }
+            }
+            Reference.reachabilityFence(m);
+        } catch (OutOfMemoryError e) {
+            System.out.printf("%-30s out of memory, run with a larger -Xmx%n", "MyHashMap<String, byte[]>");
+        }
+
+        long before = usedHeap();
+        try (OffHeapStringMap m = new OffHeapStringMap()) {
+            for (int i = 1; i <= n; i++) {
+                m.put(key(i), value(i));
+                if (i % (n / 4) == 0) {
+                    print("OffHeapStringMap", i, usedHeap() - before, m.offHeapBytes());
+                }
+            }
+        }
+    }
+
+    private static String key(int i) {
+        return "user:" + i;
+    }
+
+    private static byte[] value(int i) {
+        return Long.toString(i * 31L + 7).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void print(String name, int n, long heap, long offHeap) {
+        System.out.printf("%-30s %10d entries %10.1f MB heap %10.1f MB off heap%n",
+                name, n, heap / 1e6, offHeap / 1e6);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,81 @@
+package speed;
+
+import java.lang.ref.Reference;
+import java.util.function.IntFunction;
+
+import hashmap.IntIntMap;
+import hashmap.IntObjectMap;
+import hashmap.LongObjectMap;
+import hashmap.MyHashMap;
+
+/** Compares the heap used by MyHashMap and the maps with primitive keys,
+ *  when they hold N entries. N is the first argument, 10000000 by default,
+ *  which needs a large heap, e.g. java -Xmx4g speed.PrimitiveMapMemoryTest.
+ */
+public class PrimitiveMapMemoryTest {
+
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 10000000;
+        System.out.println("\n Heap used by maps of " + n + " entries\n");
+        Object shared = new Object();
+
+        measure("MyHashMap<Integer, Integer>", n, N -> {
+            MyHashMap<Integer, Integer> m = new MyHashMap<>();
+            for (int i = 0; i < N; i++) {
+                m.put(i, i);
+            }
+            return m;
+        });
+        measure("IntIntMap", n, N -> {
+            IntIntMap m = new IntIntMap();
+            for (int i = 0; i < N; i++) {
+                m.put(i, i);
+            }
+            return m;
+        });
+        measure("IntObjectMap<Object>", n, N -> {
+            IntObjectMap<Object> m = new IntObjectMap<>();
+            for (int i = 0; i < N; i++) {
+                m.put(i, shared);
+            }
+            return m;
+        });
+        measure("MyHashMap<Long, Object>", n, N -> {
+            MyHashMap<Long, Object> m = new MyHashMap<>();
+            for (long i = 0; i < N; i++) {
+                m.put(i, shared);
+            }
+            return m;
+        });
+        measure("LongObjectMap<Object>", n, N -> {
+            LongObjectMap<Object> m = new LongObjectMap<>();
+            for (long i = 0; i < N; i++) {
+                m.put(i, shared);
+            }
+            return m;
+        });
+    }
+
+    /** Prints the heap retained by the map built by BUILD, and the bytes per entry. */
+    private static void measure(String name, int n, IntFunction<Object> build) {
+        try {
+            long before = usedHeap();
+            Object map = build.apply(n);
+            long after = usedHeap();
+            System.out.printf("%-30s %10.1f MB %8.1f bytes/entry%n", name,
+                    (after - before) / 1e6, (double) (after - before) / n);
+            // Keep the map reachable until it has been measured
+            Reference.reachabilityFence(map);
+        } catch (OutOfMemoryError e) {
+            System.out.printf("%-30s out of memory, run with a larger -Xmx%n", name);
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
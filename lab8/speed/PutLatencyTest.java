@@ -0,0 +1,91 @@
+package speed;
+
+import java.util.Random;
+
+import hashmap.Map61B;
+import hashmap.MyHashMap;
+
+/** Prints a histogram of the time of each put() into a MyHashMap, resizing all
+ *  at once and incrementally. N is the first argument, 5000000 by default.
+ *  GC pauses also land in some puts, give it a heap large enough to need few
+ *  collections, e.g. java -Xms4g -Xmx4g speed.PutLatencyTest 5000000.
+ */
+public class PutLatencyTest {
+
+    // Bucket i of a histogram counts the puts which took [2^i, 2^(i+1)) ns
+    private static final int HISTOGRAM_BUCKETS = 40;
+
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 5000000;
+        Integer[] keys = new Integer[n];
+        Random random = new Random(61);
+        for (int i = 0; i < n; i++) {
+            keys[i] = random.nextInt();
+        }
+        System.out.println("\n Time of each of " + n + " puts of random Integer keys\n");
+
+        // Warm up both modes, then measure them
+        timePuts(new MyHashMap<>(), keys);
+        timePuts(new MyHashMap<>(16, 0.75, true), keys);
+        printHistogram("MyHashMap", timePuts(new MyHashMap<>(), keys));
+        printHistogram("MyHashMap, incremental resize",
+                timePuts(new MyHashMap<>(16, 0.75, true), keys));
+    }
+
+    /** Returns the histogram of the time of putting each key into map. */
+    private static long[] timePuts(Map61B<Integer, Integer> map, Integer[] keys) {
+        long[] histogram = new long[HISTOGRAM_BUCKETS];
+        for (Integer key : keys) {
+            long start = System.nanoTime();
+            map.put(key, key);
+            long nanos = System.nanoTime() - start;
+            histogram[63 - Long.numberOfLeadingZeros(Math.max(nanos, 1))] += 1;
+        }
+        return histogram;
+    }
+
+    private static void printHistogram(String name, long[] histogram) {
+        long total = 0;
+        int max = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            total += histogram[i];
+            if (histogram[i] > 0) {
+                max = i;
+            }
+        }
+        System.out.println(name + ":");
+        System.out.printf("  p50 < %s, p99 < %s, p99.9 < %s, max < %s%n",
+                format(percentile(histogram, total, 0.5)),
+                format(percentile(histogram, total, 0.99)),
+                format(percentile(histogram, total, 0.999)),
+                format(2L << max));
+        for (int i = 0; i <= max; i++) {
+            if (histogram[i] > 0) {
+                System.out.printf("  %10s - %-10s %10d%n",
+                        format(1L << i), format(2L << i), histogram[i]);
+            }
+        }
+        System.out.println();
+    }
+
+    // Upper bound of the histogram bucket holding the p-th fraction of the puts
+    private static long percentile(long[] histogram, long total, double p) {
+        long count = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            count += histogram[i];
+            if (count >= p * total) {
+                return 2L << i;
+            }
+        }
+        return 2L << (histogram.length - 1);
+    }
+
+    private static String format(long nanos) {
+        if (nanos >= 1000000) {
+            return nanos / 1000000 + " ms";
+        } else if (nanos >= 1000) {
+            return nanos / 1000 + " us";
+        }
+        return nanos + " ns";
+    }
+}
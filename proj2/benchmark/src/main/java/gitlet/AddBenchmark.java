@@ -0,0 +1,23 @@
+package gitlet;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Setup;
+
+/**
+ * Benchmark of staging a changed file.
+ */
+public class AddBenchmark extends BenchmarkRepo {
+
+    private String path;
+
+    @Setup(Level.Invocation)
+    public void changeFile() {
+        path = generator.writeRandomChange(repository());
+    }
+
+    @Benchmark
+    public void add() {
+        repository().addCmd(path);
+    }
+}
@@ -0,0 +1,134 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The synthetic repository a benchmark runs on, generated once per trial.
+ * <p>
+ * With the "warm" cache, every invocation uses the same Repository instance, so the
+ * object database (and the in-memory index of a pack file) stays open. With the "cold"
+ * cache, every invocation opens the repository again, as a gitlet process does. The
+ * operating system's file cache is not dropped in either case.
+ * <p>
+ * With the "inmemory" object database, the objects of the generated repository are
+ * copied into an InMemoryObjectDatabase, which every invocation uses instead of the
+ * loose files, to measure the algorithms without object I/O. Refs, the index and the
+ * working tree are still on disk.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public abstract class BenchmarkRepo {
+
+    @Param({"1000"})
+    public int fileCount;
+
+    @Param({"3"})
+    public int depth;
+
+    @Param({"2048"})
+    public int medianFileSize;
+
+    @Param({"100"})
+    public int commitCount;
+
+    @Param({"0.1"})
+    public double mergeDensity;
+
+    @Param({"loose", "pack", "inmemory"})
+    public String objectDatabase;
+
+    @Param({"cold", "warm"})
+    public String cache;
+
+    @Param({"61"})
+    public long seed;
+
+    protected RepoGenerator generator;
+
+    private File dir;
+
+    private Repository warmRepository;
+
+    // The repository last opened with the cold cache, closed when the next one is opened
+    private Repository coldRepository;
+
+    private InMemoryObjectDatabase memoryDatabase;
+
+    private PrintStream stdout;
+
+    @Setup(Level.Trial)
+    public void generateRepo() throws IOException {
+        // Commands print their results, keep them out of the benchmark output.
+        stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        dir = Files.createTempDirectory("gitlet-benchmark").toFile();
+        generator = new RepoGenerator(seed)
+                .fileCount(fileCount)
+                .depth(depth)
+                .fileSize(medianFileSize, 1.0)
+                .commitCount(commitCount)
+                .mergeDensity(mergeDensity)
+                .pack("pack".equals(objectDatabase));
+        warmRepository = generator.generate(dir);
+        if ("inmemory".equals(objectDatabase)) {
+            memoryDatabase = new InMemoryObjectDatabase();
+            ObjectDatabase looseDatabase = warmRepository.objectDatabase();
+            for (int i = 0; i < 256; i++) {
+                for (String id : looseDatabase.idsWithPrefix(String.format("%02x", i))) {
+                    memoryDatabase.write(id, looseDatabase.read(id));
+                }
+            }
+            warmRepository.setObjectDatabase(memoryDatabase);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteRepo() {
+        warmRepository.close();
+        if (coldRepository != null) {
+            coldRepository.close();
+        }
+        Repository.deleteFileOrDir(dir);
+        System.setOut(stdout);
+    }
+
+    /**
+     * Return the repository for an invocation, opened again if the cache is cold.
+     */
+    protected Repository repository() {
+        if ("cold".equals(cache)) {
+            if (coldRepository != null) {
+                coldRepository.close();
+            }
+            coldRepository = new Repository(dir);
+            if (memoryDatabase != null) {
+                coldRepository.setObjectDatabase(memoryDatabase);
+            }
+            return coldRepository;
+        }
+        return warmRepository;
+    }
+}
@@ -0,0 +1,19 @@
+package gitlet;
+
+import org.openjdk.jmh.annotations.Benchmark;
+
+/**
+ * Benchmark of switching between the two branches, each invocation checks out the
+ * branch that is not current.
+ */
+public class CheckoutBenchmark extends BenchmarkRepo {
+
+    private boolean onSide = false;
+
+    @Benchmark
+    public void checkout() {
+        onSide = !onSide;
+        repository().checkoutBranchCmd(onSide
+                ? RepoGenerator.SIDE_BRANCH_NAME : Repository.DEFAULT_BRANCH_NAME);
+    }
+}
@@ -0,0 +1,121 @@
+package gitlet;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of decoding and encoding objects with Codec against Java serialization,
+ * on a commit, a tree and an index of the given number of files.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CodecBenchmark {
+
+    @Param({"64", "1000"})
+    public int fileCount;
+
+    private Commit commit;
+
+    private Tree tree;
+
+    private Index index;
+
+    private byte[] commitData;
+
+    private byte[] commitJavaData;
+
+    private byte[] treeData;
+
+    private byte[] treeJavaData;
+
+    private byte[] indexData;
+
+    private byte[] indexJavaData;
+
+    @Setup(Level.Trial)
+    public void createObjects() {
+        List<String> parentIds = new ArrayList<>();
+        parentIds.add(Utils.sha1("parent 1"));
+        parentIds.add(Utils.sha1("parent 2"));
+        commit = new Commit(new Date(), Utils.sha1("tree"), "Merged side into master.",
+                parentIds);
+
+        Map<String, Tree.Entry> entryMap = new HashMap<>();
+        index = new Index();
+        for (int i = 0; i < fileCount; i++) {
+            String name = "f" + i + ".txt";
+            String id = Utils.sha1(name);
+            entryMap.put(name, new Tree.Entry(name, Tree.Entry.BLOB_TYPE, id));
+            index.addLeaf(List.of("d" + i % 8, name), id);
+        }
+        tree = new Tree(entryMap);
+
+        commitData = Codec.encode(commit);
+        commitJavaData = Utils.serialize(commit);
+        treeData = Codec.encode(tree);
+        treeJavaData = Utils.serialize(tree);
+        indexData = Codec.encode(index);
+        indexJavaData = Utils.serialize(index);
+    }
+
+    @Benchmark
+    public Commit decodeCommit() {
+        return Codec.decode(commitData, Commit.class);
+    }
+
+    @Benchmark
+    public Commit deserializeCommit() {
+        return Utils.deserialize(commitJavaData, Commit.class);
+    }
+
+    @Benchmark
+    public Tree decodeTree() {
+        return Codec.decode(treeData, Tree.class);
+    }
+
+    @Benchmark
+    public Tree deserializeTree() {
+        return Utils.deserialize(treeJavaData, Tree.class);
+    }
+
+    @Benchmark
+    public Index decodeIndex() {
+        return Codec.decode(indexData, Index.class);
+    }
+
+    @Benchmark
+    public Index deserializeIndex() {
+        return Utils.deserialize(indexJavaData, Index.class);
+    }
+
+    @Benchmark
+    public byte[] encodeTree() {
+        return Codec.encode(tree);
+    }
+
+    @Benchmark
+    public byte[] serializeTree() {
+        return Utils.serialize(tree);
+    }
+}
@@ -0,0 +1,21 @@
+package gitlet;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Setup;
+
+/**
+ * Benchmark of committing a staged change.
+ */
+public class CommitBenchmark extends BenchmarkRepo {
+
+    @Setup(Level.Invocation)
+    public void stageChange() {
+        generator.changeRandomFile(repository());
+    }
+
+    @Benchmark
+    public void commit() {
+        repository().commitCmd("benchmark commit");
+    }
+}
@@ -0,0 +1,33 @@
+package gitlet;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Setup;
+
+/**
+ * Benchmark of merging side into master, master is reset to its generated commit
+ * before each invocation so every invocation does the same merge.
+ */
+public class MergeBenchmark extends BenchmarkRepo {
+
+    private String masterCommitId;
+
+    @Setup(Level.Iteration)
+    public void readMaster() {
+        masterCommitId = repository().readBranch(Repository.DEFAULT_BRANCH_NAME).getCommitId();
+    }
+
+    @Setup(Level.Invocation)
+    public void resetMaster() {
+        repository().resetCmd(masterCommitId);
+    }
+
+    @Benchmark
+    public void merge() {
+        try {
+            repository().mergeCmd(RepoGenerator.SIDE_BRANCH_NAME);
+        } catch (GitletException e) {
+            // A merge conflict, the merge commit is still made.
+        }
+    }
+}
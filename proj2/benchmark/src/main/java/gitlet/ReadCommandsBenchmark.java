@@ -0,0 +1,42 @@
+package gitlet;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Setup;
+
+/**
+ * Benchmarks of the commands that only read the repository.
+ */
+public class ReadCommandsBenchmark extends BenchmarkRepo {
+
+    private String masterCommitId;
+
+    private String sideCommitId;
+
+    @Setup(Level.Iteration)
+    public void readBranches() {
+        Repository repository = repository();
+        masterCommitId = repository.readBranch(Repository.DEFAULT_BRANCH_NAME).getCommitId();
+        sideCommitId = repository.readBranch(RepoGenerator.SIDE_BRANCH_NAME).getCommitId();
+    }
+
+    @Benchmark
+    public void status() {
+        repository().statusCmd();
+    }
+
+    @Benchmark
+    public void log() {
+        repository().logCmd();
+    }
+
+    @Benchmark
+    public void find() {
+        repository().findCmd(RepoGenerator.INITIAL_COMMIT_MESSAGE);
+    }
+
+    @Benchmark
+    public Commit lookupSplitPointCommit() {
+        return repository().lookupSplitPointCommit(masterCommitId, sideCommitId);
+    }
+}
@@ -0,0 +1,212 @@
+package gitlet;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static gitlet.Utils.*;
+
+/**
+ * Generates a synthetic gitlet repository, the same seed always generates the same
+ * files and history.
+ * <p>
+ * Files are spread over a directory tree of the given depth, and their sizes follow a
+ * log-normal distribution around the median size, so most files are small and a few
+ * are large (files of at least 1 MiB become chunked blobs). The history is made on
+ * two branches, master and side: each commit changes a few lines of a few files on
+ * one of them, and after a commit on side, side is merged into master with the given
+ * probability (merge density).
+ */
+class RepoGenerator {
+
+    static final String SIDE_BRANCH_NAME = "side";
+
+    static final String INITIAL_COMMIT_MESSAGE = "initial files";
+
+    private static final int DIRS_PER_LEVEL = 4;
+
+    private static final int LINE_LENGTH = 64;
+
+    private final Random random;
+
+    private int fileCount = 1000;
+
+    private int depth = 3;
+
+    private int medianFileSize = 2048;
+
+    private double fileSizeSigma = 1.0;
+
+    private int commitCount = 100;
+
+    private int filesPerCommit = 3;
+
+    private double mergeDensity = 0.1;
+
+    private boolean pack = false;
+
+    private final List<String> paths = new ArrayList<>();
+
+    RepoGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    RepoGenerator fileCount(int fileCount) {
+        this.fileCount = fileCount;
+        return this;
+    }
+
+    RepoGenerator depth(int depth) {
+        this.depth = depth;
+        return this;
+    }
+
+    /**
+     * Set the median file size in bytes, and the sigma of the log-normal distribution
+     * of file sizes (0 for files of the same size).
+     */
+    RepoGenerator fileSize(int median, double sigma) {
+        this.medianFileSize = median;
+        this.fileSizeSigma = sigma;
+        return this;
+    }
+
+    RepoGenerator commitCount(int commitCount) {
+        this.commitCount = commitCount;
+        return this;
+    }
+
+    RepoGenerator filesPerCommit(int filesPerCommit) {
+        this.filesPerCommit = filesPerCommit;
+        return this;
+    }
+
+    RepoGenerator mergeDensity(double mergeDensity) {
+        this.mergeDensity = mergeDensity;
+        return this;
+    }
+
+    RepoGenerator pack(boolean pack) {
+        this.pack = pack;
+        return this;
+    }
+
+    /**
+     * Generate the repository in dir, which must not exist or be empty. When it returns,
+     * master is checked out, and master and side have both diverged since their last
+     * merge.
+     */
+    Repository generate(File dir) {
+        dir.mkdirs();
+        Repository repository = new Repository(dir);
+        repository.initCmd(pack);
+
+        for (int i = 0; i < fileCount; i++) {
+            String path = randomDir() + "f" + i + ".txt";
+            paths.add(path);
+            writeFile(repository, path, randomContent(randomFileSize()));
+            repository.addCmd(path);
+        }
+        repository.commitCmd(INITIAL_COMMIT_MESSAGE);
+        repository.branchCmd(SIDE_BRANCH_NAME);
+
+        String currentBranch = Repository.DEFAULT_BRANCH_NAME;
+        for (int i = 1; i < commitCount - 1; i++) {
+            String branch = random.nextBoolean()
+                    ? Repository.DEFAULT_BRANCH_NAME : SIDE_BRANCH_NAME;
+            currentBranch = switchBranch(repository, currentBranch, branch);
+            commitChanges(repository, "commit " + i);
+            if (currentBranch.equals(SIDE_BRANCH_NAME) && random.nextDouble() < mergeDensity) {
+                currentBranch = switchBranch(repository, currentBranch,
+                        Repository.DEFAULT_BRANCH_NAME);
+                try {
+                    repository.mergeCmd(SIDE_BRANCH_NAME);
+                } catch (GitletException e) {
+                    // A merge conflict, the merge commit is still made.
+                }
+            }
+        }
+        currentBranch = switchBranch(repository, currentBranch, SIDE_BRANCH_NAME);
+        commitChanges(repository, "commit on side");
+        switchBranch(repository, currentBranch, Repository.DEFAULT_BRANCH_NAME);
+        commitChanges(repository, "commit on master");
+        return repository;
+    }
+
+    /**
+     * Change a line of a random file of the working tree and stage it, return its path.
+     */
+    String changeRandomFile(Repository repository) {
+        String path = writeRandomChange(repository);
+        repository.addCmd(path);
+        return path;
+    }
+
+    /**
+     * Change a line of a random file of the working tree, return its path.
+     */
+    String writeRandomChange(Repository repository) {
+        String path = paths.get(random.nextInt(paths.size()));
+        File file = repository.pathToFile(path);
+        List<String> lines = new ArrayList<>(
+                Arrays.asList(readContentsAsString(file).split("\n")));
+        String line = randomLine(LINE_LENGTH);
+        lines.set(random.nextInt(lines.size()), line.substring(0, line.length() - 1));
+        writeContents(file, String.join("\n", lines) + "\n");
+        return path;
+    }
+
+    private void commitChanges(Repository repository, String message) {
+        for (int i = 0; i < filesPerCommit; i++) {
+            changeRandomFile(repository);
+        }
+        repository.commitCmd(message);
+    }
+
+    private static String switchBranch(Repository repository, String from, String to) {
+        if (!from.equals(to)) {
+            repository.checkoutBranchCmd(to);
+        }
+        return to;
+    }
+
+    private String randomDir() {
+        StringBuilder sb = new StringBuilder();
+        int level = random.nextInt(depth + 1);
+        for (int i = 0; i < level; i++) {
+            sb.append("d").append(random.nextInt(DIRS_PER_LEVEL)).append("/");
+        }
+        return sb.toString();
+    }
+
+    private int randomFileSize() {
+        double size = medianFileSize * Math.exp(fileSizeSigma * random.nextGaussian());
+        return (int) Math.max(2, Math.min(size, 64.0 * medianFileSize));
+    }
+
+    private String randomContent(int size) {
+        StringBuilder sb = new StringBuilder(size + LINE_LENGTH);
+        while (sb.length() < size) {
+            sb.append(randomLine(Math.min(LINE_LENGTH, size - sb.length())));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Return a line of random lowercase words, length bytes long including the newline.
+     */
+    private String randomLine(int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length - 1; i++) {
+            chars[i] = random.nextInt(6) == 0 ? ' ' : (char) ('a' + random.nextInt(26));
+        }
+        chars[length - 1] = '\n';
+        return new String(chars);
+    }
+
+    private static void writeFile(Repository repository, String path, String content) {
+        Repository.writeFile(repository.pathToFile(path), content);
+    }
+}
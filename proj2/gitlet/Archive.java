@@ -0,0 +1,175 @@
+package gitlet;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static gitlet.Utils.*;
+
+/**
+ * Writes the files of a commit's tree into a tar or zip archive.
+ * <p>
+ * The trees are walked directly and each blob is streamed into the archive, the
+ * working directory and the index are never touched. A chunked blob is written one
+ * chunk at a time, so memory use does not depend on the size of the files.
+ */
+class Archive {
+
+    enum Format {
+        TAR, ZIP
+    }
+
+    private static final int BLOCK_SIZE = 512;
+
+    /* The largest size of a file in a ustar archive, 11 octal digits. */
+    private static final long MAX_TAR_SIZE = 077777777777L;
+
+    private final Repository repository;
+
+    private final OutputStream out;
+
+    private final long mtime;
+
+    private Archive(Repository repository, OutputStream out, long mtime) {
+        this.repository = repository;
+        this.out = out;
+        this.mtime = mtime;
+    }
+
+    /**
+     * Write the files of the commit to out in the given format.
+     */
+    static void write(Repository repository, Commit commit, Format format, OutputStream out)
+            throws IOException {
+        long mtime = commit.getDate().getTime();
+        if (format == Format.ZIP) {
+            try (ZipOutputStream zip = new ZipOutputStream(out)) {
+                new Archive(repository, zip, mtime).writeZip(commit.getTreeId(), "", zip);
+            }
+        } else {
+            Archive archive = new Archive(repository, out, mtime);
+            archive.writeTar(commit.getTreeId(), "");
+            // The end of a tar archive is marked by two zero blocks.
+            out.write(new byte[2 * BLOCK_SIZE]);
+            out.flush();
+        }
+    }
+
+    private void writeTar(String treeId, String prefix) throws IOException {
+        for (Tree.Entry entry : sortedEntries(treeId)) {
+            String path = prefix + entry.name;
+            if (entry.isTree()) {
+                writeTar(entry.id, path + "/");
+                continue;
+            }
+            Blob blob = repository.lookupObj(entry.id, Blob.class);
+            byte[] content = blob.isChunked() ? null
+                    : blob.getContent().getBytes(StandardCharsets.UTF_8);
+            long size = blob.isChunked() ? blob.getSize() : content.length;
+            out.write(tarHeader(path, size));
+            writeBlob(blob, content);
+            int padding = (int) ((BLOCK_SIZE - size % BLOCK_SIZE) % BLOCK_SIZE);
+            out.write(new byte[padding]);
+        }
+    }
+
+    private void writeZip(String treeId, String prefix, ZipOutputStream zip) throws IOException {
+        for (Tree.Entry entry : sortedEntries(treeId)) {
+            String path = prefix + entry.name;
+            if (entry.isTree()) {
+                writeZip(entry.id, path + "/", zip);
+                continue;
+            }
+            Blob blob = repository.lookupObj(entry.id, Blob.class);
+            ZipEntry zipEntry = new ZipEntry(path);
+            zipEntry.setTime(mtime);
+            zip.putNextEntry(zipEntry);
+            writeBlob(blob, blob.isChunked() ? null
+                    : blob.getContent().getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+        }
+    }
+
+    private void writeBlob(Blob blob, byte[] content) throws IOException {
+        if (!blob.isChunked()) {
+            out.write(content);
+            return;
+        }
+        for (String chunkId : blob.getChunkIds()) {
+            out.write(repository.lookupObj(chunkId, Chunk.class).getContent());
+        }
+    }
+
+    private List<Tree.Entry> sortedEntries(String treeId) {
+        Tree tree = repository.lookupObj(treeId, Tree.class);
+        List<Tree.Entry> entries = new ArrayList<>(tree.getEntryMap().values());
+        entries.sort((e1, e2) -> e1.name.compareTo(e2.name));
+        return entries;
+    }
+
+    /**
+     * Return the ustar header block of a regular file. A path longer than the
+     * 100 bytes of the name field is split at a slash into the prefix field.
+     */
+    private byte[] tarHeader(String path, long size) {
+        if (size > MAX_TAR_SIZE) {
+            throw error("File too large for a tar archive: %s", path);
+        }
+        byte[] name = path.getBytes(StandardCharsets.UTF_8);
+        byte[] prefix = new byte[0];
+        if (name.length > 100) {
+            int split = path.lastIndexOf('/');
+            while (split > 0
+                    && (path.substring(0, split).getBytes(StandardCharsets.UTF_8).length > 155
+                    || path.substring(split + 1).getBytes(StandardCharsets.UTF_8).length > 100)) {
+                split = path.lastIndexOf('/', split - 1);
+            }
+            if (split <= 0) {
+                throw error("Path too long for a tar archive: %s", path);
+            }
+            prefix = path.substring(0, split).getBytes(StandardCharsets.UTF_8);
+            name = path.substring(split + 1).getBytes(StandardCharsets.UTF_8);
+        }
+
+        byte[] header = new byte[BLOCK_SIZE];
+        System.arraycopy(name, 0, header, 0, name.length);
+        putOctal(header, 100, 8, 0644);
+        putOctal(header, 108, 8, 0);
+        putOctal(header, 116, 8, 0);
+        putOctal(header, 124, 12, size);
+        putOctal(header, 136, 12, mtime / 1000);
+        header[156] = '0';
+        putAscii(header, 257, "ustar\0");
+        putAscii(header, 263, "00");
+        System.arraycopy(prefix, 0, header, 345, prefix.length);
+
+        // The checksum is computed with the checksum field filled with spaces.
+        putAscii(header, 148, "        ");
+        long checksum = 0;
+        for (byte b : header) {
+            checksum += b & 0xff;
+        }
+        putOctal(header, 148, 7, checksum);
+        header[155] = ' ';
+        return header;
+    }
+
+    /**
+     * Write value as a zero padded octal number ending with NUL into the field.
+     */
+    private static void putOctal(byte[] header, int offset, int length, long value) {
+        String octal = Long.toOctalString(value);
+        String padded = "0".repeat(length - 1 - octal.length()) + octal;
+        putAscii(header, offset, padded);
+        header[offset + length - 1] = 0;
+    }
+
+    private static void putAscii(byte[] header, int offset, String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(bytes, 0, header, offset, bytes.length);
+    }
+}
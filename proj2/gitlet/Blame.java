@@ -0,0 +1,252 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+
+import static gitlet.Utils.*;
+
+/**
+ * Attributes each line of a file to the commit that last touched it.
+ * <p>
+ * Starting from a commit, lines are carried backward through history in commit
+ * date order. A commit whose parent holds the same blob passes all of its lines to
+ * that parent without a diff; when the blob changed, only the lines unchanged
+ * against a parent are carried forward to it, and the remaining lines are blamed
+ * on the commit. Finding the blob in a parent stops as soon as a subtree along the
+ * path has the same id as in the child. A finished attribution is cached on disk
+ * keyed by commit id and path, since it depends on the history reaching the blob and
+ * not only on its content, so blaming a file whose history reaches a cached commit
+ * only needs to walk the commits after it.
+ */
+class Blame {
+
+    /**
+     * A commit suspected to have introduced some lines of the blamed file.
+     */
+    private static class Suspect {
+        final Repository.CommitEntry entry;
+        final String blobId;
+        /* Ids of the trees along the path, from the root tree to the parent directory. */
+        final String[] treeIds;
+        /* Pairs of (line index in this blob, line index in the blamed file). */
+        final List<int[]> lines = new LinkedList<>();
+
+        Suspect(Repository.CommitEntry entry, String blobId, String[] treeIds) {
+            this.entry = entry;
+            this.blobId = blobId;
+            this.treeIds = treeIds;
+        }
+    }
+
+    private final Repository repository;
+
+    private final List<String> parts;
+
+    private final String[] result;
+
+    private final PriorityQueue<Suspect> queue =
+            new PriorityQueue<>((s1, s2) -> s1.entry.compareTo(s2.entry));
+
+    private final Map<String, Suspect> suspects = new HashMap<>();
+
+    private Blame(Repository repository, List<String> parts, int lineCount) {
+        this.repository = repository;
+        this.parts = parts;
+        this.result = new String[lineCount];
+    }
+
+    /**
+     * Return the id of the commit that last touched each line of the file at
+     * filePath in the given commit, throw error if the file does not exist.
+     */
+    static String[] blame(Repository repository, String commitId, String filePath) {
+        List<String> parts = repository.pathToParts(repository.relativePath(filePath));
+        Commit commit = repository.lookupObj(commitId, Commit.class);
+        String[] treeIds = new String[parts.size()];
+        String blobId = lookupBlobId(repository, commit.getTreeId(), parts, treeIds, null);
+        if (Objects.isNull(blobId)) {
+            throw error("File does not exist in that commit.");
+        }
+        String path = String.join("/", parts);
+        String[] cached = readCache(repository.blameDir, commitId, path);
+        if (Objects.nonNull(cached)) {
+            return cached;
+        }
+        int lineCount = Diff.splitLines(repository.blobContent(blobId)).size();
+        Blame blame = new Blame(repository, parts, lineCount);
+        Suspect suspect = blame.suspect(new Repository.CommitEntry(commitId, commit),
+                blobId, treeIds);
+        for (int i = 0; i < lineCount; i++) {
+            suspect.lines.add(new int[]{i, i});
+        }
+        blame.run();
+        writeCache(repository.blameDir, commitId, path, blame.result);
+        return blame.result;
+    }
+
+    private void run() {
+        while (!queue.isEmpty()) {
+            Suspect suspect = queue.poll();
+            suspects.remove(suspect.entry.id);
+            if (suspect.lines.isEmpty()) {
+                continue;
+            }
+            String[] cached = readCache(repository.blameDir, suspect.entry.id,
+                    String.join("/", parts));
+            if (Objects.nonNull(cached)) {
+                for (int[] line : suspect.lines) {
+                    result[line[1]] = cached[line[0]];
+                }
+                continue;
+            }
+            process(suspect);
+        }
+    }
+
+    private void process(Suspect suspect) {
+        List<String> parentIds = suspect.entry.commit.getParentIds();
+        List<Suspect> parents = new ArrayList<>();
+        for (String parentId : parentIds) {
+            Commit parent = repository.lookupObj(parentId, Commit.class);
+            String[] treeIds = new String[parts.size()];
+            String blobId = lookupBlobId(repository, parent.getTreeId(), parts, treeIds, suspect);
+            if (Objects.isNull(blobId)) {
+                continue;
+            }
+            if (Objects.equals(blobId, suspect.blobId)) {
+                // Unchanged in this parent, pass all lines to it.
+                Suspect s = suspect(new Repository.CommitEntry(parentId, parent), blobId, treeIds);
+                s.lines.addAll(suspect.lines);
+                return;
+            }
+            parents.add(suspect(new Repository.CommitEntry(parentId, parent), blobId, treeIds));
+        }
+
+        List<String> lines = Diff.splitLines(repository.blobContent(suspect.blobId));
+        List<int[]> remaining = suspect.lines;
+        for (Suspect parent : parents) {
+            if (remaining.isEmpty()) {
+                break;
+            }
+            List<String> parentLines = Diff.splitLines(repository.blobContent(parent.blobId));
+            // Map each unchanged line of this blob to its line in the parent blob.
+            int[] toParent = new int[lines.size()];
+            Arrays.fill(toParent, -1);
+            int i = 0;
+            int j = 0;
+            for (Diff.Edit edit : Diff.diff(parentLines, lines)) {
+                while (i < edit.beginA) {
+                    toParent[j++] = i++;
+                }
+                i = edit.endA;
+                j = edit.endB;
+            }
+            while (j < lines.size()) {
+                toParent[j++] = i++;
+            }
+            List<int[]> unmatched = new LinkedList<>();
+            for (int[] line : remaining) {
+                if (toParent[line[0]] >= 0) {
+                    parent.lines.add(new int[]{toParent[line[0]], line[1]});
+                } else {
+                    unmatched.add(line);
+                }
+            }
+            remaining = unmatched;
+        }
+        // Lines not found in any parent are introduced by this commit.
+        for (int[] line : remaining) {
+            result[line[1]] = suspect.entry.id;
+        }
+    }
+
+    /**
+     * Return the suspect of the commit, merging suspects of the same commit.
+     */
+    private Suspect suspect(Repository.CommitEntry entry, String blobId, String[] treeIds) {
+        Suspect suspect = suspects.get(entry.id);
+        if (Objects.isNull(suspect)) {
+            suspect = new Suspect(entry, blobId, treeIds);
+            suspects.put(entry.id, suspect);
+            queue.add(suspect);
+        }
+        return suspect;
+    }
+
+    /**
+     * Lookup the id of the blob at the path parts from the tree with treeId, recording
+     * the ids of the trees along the path into treeIds. If a tree along the path has
+     * the same id as in the known suspect, the rest of the walk is pruned and the
+     * suspect's blob id is returned. Return null if the blob does not exist.
+     */
+    private static String lookupBlobId(Repository repository, String treeId,
+                                       List<String> parts, String[] treeIds, Suspect known) {
+        for (int depth = 0; depth < parts.size(); depth++) {
+            if (Objects.nonNull(known) && Objects.equals(known.treeIds[depth], treeId)) {
+                System.arraycopy(known.treeIds, depth, treeIds, depth, treeIds.length - depth);
+                return known.blobId;
+            }
+            treeIds[depth] = treeId;
+            Tree tree = repository.lookupObj(treeId, Tree.class);
+            Tree.Entry entry = tree.getEntryMap().get(parts.get(depth));
+            if (Objects.isNull(entry)) {
+                return null;
+            }
+            boolean last = depth == parts.size() - 1;
+            if (last != entry.isBlob()) {
+                return null;
+            }
+            if (last) {
+                return entry.id;
+            }
+            treeId = entry.id;
+        }
+        return null;
+    }
+
+    /* CACHE */
+
+    /**
+     * Return the name of the cache file of the file at path in the commit.
+     */
+    private static String cacheKey(String commitId, String path) {
+        return sha1(commitId, path);
+    }
+
+    private static String[] readCache(File blameDir, String commitId, String path) {
+        File file = join(blameDir, cacheKey(commitId, path));
+        if (!file.isFile()) {
+            return null;
+        }
+        String content = readContentsAsString(file);
+        return content.isEmpty() ? new String[0] : content.split("\n");
+    }
+
+    private static void writeCache(File blameDir, String commitId, String path,
+                                   String[] commitIds) {
+        if (!blameDir.exists()) {
+            Repository.createDir(blameDir);
+        }
+        // Write to a temporary file and rename it, so that an interrupted blame
+        // never leaves a partially written cache file.
+        String key = cacheKey(commitId, path);
+        try {
+            File tmp = File.createTempFile(key, ".tmp", blameDir);
+            writeContents(tmp, String.join("\n", commitIds));
+            Files.move(tmp.toPath(), join(blameDir, key).toPath(),
+                    StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException excp) {
+            throw error("Cannot write the blame cache: %s", excp.getMessage());
+        }
+    }
+}
@@ -1,21 +1,61 @@
 package gitlet;
 
+import java.util.List;
+import java.util.Objects;
+
 /**
  * Represents a gitlet blob object.
+ * A blob either holds its content, or is a chunked blob which only records the ids
+ * of the chunk objects holding its content.
  */
 public class Blob extends Obj {
+    /* Keep blobs written before chunked blobs were added readable. */
+    private static final long serialVersionUID = -7453465718455344897L;
+
     private final String content;
 
+    private final List<String> chunkIds;
+
+    private final long size;
+
     public Blob(String content) {
         this.content = content;
+        this.chunkIds = null;
+        this.size = -1;
+    }
+
+    public Blob(List<String> chunkIds, long size) {
+        this.content = null;
+        this.chunkIds = chunkIds;
+        this.size = size;
     }
 
     public String getContent() {
         return content;
     }
 
+    public List<String> getChunkIds() {
+        return chunkIds;
+    }
+
+    /**
+     * Return the size in bytes of a chunked blob.
+     */
+    public long getSize() {
+        return size;
+    }
+
+    public boolean isChunked() {
+        return Objects.nonNull(chunkIds);
+    }
+
     @Override
     public String toString() {
+        if (isChunked()) {
+            return "Blob{" + "chunkIds=" + chunkIds
+                    + ", size=" + size
+                    + '}';
+        }
         return "Blob{" + "content='" + content + '\''
                 + '}';
     }
@@ -0,0 +1,46 @@
+package gitlet;
+
+/**
+ * Represents a gitlet chunk object, a piece of the content of a chunked blob.
+ */
+public class Chunk extends Obj {
+    /* Keep chunks written before the codec was added readable. */
+    private static final long serialVersionUID = -8838049844801414641L;
+
+    private final byte[] content;
+
+    /* Digest of the content, so the id of a chunk does not depend on its whole content. */
+    private final String digest;
+
+    public Chunk(byte[] content) {
+        this(content, Utils.sha1(content));
+    }
+
+    /**
+     * Create a chunk whose digest is already known, e.g. when it is decoded.
+     */
+    Chunk(byte[] content, String digest) {
+        this.content = content;
+        this.digest = digest;
+    }
+
+    public byte[] getContent() {
+        return content;
+    }
+
+    public String getDigest() {
+        return digest;
+    }
+
+    @Override
+    public String toString() {
+        return "Chunk{" + "size=" + content.length
+                + ", digest='" + digest + '\''
+                + '}';
+    }
+
+    @Override
+    public void dump() {
+        System.out.println(this);
+    }
+}
@@ -0,0 +1,112 @@
+package gitlet;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.Consumer;
+
+/**
+ * Splits content into chunks at content-defined boundaries with FastCDC.
+ * <p>
+ * A Gear rolling hash is computed over the bytes, and a boundary is declared where
+ * the hash matches a mask. Boundaries depend on the content around them only, so an
+ * edit moves the boundaries near it and leaves the other chunks unchanged. The
+ * first MIN_SIZE bytes of a chunk are skipped, a stricter mask is used before the
+ * average size and a looser one after it (normalized chunking), and a chunk never
+ * exceeds MAX_SIZE.
+ */
+class Chunker {
+
+    static final int MIN_SIZE = 2 * 1024;
+
+    static final int AVG_SIZE = 8 * 1024;
+
+    static final int MAX_SIZE = 64 * 1024;
+
+    /* 15 effective bits, used before the average size. */
+    private static final long MASK_S = 0x0003590703530000L;
+
+    /* 11 effective bits, used after the average size. */
+    private static final long MASK_L = 0x0000d90003530000L;
+
+    private static final long[] GEAR = new long[256];
+
+    static {
+        // A fixed seed, so the boundaries are the same in every repository.
+        Random random = new Random(0x6769746c6574L);
+        for (int i = 0; i < GEAR.length; i++) {
+            GEAR[i] = random.nextLong();
+        }
+    }
+
+    /**
+     * Split the file into chunks, pass each chunk to the consumer in order.
+     */
+    static void chunk(File file, Consumer<byte[]> consumer) {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file.toPath()))) {
+            chunk(in, consumer);
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e.getMessage());
+        }
+    }
+
+    /**
+     * Split the stream into chunks, pass each chunk to the consumer in order.
+     * At most MAX_SIZE bytes are buffered.
+     */
+    static void chunk(InputStream in, Consumer<byte[]> consumer) throws IOException {
+        byte[] buffer = new byte[MAX_SIZE];
+        int length = 0;
+        boolean eof = false;
+        while (!eof || length > 0) {
+            // Fill the buffer.
+            while (!eof && length < buffer.length) {
+                int n = in.read(buffer, length, buffer.length - length);
+                if (n < 0) {
+                    eof = true;
+                } else {
+                    length += n;
+                }
+            }
+            if (length == 0) {
+                break;
+            }
+            int cut = cutPoint(buffer, length);
+            consumer.accept(Arrays.copyOf(buffer, cut));
+            System.arraycopy(buffer, cut, buffer, 0, length - cut);
+            length -= cut;
+        }
+    }
+
+    /**
+     * Return the length of the first chunk of the first n bytes of src.
+     */
+    static int cutPoint(byte[] src, int n) {
+        if (n <= MIN_SIZE) {
+            return n;
+        }
+        if (n > MAX_SIZE) {
+            n = MAX_SIZE;
+        }
+        int normal = Math.min(AVG_SIZE, n);
+        long fp = 0;
+        int i = MIN_SIZE;
+        for (; i < normal; i++) {
+            fp = (fp << 1) + GEAR[src[i] & 0xff];
+            if ((fp & MASK_S) == 0) {
+                return i;
+            }
+        }
+        for (; i < n; i++) {
+            fp = (fp << 1) + GEAR[src[i] & 0xff];
+            if ((fp & MASK_L) == 0) {
+                return i;
+            }
+        }
+        return n;
+    }
+}
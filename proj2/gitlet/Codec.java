@@ -0,0 +1,357 @@
+package gitlet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+import static gitlet.Utils.*;
+
+/**
+ * A versioned binary format of the gitlet objects (Blob, Tree, Commit, Chunk) and of
+ * the Branch, Head and Index files, replacing Java serialization.
+ * <p>
+ * Data starts with a header of the magic bytes "gl", the format version and a type tag,
+ * followed by the fields of the type in a fixed order. Lengths and counts are varints,
+ * strings are UTF-8, and a nullable string or list stores its length plus one, with 0
+ * for null. Decoding reads the fields from a ByteBuffer, there is no class descriptor
+ * to parse and no reflection.
+ * <p>
+ * Data written by Java serialization (starting with 0xACED) is still decoded with
+ * ObjectInputStream, so existing repositories stay readable, and `migrate` rewrites
+ * them in this format. The id of an object is the SHA-1 of its toString, so it does
+ * not depend on the format.
+ */
+class Codec {
+
+    static final int VERSION = 1;
+
+    private static final byte MAGIC_0 = 'g';
+
+    private static final byte MAGIC_1 = 'l';
+
+    private static final int HEADER_LENGTH = 4;
+
+    private static final byte BLOB_TAG = 1;
+    private static final byte TREE_TAG = 2;
+    private static final byte COMMIT_TAG = 3;
+    private static final byte CHUNK_TAG = 4;
+    private static final byte BRANCH_TAG = 5;
+    private static final byte HEAD_TAG = 6;
+    private static final byte INDEX_TAG = 7;
+
+    /* Flags of an index node. */
+    private static final int SPARSE_FLAG = 1;
+    private static final int DIR_FLAG = 2;
+
+    /**
+     * Check if the data was written by Java serialization.
+     */
+    static boolean isJavaSerialized(byte[] data) {
+        return data.length >= 2 && (data[0] & 0xff) == 0xac && (data[1] & 0xff) == 0xed;
+    }
+
+    /**
+     * Return the data of obj, which must be one of the types of this format.
+     */
+    static byte[] encode(Dumpable obj) {
+        long start = Trace.start();
+        Encoder out = new Encoder();
+        if (obj instanceof Blob) {
+            out.header(BLOB_TAG);
+            encodeBlob(out, (Blob) obj);
+        } else if (obj instanceof Tree) {
+            out.header(TREE_TAG);
+            encodeTree(out, (Tree) obj);
+        } else if (obj instanceof Commit) {
+            out.header(COMMIT_TAG);
+            encodeCommit(out, (Commit) obj);
+        } else if (obj instanceof Chunk) {
+            out.header(CHUNK_TAG);
+            Chunk chunk = (Chunk) obj;
+            out.writeByteArray(chunk.getContent());
+            out.writeString(chunk.getDigest());
+        } else if (obj instanceof Branch) {
+            out.header(BRANCH_TAG);
+            Branch branch = (Branch) obj;
+            out.writeString(branch.getName());
+            out.writeString(branch.getCommitId());
+        } else if (obj instanceof Head) {
+            out.header(HEAD_TAG);
+            Head head = (Head) obj;
+            out.writeString(head.getBranchName());
+            out.writeString(head.getCommitId());
+        } else if (obj instanceof Index) {
+            out.header(INDEX_TAG);
+            encodeIndexNode(out, ((Index) obj).root);
+        } else {
+            throw new IllegalArgumentException("cannot encode " + obj.getClass().getName());
+        }
+        byte[] data = out.toByteArray();
+        Trace.end(Trace.Phase.SERIALIZE, start, data.length);
+        return data;
+    }
+
+    /**
+     * Return the object decoded from data, casting it to expectedClass. Throws
+     * IllegalArgumentException if the data is malformed.
+     */
+    static <T extends Dumpable> T decode(byte[] data, Class<T> expectedClass) {
+        if (isJavaSerialized(data)) {
+            return deserialize(data, expectedClass);
+        }
+        long start = Trace.start();
+        ByteBuffer in = ByteBuffer.wrap(data);
+        Dumpable obj;
+        try {
+            if (data.length < HEADER_LENGTH || in.get() != MAGIC_0 || in.get() != MAGIC_1) {
+                throw new IllegalArgumentException("not a gitlet object");
+            }
+            int version = in.get();
+            if (version > VERSION) {
+                throw error("Unsupported object format version: %d.", version);
+            }
+            byte tag = in.get();
+            switch (tag) {
+                case BLOB_TAG -> obj = decodeBlob(in);
+                case TREE_TAG -> obj = decodeTree(in);
+                case COMMIT_TAG -> obj = decodeCommit(in);
+                case CHUNK_TAG -> obj = new Chunk(readBytes(in), readString(in));
+                case BRANCH_TAG -> obj = new Branch(readString(in), readString(in));
+                case HEAD_TAG -> {
+                    Head head = new Head();
+                    head.setBranchName(readString(in));
+                    head.setCommitId(readString(in));
+                    obj = head;
+                }
+                case INDEX_TAG -> {
+                    Index index = new Index();
+                    Index.Node root = decodeIndexNode(in);
+                    index.root.childMap.putAll(root.childMap);
+                    obj = index;
+                }
+                default -> throw new IllegalArgumentException("unknown type tag " + tag);
+            }
+            Trace.end(Trace.Phase.DESERIALIZE, start, data.length);
+            return expectedClass.cast(obj);
+        } catch (BufferUnderflowException | ClassCastException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /**
+     * Return data in this format, decoding and encoding it again if it was written
+     * by Java serialization.
+     */
+    static byte[] migrate(byte[] data) {
+        if (!isJavaSerialized(data)) {
+            return data;
+        }
+        return encode(deserialize(data, Dumpable.class));
+    }
+
+    /**
+     * Return an object read from file, casting it to expectedClass.
+     */
+    static <T extends Dumpable> T read(File file, Class<T> expectedClass) {
+        return decode(readContents(file), expectedClass);
+    }
+
+    /**
+     * Write obj to file.
+     */
+    static void write(File file, Dumpable obj) {
+        writeContents(file, encode(obj));
+    }
+
+    private static void encodeBlob(Encoder out, Blob blob) {
+        out.writeString(blob.getContent());
+        out.writeList(blob.getChunkIds());
+        out.writeLong(blob.getSize());
+    }
+
+    private static Blob decodeBlob(ByteBuffer in) {
+        String content = readString(in);
+        List<String> chunkIds = readList(in);
+        long size = in.getLong();
+        return Objects.isNull(chunkIds) ? new Blob(content) : new Blob(chunkIds, size);
+    }
+
+    private static void encodeTree(Encoder out, Tree tree) {
+        Map<String, Tree.Entry> entryMap = tree.getEntryMap();
+        out.writeVarint(entryMap.size());
+        for (Tree.Entry entry : entryMap.values()) {
+            out.writeString(entry.name);
+            out.writeByte(entry.isTree() ? 1 : 0);
+            out.writeString(entry.id);
+        }
+    }
+
+    private static Tree decodeTree(ByteBuffer in) {
+        int size = readVarint(in);
+        Map<String, Tree.Entry> entryMap = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            String name = readString(in);
+            String type = in.get() == 1 ? Tree.Entry.TREE_TYPE : Tree.Entry.BLOB_TYPE;
+            entryMap.put(name, new Tree.Entry(name, type, readString(in)));
+        }
+        return new Tree(entryMap);
+    }
+
+    private static void encodeCommit(Encoder out, Commit commit) {
+        out.writeByte(Objects.isNull(commit.getDate()) ? 0 : 1);
+        if (Objects.nonNull(commit.getDate())) {
+            out.writeLong(commit.getDate().getTime());
+        }
+        out.writeString(commit.getTreeId());
+        out.writeString(commit.getMessage());
+        out.writeList(commit.getParentIds());
+    }
+
+    private static Commit decodeCommit(ByteBuffer in) {
+        Date date = in.get() == 0 ? null : new Date(in.getLong());
+        return new Commit(date, readString(in), readString(in), readList(in));
+    }
+
+    private static void encodeIndexNode(Encoder out, Index.Node node) {
+        out.writeString(node.name);
+        out.writeString(node.id);
+        int flags = (Index.isSparse(node) ? SPARSE_FLAG : 0)
+                | (Objects.nonNull(node.childMap) ? DIR_FLAG : 0);
+        out.writeByte(flags);
+        if (Objects.nonNull(node.childMap)) {
+            out.writeVarint(node.childMap.size());
+            for (Index.Node child : node.childMap.values()) {
+                encodeIndexNode(out, child);
+            }
+        }
+    }
+
+    private static Index.Node decodeIndexNode(ByteBuffer in) {
+        String name = readString(in);
+        String id = readString(in);
+        int flags = in.get();
+        if ((flags & SPARSE_FLAG) != 0) {
+            return Index.Node.sparseDir(name, id);
+        }
+        if ((flags & DIR_FLAG) == 0) {
+            return new Index.Node(name, id);
+        }
+        int size = readVarint(in);
+        Map<String, Index.Node> childMap = new TreeMap<>();
+        for (int i = 0; i < size; i++) {
+            Index.Node child = decodeIndexNode(in);
+            childMap.put(child.name, child);
+        }
+        return new Index.Node(name, id, childMap);
+    }
+
+    private static int readVarint(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7f) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("malformed varint");
+    }
+
+    private static byte[] readBytes(ByteBuffer in) {
+        byte[] bytes = new byte[readVarint(in)];
+        in.get(bytes);
+        return bytes;
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = readVarint(in) - 1;
+        if (length < 0) {
+            return null;
+        }
+        if (length > in.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        String s = new String(in.array(), in.arrayOffset() + in.position(), length,
+                StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return s;
+    }
+
+    private static List<String> readList(ByteBuffer in) {
+        int size = readVarint(in) - 1;
+        if (size < 0) {
+            return null;
+        }
+        List<String> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(readString(in));
+        }
+        return list;
+    }
+
+    /**
+     * Writes the fields of an object into a growing byte array.
+     */
+    private static class Encoder extends ByteArrayOutputStream {
+
+        void header(byte tag) {
+            write(MAGIC_0);
+            write(MAGIC_1);
+            write(VERSION);
+            write(tag);
+        }
+
+        void writeByte(int b) {
+            write(b);
+        }
+
+        void writeVarint(int value) {
+            while ((value & ~0x7f) != 0) {
+                write((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            write(value);
+        }
+
+        void writeLong(long value) {
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                write((int) (value >>> shift));
+            }
+        }
+
+        void writeByteArray(byte[] bytes) {
+            writeVarint(bytes.length);
+            write(bytes, 0, bytes.length);
+        }
+
+        void writeString(String s) {
+            if (Objects.isNull(s)) {
+                writeVarint(0);
+                return;
+            }
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            writeVarint(bytes.length + 1);
+            write(bytes, 0, bytes.length);
+        }
+
+        void writeList(List<String> list) {
+            if (Objects.isNull(list)) {
+                writeVarint(0);
+                return;
+            }
+            writeVarint(list.size() + 1);
+            for (String s : list) {
+                writeString(s);
+            }
+        }
+    }
+}
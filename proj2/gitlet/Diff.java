@@ -0,0 +1,434 @@
+package gitlet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A line diff engine.
+ * <p>
+ * Lines are interned to int ids first, so the algorithms only compare ints.
+ * {@link Algorithm#MYERS} is the O(ND) algorithm of Eugene W. Myers, using the
+ * linear space refinement (bisect at the middle snake, then recurse on both halves).
+ * {@link Algorithm#PATIENCE} anchors on lines that are unique in both sides, and
+ * falls back to Myers between the anchors, which keeps large rewrites cheap.
+ */
+class Diff {
+
+    enum Algorithm {
+        MYERS, PATIENCE
+    }
+
+    /**
+     * Represents a changed region: lines [beginA, endA) of `a` are replaced by
+     * lines [beginB, endB) of `b`. An insertion has beginA == endA, a deletion has
+     * beginB == endB.
+     */
+    static class Edit {
+        final int beginA;
+        final int endA;
+        final int beginB;
+        final int endB;
+
+        Edit(int beginA, int endA, int beginB, int endB) {
+            this.beginA = beginA;
+            this.endA = endA;
+            this.beginB = beginB;
+            this.endB = endB;
+        }
+
+        @Override
+        public String toString() {
+            return "Edit{" + "a=[" + beginA + ", " + endA + ")"
+                    + ", b=[" + beginB + ", " + endB + ")"
+                    + '}';
+        }
+    }
+
+    /**
+     * Number of context lines around each hunk of unified output.
+     */
+    static final int DEFAULT_CONTEXT = 3;
+
+    private final int[] a;
+
+    private final int[] b;
+
+    private final boolean[] changedA;
+
+    private final boolean[] changedB;
+
+    private Diff(int[] a, int[] b) {
+        this.a = a;
+        this.b = b;
+        this.changedA = new boolean[a.length];
+        this.changedB = new boolean[b.length];
+    }
+
+    /**
+     * Diff two lists of lines with the Myers algorithm.
+     */
+    static List<Edit> diff(List<String> linesA, List<String> linesB) {
+        return diff(linesA, linesB, Algorithm.MYERS);
+    }
+
+    /**
+     * Diff two lists of lines with the given algorithm.
+     */
+    static List<Edit> diff(List<String> linesA, List<String> linesB, Algorithm algorithm) {
+        Map<String, Integer> interned = new HashMap<>();
+        Diff diff = new Diff(intern(linesA, interned), intern(linesB, interned));
+        if (algorithm == Algorithm.PATIENCE) {
+            diff.patience(0, diff.a.length, 0, diff.b.length);
+        } else {
+            diff.myers(0, diff.a.length, 0, diff.b.length);
+        }
+        return diff.toEdits();
+    }
+
+    private static int[] intern(List<String> lines, Map<String, Integer> interned) {
+        int[] ids = new int[lines.size()];
+        int i = 0;
+        for (String line : lines) {
+            Integer id = interned.get(line);
+            if (id == null) {
+                id = interned.size();
+                interned.put(line, id);
+            }
+            ids[i] = id;
+            i += 1;
+        }
+        return ids;
+    }
+
+    /**
+     * Split content into lines, each line keeps its line terminator so the
+     * content can be rebuilt by concatenating the lines.
+     */
+    static List<String> splitLines(String content) {
+        List<String> lines = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < content.length(); i++) {
+            if (content.charAt(i) == '\n') {
+                lines.add(content.substring(start, i + 1));
+                start = i + 1;
+            }
+        }
+        if (start < content.length()) {
+            lines.add(content.substring(start));
+        }
+        return lines;
+    }
+
+    /* MYERS */
+
+    private void myers(int aLo, int aHi, int bLo, int bHi) {
+        // Trim common prefix and suffix.
+        while (aLo < aHi && bLo < bHi && a[aLo] == b[bLo]) {
+            aLo += 1;
+            bLo += 1;
+        }
+        while (aLo < aHi && bLo < bHi && a[aHi - 1] == b[bHi - 1]) {
+            aHi -= 1;
+            bHi -= 1;
+        }
+        if (aLo == aHi || bLo == bHi) {
+            markChanged(aLo, aHi, bLo, bHi);
+            return;
+        }
+        bisect(aLo, aHi, bLo, bHi);
+    }
+
+    /**
+     * Find the middle snake of the shortest edit path by running the greedy
+     * algorithm forward from the start and backward from the end at the same
+     * time, then split the problem at the point where both paths overlap.
+     * Only two V arrays of size O(N + M) are kept.
+     */
+    private void bisect(int aLo, int aHi, int bLo, int bHi) {
+        int n = aHi - aLo;
+        int m = bHi - bLo;
+        int maxD = (n + m + 1) / 2;
+        int vOffset = maxD;
+        int vLength = 2 * maxD + 2;
+        int[] v1 = new int[vLength];
+        int[] v2 = new int[vLength];
+        Arrays.fill(v1, -1);
+        Arrays.fill(v2, -1);
+        v1[vOffset + 1] = 0;
+        v2[vOffset + 1] = 0;
+        int delta = n - m;
+        // If the total number of lines is odd, the front path will collide
+        // with the reverse path.
+        boolean front = delta % 2 != 0;
+        // Offsets for start and end of k loop, prevent mapping of space beyond the grid.
+        int k1start = 0;
+        int k1end = 0;
+        int k2start = 0;
+        int k2end = 0;
+        for (int d = 0; d < maxD; d++) {
+            // Walk the front path one step.
+            for (int k1 = -d + k1start; k1 <= d - k1end; k1 += 2) {
+                int k1Offset = vOffset + k1;
+                int x1;
+                if (k1 == -d || (k1 != d && v1[k1Offset - 1] < v1[k1Offset + 1])) {
+                    x1 = v1[k1Offset + 1];
+                } else {
+                    x1 = v1[k1Offset - 1] + 1;
+                }
+                int y1 = x1 - k1;
+                while (x1 < n && y1 < m && a[aLo + x1] == b[bLo + y1]) {
+                    x1 += 1;
+                    y1 += 1;
+                }
+                v1[k1Offset] = x1;
+                if (x1 > n) {
+                    // Ran off the right of the graph.
+                    k1end += 2;
+                } else if (y1 > m) {
+                    // Ran off the bottom of the graph.
+                    k1start += 2;
+                } else if (front) {
+                    int k2Offset = vOffset + delta - k1;
+                    if (k2Offset >= 0 && k2Offset < vLength && v2[k2Offset] != -1) {
+                        // Mirror x2 onto top-left coordinate system.
+                        int x2 = n - v2[k2Offset];
+                        if (x1 >= x2) {
+                            split(aLo, aHi, bLo, bHi, x1, y1);
+                            return;
+                        }
+                    }
+                }
+            }
+            // Walk the reverse path one step.
+            for (int k2 = -d + k2start; k2 <= d - k2end; k2 += 2) {
+                int k2Offset = vOffset + k2;
+                int x2;
+                if (k2 == -d || (k2 != d && v2[k2Offset - 1] < v2[k2Offset + 1])) {
+                    x2 = v2[k2Offset + 1];
+                } else {
+                    x2 = v2[k2Offset - 1] + 1;
+                }
+                int y2 = x2 - k2;
+                while (x2 < n && y2 < m && a[aHi - 1 - x2] == b[bHi - 1 - y2]) {
+                    x2 += 1;
+                    y2 += 1;
+                }
+                v2[k2Offset] = x2;
+                if (x2 > n) {
+                    k2end += 2;
+                } else if (y2 > m) {
+                    k2start += 2;
+                } else if (!front) {
+                    int k1Offset = vOffset + delta - k2;
+                    if (k1Offset >= 0 && k1Offset < vLength && v1[k1Offset] != -1) {
+                        int x1 = v1[k1Offset];
+                        int y1 = vOffset + x1 - k1Offset;
+                        if (x1 >= n - x2) {
+                            split(aLo, aHi, bLo, bHi, x1, y1);
+                            return;
+                        }
+                    }
+                }
+            }
+        }
+        // Number of edits equals number of lines, no commonality at all.
+        markChanged(aLo, aHi, bLo, bHi);
+    }
+
+    private void split(int aLo, int aHi, int bLo, int bHi, int x, int y) {
+        myers(aLo, aLo + x, bLo, bLo + y);
+        myers(aLo + x, aHi, bLo + y, bHi);
+    }
+
+    /* PATIENCE */
+
+    private void patience(int aLo, int aHi, int bLo, int bHi) {
+        while (aLo < aHi && bLo < bHi && a[aLo] == b[bLo]) {
+            aLo += 1;
+            bLo += 1;
+        }
+        while (aLo < aHi && bLo < bHi && a[aHi - 1] == b[bHi - 1]) {
+            aHi -= 1;
+            bHi -= 1;
+        }
+        if (aLo == aHi || bLo == bHi) {
+            markChanged(aLo, aHi, bLo, bHi);
+            return;
+        }
+        int[] anchors = uniqueCommonLines(aLo, aHi, bLo, bHi);
+        if (anchors.length == 0) {
+            myers(aLo, aHi, bLo, bHi);
+            return;
+        }
+        // Each anchor is encoded as index into `a`, and its match in `b` is found
+        // again by the longest increasing subsequence below.
+        int prevA = aLo;
+        int prevB = bLo;
+        for (int i = 0; i < anchors.length; i += 2) {
+            patience(prevA, anchors[i], prevB, anchors[i + 1]);
+            prevA = anchors[i] + 1;
+            prevB = anchors[i + 1] + 1;
+        }
+        patience(prevA, aHi, prevB, bHi);
+    }
+
+    /**
+     * Return the lines that occur exactly once in both ranges, as a flat array of
+     * (indexA, indexB) pairs forming the longest chain increasing in both indices.
+     */
+    private int[] uniqueCommonLines(int aLo, int aHi, int bLo, int bHi) {
+        // id -> {count in a, index in a, count in b, index in b}
+        Map<Integer, int[]> occurrences = new HashMap<>();
+        for (int i = aLo; i < aHi; i++) {
+            int[] o = occurrences.computeIfAbsent(a[i], k -> new int[4]);
+            o[0] += 1;
+            o[1] = i;
+        }
+        for (int j = bLo; j < bHi; j++) {
+            int[] o = occurrences.get(b[j]);
+            if (o != null) {
+                o[2] += 1;
+                o[3] = j;
+            }
+        }
+        // Candidates ordered by their index in `a`.
+        List<int[]> candidates = new ArrayList<>();
+        for (int i = aLo; i < aHi; i++) {
+            int[] o = occurrences.get(a[i]);
+            if (o[0] == 1 && o[2] == 1) {
+                candidates.add(new int[]{i, o[3]});
+            }
+        }
+        if (candidates.isEmpty()) {
+            return new int[0];
+        }
+        // Longest increasing subsequence on the index in `b` by patience sorting.
+        int size = candidates.size();
+        int[] tails = new int[size];
+        int[] prev = new int[size];
+        int piles = 0;
+        for (int c = 0; c < size; c++) {
+            int j = candidates.get(c)[1];
+            int lo = 0;
+            int hi = piles;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (candidates.get(tails[mid])[1] < j) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            prev[c] = lo > 0 ? tails[lo - 1] : -1;
+            tails[lo] = c;
+            if (lo == piles) {
+                piles += 1;
+            }
+        }
+        int[] result = new int[2 * piles];
+        int c = tails[piles - 1];
+        for (int p = piles - 1; p >= 0; p--) {
+            result[2 * p] = candidates.get(c)[0];
+            result[2 * p + 1] = candidates.get(c)[1];
+            c = prev[c];
+        }
+        return result;
+    }
+
+    /* RESULT */
+
+    private void markChanged(int aLo, int aHi, int bLo, int bHi) {
+        Arrays.fill(changedA, aLo, aHi, true);
+        Arrays.fill(changedB, bLo, bHi, true);
+    }
+
+    private List<Edit> toEdits() {
+        List<Edit> edits = new LinkedList<>();
+        int i = 0;
+        int j = 0;
+        while (i < a.length || j < b.length) {
+            if (i < a.length && j < b.length && !changedA[i] && !changedB[j]) {
+                i += 1;
+                j += 1;
+                continue;
+            }
+            int beginA = i;
+            int beginB = j;
+            while (i < a.length && changedA[i]) {
+                i += 1;
+            }
+            while (j < b.length && changedB[j]) {
+                j += 1;
+            }
+            edits.add(new Edit(beginA, i, beginB, j));
+        }
+        return edits;
+    }
+
+    /* UNIFIED FORMAT */
+
+    /**
+     * Format edits between linesA and linesB as hunks of the unified format,
+     * `context` lines of context are kept around each change.
+     */
+    static String unified(List<String> linesA, List<String> linesB,
+                          List<Edit> edits, int context) {
+        StringBuilder sb = new StringBuilder();
+        List<String> a = new ArrayList<>(linesA);
+        List<String> b = new ArrayList<>(linesB);
+        int e = 0;
+        Edit[] es = edits.toArray(new Edit[0]);
+        while (e < es.length) {
+            // Collect edits whose context overlaps into one hunk.
+            int last = e;
+            while (last + 1 < es.length
+                    && es[last + 1].beginA - es[last].endA <= 2 * context) {
+                last += 1;
+            }
+            int startA = Math.max(0, es[e].beginA - context);
+            int startB = Math.max(0, es[e].beginB - context);
+            int endA = Math.min(a.size(), es[last].endA + context);
+            int endB = Math.min(b.size(), es[last].endB + context);
+            sb.append("@@ -").append(hunkRange(startA, endA - startA))
+                    .append(" +").append(hunkRange(startB, endB - startB))
+                    .append(" @@\n");
+            int i = startA;
+            for (int k = e; k <= last; k++) {
+                Edit edit = es[k];
+                for (; i < edit.beginA; i++) {
+                    appendLine(sb, ' ', a.get(i));
+                }
+                for (; i < edit.endA; i++) {
+                    appendLine(sb, '-', a.get(i));
+                }
+                for (int j = edit.beginB; j < edit.endB; j++) {
+                    appendLine(sb, '+', b.get(j));
+                }
+            }
+            for (; i < endA; i++) {
+                appendLine(sb, ' ', a.get(i));
+            }
+            e = last + 1;
+        }
+        return sb.toString();
+    }
+
+    private static String hunkRange(int start, int count) {
+        if (count == 1) {
+            return String.valueOf(start + 1);
+        }
+        // An empty range starts at the line before it.
+        return (count == 0 ? start : start + 1) + "," + count;
+    }
+
+    private static void appendLine(StringBuilder sb, char prefix, String line) {
+        sb.append(prefix).append(line);
+        if (!line.endsWith("\n")) {
+            sb.append("\n\\ No newline at end of file\n");
+        }
+    }
+}
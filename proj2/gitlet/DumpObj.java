@@ -4,8 +4,8 @@ import java.io.File;
 
 /** A debugging class whose main program may be invoked as follows:
  *      java gitlet.DumpObj FILE...
- *  where each FILE is a file produced by Utils.writeObject (or any file
- *  containing a serialized object).  This will simply read FILE,
+ *  where each FILE is a file produced by Utils.writeObject or Codec.write
+ *  (or any file containing a serialized object).  This will simply read FILE,
  *  deserialize it, and call the dump method on the resulting Object.
  *  The object must implement the gitlet.Dumpable interface for this
  *  to work.  For example, you might define your class like this:
@@ -33,8 +33,7 @@ public class DumpObj {
      *  in FILES. */
     public static void main(String... files) {
         for (String fileName : files) {
-            Dumpable obj = Utils.readObject(new File(fileName),
-                                            Dumpable.class);
+            Dumpable obj = Codec.read(new File(fileName), Dumpable.class);
             obj.dump();
             System.out.println("---");
         }
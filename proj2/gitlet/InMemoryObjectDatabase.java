@@ -0,0 +1,40 @@
+package gitlet;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * An object database keeping all objects in memory, nothing is persisted.
+ * Objects are still kept serialized, so a lookup returns a fresh copy like the
+ * other implementations. Useful to measure the cost of algorithms without I/O.
+ */
+class InMemoryObjectDatabase implements ObjectDatabase {
+
+    private final TreeMap<String, byte[]> objects = new TreeMap<>();
+
+    @Override
+    public boolean contains(String id) {
+        return objects.containsKey(id);
+    }
+
+    @Override
+    public byte[] read(String id) {
+        return objects.get(id);
+    }
+
+    @Override
+    public void write(String id, byte[] data) {
+        objects.putIfAbsent(id, data);
+    }
+
+    @Override
+    public List<String> idsWithPrefix(String prefix) {
+        return new LinkedList<>(objects.subMap(prefix, prefix + Character.MAX_VALUE).keySet());
+    }
+
+    /** Returns the number of objects. */
+    int size() {
+        return objects.size();
+    }
+}
@@ -10,21 +10,38 @@ import java.util.TreeMap;
  * Represents the gitlet index.
  */
 public class Index implements Dumpable {
+    /* Keep index files written before sparse nodes were added readable. */
+    private static final long serialVersionUID = -682069223729084295L;
+
     static class Node implements Serializable {
+        private static final long serialVersionUID = -4194463795025940355L;
+
         final String name;
         final String id;
         Map<String, Node> childMap;
+        /* A directory out of the sparse-checkout cone, id is the id of its tree. */
+        final boolean sparse;
 
         Node(String name, String id, Map<String, Node> childMap) {
-            this.name = name;
-            this.id = id;
-            this.childMap = childMap;
+            this(name, id, childMap, false);
         }
 
         Node(String name, String id) {
+            this(name, id, null, false);
+        }
+
+        private Node(String name, String id, Map<String, Node> childMap, boolean sparse) {
             this.name = name;
             this.id = id;
-            this.childMap = null;
+            this.childMap = childMap;
+            this.sparse = sparse;
+        }
+
+        /**
+         * Return a sparse node of a directory out of the sparse-checkout cone.
+         */
+        static Node sparseDir(String name, String treeId) {
+            return new Node(name, treeId, null, true);
         }
 
         @Override
@@ -32,6 +49,7 @@ public class Index implements Dumpable {
             return "Node{" + "name='" + name + '\''
                     + ", id='" + id + '\''
                     + ", childMap=" + childMap
+                    + (sparse ? ", sparse=true" : "")
                     + '}';
         }
     }
@@ -86,6 +104,8 @@ public class Index implements Dumpable {
             if (Objects.equals(childNode.name, part)) {
                 if (isLeaf(childNode) && parts.size() == 1) {
                     return childNode;
+                } else if (isLeaf(childNode) || isSparse(childNode)) {
+                    return null;
                 } else {
                     return getLeaf(childNode, parts.subList(1, parts.size()));
                 }
@@ -130,8 +150,15 @@ public class Index implements Dumpable {
         }
     }
 
+    /**
+     * Check if the node is a file, a sparse node is not a leaf.
+     */
     static boolean isLeaf(Node node) {
-        return Objects.isNull(node.childMap);
+        return Objects.isNull(node.childMap) && !node.sparse;
+    }
+
+    static boolean isSparse(Node node) {
+        return node.sparse;
     }
 
     static boolean isRoot(Node node) {
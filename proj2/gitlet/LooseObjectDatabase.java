@@ -0,0 +1,70 @@
+package gitlet;
+
+import java.io.File;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Objects;
+
+import static gitlet.Utils.*;
+
+/**
+ * An object database storing each object in its own file, objects/[0-9a-f][0-9a-f]/[id].
+ */
+class LooseObjectDatabase implements ObjectDatabase {
+
+    private final File objectDir;
+
+    LooseObjectDatabase(File objectDir) {
+        this.objectDir = objectDir;
+    }
+
+    private File objFilepath(String id) {
+        return join(objectDir, id.substring(0, 2), id.substring(2));
+    }
+
+    @Override
+    public boolean contains(String id) {
+        return objFilepath(id).exists();
+    }
+
+    @Override
+    public byte[] read(String id) {
+        File file = objFilepath(id);
+        if (!file.exists()) {
+            return null;
+        }
+        return readContents(file);
+    }
+
+    @Override
+    public void write(String id, byte[] data) {
+        File file = objFilepath(id);
+        if (file.exists()) {
+            return;
+        }
+        File parent = file.getParentFile();
+        if (!parent.exists()) {
+            parent.mkdir();
+        }
+        writeContents(file, data);
+    }
+
+    @Override
+    public List<String> idsWithPrefix(String prefix) {
+        List<String> ids = new LinkedList<>();
+        if (prefix.length() < 2) {
+            return ids;
+        }
+        String dirName = prefix.substring(0, 2);
+        String fileNamePrefix = prefix.substring(2);
+        List<String> fileNames = plainFilenamesIn(join(objectDir, dirName));
+        if (Objects.nonNull(fileNames)) {
+            for (String fileName : fileNames) {
+                if (fileName.startsWith(fileNamePrefix)) {
+                    ids.add(dirName + fileName);
+                }
+            }
+        }
+        return ids;
+    }
+}
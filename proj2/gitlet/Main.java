@@ -1,134 +1,295 @@
 package gitlet;
 
+import java.io.File;
 import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 
 /**
  * Driver class for Gitlet, a subset of the Git version-control system.
  */
 public class Main {
 
+    /**
+     * Commands that only read the repository, they run under a shared lock.
+     * blame is not one of them, it writes its cache.
+     */
+    static final Set<String> READ_ONLY_COMMANDS =
+            Set.of("log", "global-log", "find", "status", "diff", "archive");
+
     /**
      * Usage: java gitlet.Main ARGS, where ARGS contains
-     * <COMMAND> <OPERAND1> <OPERAND2> ...
+     * [--trace] <COMMAND> <OPERAND1> <OPERAND2> ...
      */
+    @SuppressWarnings("try")
     public static void main(String[] args) {
+        if (args.length > 0 && Objects.equals("--trace", args[0])) {
+            // Must be set before the Trace class is loaded, see Trace.ENABLED.
+            System.setProperty(Trace.TRACE_PROPERTY, "true");
+            args = Arrays.copyOfRange(args, 1, args.length);
+        }
         if (args.length == 0) {
             exit("Please enter a command.");
         }
         String command = args[0];
         String[] operands = Arrays.copyOfRange(args, 1, args.length);
-        try {
-            handleCommand(command, operands);
+        Repository repository = new Repository(new File(System.getProperty("user.dir")));
+        try (RepositoryLock ignored = lockRepository(repository, command)) {
+            try {
+                handleCommand(repository, command, operands);
+            } finally {
+                // Close the object database before the lock is released.
+                repository.close();
+            }
             exit();
         } catch (GitletException e) {
             exit(e.getMessage());
         }
     }
 
-    static void handleCommand(String command, String[] operands) {
+    static void handleCommand(Repository repository, String command, String[] operands) {
         switch (command) {
             case "init" -> {
                 // handle the `init` command
                 validateOperands(operands, 0, 0);
-                Repository.initCmd();
+                repository.initCmd();
             }
             case "add" -> {
                 // handle the `add [filename]` command
-                validateInitialized();
+                validateInitialized(repository);
                 validateOperands(operands, 1, 1);
-                Repository.addCmd(operands[0]);
+                repository.addCmd(operands[0]);
             }
             case "commit" -> {
                 // handle the `commit [message]` command
-                validateInitialized();
+                validateInitialized(repository);
                 validateOperands(operands, 1, 1);
-                Repository.commitCmd(operands[0]);
+                repository.commitCmd(operands[0]);
             }
             case "rm" -> {
                 // handle the `rm [file name]` command
-                validateInitialized();
+                validateInitialized(repository);
                 validateOperands(operands, 1, 1);
-                Repository.rmCmd(operands[0]);
+                repository.rmCmd(operands[0]);
             }
             case "log" -> {
-                // handle the `log` command
-                validateInitialized();
-                validateOperands(operands, 0, 0);
-                Repository.logCmd();
+                // handle the `log` and `log --all` command
+                validateInitialized(repository);
+                validateOperands(operands, 0, 1);
+                if (operands.length == 0) {
+                    repository.logCmd();
+                } else if (Objects.equals("--all", operands[0])) {
+                    repository.logAllCmd();
+                } else {
+                    exit("Incorrect operands.");
+                }
             }
             case "global-log" -> {
                 // handle the `global-log` command
-                validateInitialized();
+                validateInitialized(repository);
                 validateOperands(operands, 0, 0);
-                Repository.globalLogCmd();
+                repository.globalLogCmd();
             }
             case "find" -> {
                 // handle the `find [commit message]` command
-                validateInitialized();
+                validateInitialized(repository);
                 validateOperands(operands, 1, 1);
-                Repository.findCmd(operands[0]);
+                repository.findCmd(operands[0]);
             }
             case "status" -> {
                 // handle the `status` command
-                validateInitialized();
+                validateInitialized(repository);
                 validateOperands(operands, 0, 0);
-                Repository.statusCmd();
+                repository.statusCmd();
             }
             case "checkout" -> {
                 // handle the `status` command, there are 3 possible use cases:
                 // `checkout -- [file name]`
                 // `checkout [commit id] -- [file name]`
                 // `checkout [branch name]`
-                validateInitialized();
+                validateInitialized(repository);
                 validateOperands(operands, 1, 3);
                 if (operands.length == 2) {
                     if (!Objects.equals("--", operands[0])) {
                         exit("Incorrect operands.");
                     }
-                    Repository.checkoutFileCmd(operands[1]);
+                    repository.checkoutFileCmd(operands[1]);
                 } else if (operands.length == 3) {
                     if (!Objects.equals("--", operands[1])) {
                         exit("Incorrect operands.");
                     }
-                    Repository.checkoutFileCmd(operands[0], operands[2]);
+                    repository.checkoutFileCmd(operands[0], operands[2]);
                 } else if (operands.length == 1) {
-                    Repository.checkoutBranchCmd(operands[0]);
+                    repository.checkoutBranchCmd(operands[0]);
                 }
             }
             case "branch" -> {
                 // handle the `branch [branch name]` command
-                validateInitialized();
+                validateInitialized(repository);
                 validateOperands(operands, 1, 1);
-                Repository.branchCmd(operands[0]);
+                repository.branchCmd(operands[0]);
             }
             case "rm-branch" -> {
                 // handle the `rm-branch [branch name]` command
-                validateInitialized();
+                validateInitialized(repository);
                 validateOperands(operands, 1, 1);
-                Repository.rmBranchCmd(operands[0]);
+                repository.rmBranchCmd(operands[0]);
             }
             case "reset" -> {
                 // handle the `reset [commit id]` command
-                validateInitialized();
+                validateInitialized(repository);
                 validateOperands(operands, 1, 1);
-                Repository.resetCmd(operands[0]);
+                repository.resetCmd(operands[0]);
             }
             case "merge" -> {
                 // handle the `merge [branch name]` command
-                validateInitialized();
+                validateInitialized(repository);
                 validateOperands(operands, 1, 1);
-                Repository.mergeCmd(operands[0]);
+                repository.mergeCmd(operands[0]);
+            }
+            case "diff" -> {
+                // handle the `diff [--patience] [commit id] [commit id] [-- file name]` command
+                validateInitialized(repository);
+                List<String> args = new LinkedList<>(Arrays.asList(operands));
+                Diff.Algorithm algorithm = args.remove("--patience")
+                        ? Diff.Algorithm.PATIENCE : Diff.Algorithm.MYERS;
+                String filePath = null;
+                int separator = args.indexOf("--");
+                if (separator >= 0) {
+                    if (separator != args.size() - 2) {
+                        exit("Incorrect operands.");
+                    }
+                    filePath = args.get(separator + 1);
+                    args = args.subList(0, separator);
+                }
+                validateOperands(args.toArray(String[]::new), 0, 2);
+                repository.diffCmd(args, filePath, algorithm);
+            }
+            case "blame" -> {
+                // handle the `blame [commit id] [file name]` command
+                validateInitialized(repository);
+                validateOperands(operands, 1, 2);
+                if (operands.length == 1) {
+                    repository.blameCmd(operands[0]);
+                } else {
+                    repository.blameCmd(operands[0], operands[1]);
+                }
+            }
+            case "archive" -> {
+                // handle the `archive [commit id] [--format tar|zip] [-o file name]` command
+                validateInitialized(repository);
+                validateOperands(operands, 1, 5);
+                String format = null;
+                String outputPath = null;
+                for (int i = 1; i < operands.length; i += 2) {
+                    if (i + 1 >= operands.length) {
+                        exit("Incorrect operands.");
+                    }
+                    if (Objects.equals("--format", operands[i])) {
+                        format = operands[i + 1];
+                    } else if (Objects.equals("-o", operands[i])) {
+                        outputPath = operands[i + 1];
+                    } else {
+                        exit("Incorrect operands.");
+                    }
+                }
+                if (Objects.isNull(format)) {
+                    // Infer the format from the output file name like git does.
+                    format = Objects.nonNull(outputPath) && outputPath.endsWith(".zip")
+                            ? "zip" : "tar";
+                }
+                if (!Objects.equals("tar", format) && !Objects.equals("zip", format)) {
+                    exit("Unknown archive format.");
+                }
+                repository.archiveCmd(operands[0], Archive.Format.valueOf(format.toUpperCase()),
+                        outputPath);
+            }
+            case "worktree" -> {
+                // handle the `worktree add [directory] [branch name]` and `worktree list` command
+                validateInitialized(repository);
+                validateOperands(operands, 1, 3);
+                if (Objects.equals("add", operands[0]) && operands.length == 3) {
+                    repository.worktreeAddCmd(operands[1], operands[2]);
+                } else if (Objects.equals("list", operands[0]) && operands.length == 1) {
+                    repository.worktreeListCmd();
+                } else {
+                    exit("Incorrect operands.");
+                }
+            }
+            case "sparse-checkout" -> {
+                // handle the `sparse-checkout set [directory]...`, `sparse-checkout list`
+                // and `sparse-checkout disable` command
+                validateInitialized(repository);
+                if (operands.length >= 2 && Objects.equals("set", operands[0])) {
+                    repository.sparseCheckoutSetCmd(
+                            Arrays.asList(operands).subList(1, operands.length));
+                } else if (operands.length == 1 && Objects.equals("list", operands[0])) {
+                    repository.sparseCheckoutListCmd();
+                } else if (operands.length == 1 && Objects.equals("disable", operands[0])) {
+                    repository.sparseCheckoutSetCmd(null);
+                } else {
+                    exit("Incorrect operands.");
+                }
+            }
+            case "migrate" -> {
+                // handle the `migrate` command
+                validateInitialized(repository);
+                validateOperands(operands, 0, 0);
+                repository.migrateCmd();
+            }
+            case "add-remote" -> {
+                // handle the `add-remote [remote name] [name of remote directory]/.gitlet` command
+                validateInitialized(repository);
+                validateOperands(operands, 2, 2);
+                repository.addRemoteCmd(operands[0], operands[1]);
+            }
+            case "rm-remote" -> {
+                // handle the `rm-remote [remote name]` command
+                validateInitialized(repository);
+                validateOperands(operands, 1, 1);
+                repository.rmRemoteCmd(operands[0]);
+            }
+            case "fetch" -> {
+                // handle the `fetch [remote name] [remote branch name]` command
+                validateInitialized(repository);
+                validateOperands(operands, 2, 2);
+                repository.fetchCmd(operands[0], operands[1]);
+            }
+            case "push" -> {
+                // handle the `push [remote name] [remote branch name]` command
+                validateInitialized(repository);
+                validateOperands(operands, 2, 2);
+                repository.pushCmd(operands[0], operands[1]);
+            }
+            case "pull" -> {
+                // handle the `pull [remote name] [remote branch name]` command
+                validateInitialized(repository);
+                validateOperands(operands, 2, 2);
+                repository.pullCmd(operands[0], operands[1]);
             }
             default -> exit("No command with that name exists.");
         }
     }
 
+    /**
+     * Lock the repository for the command, shared if the command only reads it,
+     * return null if the repository has not been initialized.
+     */
+    static RepositoryLock lockRepository(Repository repository, String command) {
+        if (!repository.isInitialized()) {
+            return null;
+        }
+        return RepositoryLock.acquire(repository.commonDir,
+                READ_ONLY_COMMANDS.contains(command));
+    }
+
     /**
      * Check if the repository has been initialized.
      */
-    static void validateInitialized() {
-        if (!Repository.isInitialized()) {
+    static void validateInitialized(Repository repository) {
+        if (!repository.isInitialized()) {
             exit("Not in an initialized Gitlet directory.");
         }
     }
@@ -0,0 +1,146 @@
+package gitlet;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * A line-level three-way merge (diff3).
+ * <p>
+ * Both sides are diffed against the base. Edits from the two sides whose base
+ * ranges overlap (or touch) are grouped into one chunk. A chunk changed by one side
+ * only takes that side's lines; a chunk changed by both sides in the same way is
+ * taken once; otherwise the chunk is a conflict and is wrapped in conflict markers.
+ */
+class Merge3 {
+
+    static final String MARKER_OURS = "<<<<<<< HEAD\n";
+
+    static final String MARKER_SEPARATOR = "=======\n";
+
+    static final String MARKER_THEIRS = ">>>>>>>\n";
+
+    private final List<String> base;
+
+    private final List<String> ours;
+
+    private final List<String> theirs;
+
+    private final Diff.Edit[] oursEdits;
+
+    private final Diff.Edit[] theirsEdits;
+
+    private Merge3(List<String> base, List<String> ours, List<String> theirs) {
+        this.base = base;
+        this.ours = ours;
+        this.theirs = theirs;
+        this.oursEdits = Diff.diff(base, ours).toArray(new Diff.Edit[0]);
+        this.theirsEdits = Diff.diff(base, theirs).toArray(new Diff.Edit[0]);
+    }
+
+    /**
+     * Merge ours and theirs against base and write the result to out,
+     * return true if encountered a conflict.
+     */
+    static boolean merge(List<String> base, List<String> ours, List<String> theirs,
+                         Writer out) throws IOException {
+        return new Merge3(base, ours, theirs).merge(out);
+    }
+
+    /**
+     * Write a conflict of the whole contents of ours and theirs to out.
+     */
+    static void writeConflict(String ours, String theirs, Writer out) throws IOException {
+        out.write(MARKER_OURS);
+        out.write(ours);
+        out.write(MARKER_SEPARATOR);
+        out.write(theirs);
+        out.write(MARKER_THEIRS);
+    }
+
+    private boolean merge(Writer out) throws IOException {
+        boolean conflict = false;
+        int i = 0;
+        int j = 0;
+        // Line count differences (side - base) of the edits before the current chunk.
+        int oursDelta = 0;
+        int theirsDelta = 0;
+        int basePos = 0;
+        while (i < oursEdits.length || j < theirsEdits.length) {
+            int lo;
+            int hi;
+            if (j >= theirsEdits.length
+                    || (i < oursEdits.length && oursEdits[i].beginA <= theirsEdits[j].beginA)) {
+                lo = oursEdits[i].beginA;
+                hi = oursEdits[i].endA;
+            } else {
+                lo = theirsEdits[j].beginA;
+                hi = theirsEdits[j].endA;
+            }
+            // Grow the chunk until no edit of either side overlaps it.
+            int iEnd = i;
+            int jEnd = j;
+            boolean grown = true;
+            while (grown) {
+                grown = false;
+                if (iEnd < oursEdits.length && oursEdits[iEnd].beginA <= hi) {
+                    hi = Math.max(hi, oursEdits[iEnd].endA);
+                    iEnd += 1;
+                    grown = true;
+                }
+                if (jEnd < theirsEdits.length && theirsEdits[jEnd].beginA <= hi) {
+                    hi = Math.max(hi, theirsEdits[jEnd].endA);
+                    jEnd += 1;
+                    grown = true;
+                }
+            }
+
+            writeLines(out, base, basePos, lo);
+
+            int oursLo = lo + oursDelta;
+            int theirsLo = lo + theirsDelta;
+            oursDelta += delta(oursEdits, i, iEnd);
+            theirsDelta += delta(theirsEdits, j, jEnd);
+            int oursHi = hi + oursDelta;
+            int theirsHi = hi + theirsDelta;
+
+            if (i == iEnd) {
+                // Only changed in theirs.
+                writeLines(out, theirs, theirsLo, theirsHi);
+            } else if (j == jEnd) {
+                // Only changed in ours.
+                writeLines(out, ours, oursLo, oursHi);
+            } else if (ours.subList(oursLo, oursHi).equals(theirs.subList(theirsLo, theirsHi))) {
+                // Changed in the same way.
+                writeLines(out, ours, oursLo, oursHi);
+            } else {
+                conflict = true;
+                out.write(MARKER_OURS);
+                writeLines(out, ours, oursLo, oursHi);
+                out.write(MARKER_SEPARATOR);
+                writeLines(out, theirs, theirsLo, theirsHi);
+                out.write(MARKER_THEIRS);
+            }
+            basePos = hi;
+            i = iEnd;
+            j = jEnd;
+        }
+        writeLines(out, base, basePos, base.size());
+        return conflict;
+    }
+
+    private static int delta(Diff.Edit[] edits, int from, int to) {
+        int delta = 0;
+        for (int k = from; k < to; k++) {
+            delta += (edits[k].endB - edits[k].beginB) - (edits[k].endA - edits[k].beginA);
+        }
+        return delta;
+    }
+
+    private static void writeLines(Writer out, List<String> lines, int from, int to)
+            throws IOException {
+        for (int k = from; k < to; k++) {
+            out.write(lines.get(k));
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package gitlet;
+
+import java.io.Closeable;
+import java.util.List;
+
+/**
+ * A store of serialized gitlet objects, addressed by object id.
+ * <p>
+ * Implementations only deal with bytes, (de)serialization is done by the
+ * Repository, so the same algorithms can run against a store on disk or in memory.
+ */
+interface ObjectDatabase extends Closeable {
+
+    /** Returns true if the store contains an object with the id. */
+    boolean contains(String id);
+
+    /** Returns the bytes of the object with the id, or null if it does not exist. */
+    byte[] read(String id);
+
+    /** Writes the bytes of the object with the id, does nothing if it already exists. */
+    void write(String id, byte[] data);
+
+    /** Returns the ids starting with prefix, in lexicographic order. */
+    List<String> idsWithPrefix(String prefix);
+
+    /** Releases the files held open by the store, it is opened again on the next access. */
+    @Override
+    default void close() {
+    }
+}
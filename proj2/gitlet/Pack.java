@@ -0,0 +1,95 @@
+package gitlet;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * The record format shared by pack files and pack streams.
+ * <p>
+ * A pack is a sequence of records [id (20 bytes)][length (4 bytes)][data (length bytes)],
+ * where data is a serialized object.
+ */
+class Pack {
+
+    static final int ID_LENGTH = 20;
+
+    static final int HEADER_LENGTH = ID_LENGTH + 4;
+
+    /**
+     * Return the header of a record of the object with id and data of length.
+     */
+    static byte[] header(String id, int length) {
+        byte[] header = new byte[HEADER_LENGTH];
+        for (int i = 0; i < ID_LENGTH; i++) {
+            header[i] = (byte) Integer.parseInt(id.substring(2 * i, 2 * i + 2), 16);
+        }
+        header[ID_LENGTH] = (byte) (length >>> 24);
+        header[ID_LENGTH + 1] = (byte) (length >>> 16);
+        header[ID_LENGTH + 2] = (byte) (length >>> 8);
+        header[ID_LENGTH + 3] = (byte) length;
+        return header;
+    }
+
+    /**
+     * Return the id of the record with the header.
+     */
+    static String id(byte[] header) {
+        StringBuilder sb = new StringBuilder(2 * ID_LENGTH);
+        for (int i = 0; i < ID_LENGTH; i++) {
+            sb.append(String.format("%02x", header[i]));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Return the data length of the record with the header.
+     */
+    static int length(byte[] header) {
+        return ((header[ID_LENGTH] & 0xff) << 24) | ((header[ID_LENGTH + 1] & 0xff) << 16)
+                | ((header[ID_LENGTH + 2] & 0xff) << 8) | (header[ID_LENGTH + 3] & 0xff);
+    }
+
+    /**
+     * Write a record of the object with id and data to out.
+     */
+    static void writeRecord(OutputStream out, String id, byte[] data) throws IOException {
+        out.write(header(id, data.length));
+        out.write(data);
+    }
+
+    /**
+     * Read all records from in and write them into database in order,
+     * return the number of records. Throw EOFException if in ends inside a record.
+     */
+    static int unpack(InputStream in, ObjectDatabase database) throws IOException {
+        DataInputStream dataIn = new DataInputStream(in);
+        byte[] header = new byte[HEADER_LENGTH];
+        int count = 0;
+        while (true) {
+            // Only the end of the stream at a record boundary ends the pack.
+            int first = dataIn.read();
+            if (first < 0) {
+                return count;
+            }
+            header[0] = (byte) first;
+            try {
+                dataIn.readFully(header, 1, HEADER_LENGTH - 1);
+            } catch (EOFException e) {
+                throw new EOFException("Corrupt pack: the header of record " + count
+                        + " is truncated");
+            }
+            byte[] data = new byte[length(header)];
+            try {
+                dataIn.readFully(data);
+            } catch (EOFException e) {
+                throw new EOFException("Corrupt pack: the data of record " + count
+                        + " is truncated");
+            }
+            database.write(id(header), data);
+            count += 1;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * An object database storing all objects in a single append-only pack file.
+ * <p>
+ * Records are in the format of {@link Pack}. When opened, the record headers are
+ * scanned to build an in-memory index of id -> (offset, length), so reading an object
+ * is a single seek, and writing an object is a single append. This saves a file (and a directory lookup) per object.
+ */
+class PackObjectDatabase implements ObjectDatabase {
+
+    static final String PACK_FILENAME = "objects.pack";
+
+    private final File packFile;
+
+    /* id -> {offset of data, length of data} */
+    private final TreeMap<String, long[]> index = new TreeMap<>();
+
+    private RandomAccessFile pack;
+
+    PackObjectDatabase(File packDir) {
+        this.packFile = Utils.join(packDir, PACK_FILENAME);
+    }
+
+    /**
+     * Open the pack file and scan its record headers, the first access does it lazily.
+     */
+    private RandomAccessFile pack() {
+        if (pack != null) {
+            return pack;
+        }
+        try {
+            pack = new RandomAccessFile(packFile, "rw");
+            byte[] header = new byte[Pack.HEADER_LENGTH];
+            long offset = 0;
+            long length = pack.length();
+            while (offset + Pack.HEADER_LENGTH <= length) {
+                pack.seek(offset);
+                pack.readFully(header);
+                int dataLength = Pack.length(header);
+                if (offset + Pack.HEADER_LENGTH + dataLength > length) {
+                    break;
+                }
+                index.put(Pack.id(header), new long[]{offset + Pack.HEADER_LENGTH, dataLength});
+                offset += Pack.HEADER_LENGTH + dataLength;
+            }
+            if (offset < length) {
+                // A truncated record from an interrupted write, cut it off so that new
+                // records are appended right after the last complete one, where the
+                // next scan will find them.
+                pack.setLength(offset);
+            }
+            return pack;
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e.getMessage());
+        }
+    }
+
+    @Override
+    public boolean contains(String id) {
+        pack();
+        return index.containsKey(id);
+    }
+
+    @Override
+    public byte[] read(String id) {
+        RandomAccessFile file = pack();
+        long[] location = index.get(id);
+        if (location == null) {
+            return null;
+        }
+        try {
+            byte[] data = new byte[(int) location[1]];
+            file.seek(location[0]);
+            file.readFully(data);
+            return data;
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e.getMessage());
+        }
+    }
+
+    @Override
+    public void write(String id, byte[] data) {
+        RandomAccessFile file = pack();
+        if (index.containsKey(id)) {
+            return;
+        }
+        try {
+            byte[] record = new byte[Pack.HEADER_LENGTH + data.length];
+            System.arraycopy(Pack.header(id, data.length), 0, record, 0, Pack.HEADER_LENGTH);
+            System.arraycopy(data, 0, record, Pack.HEADER_LENGTH, data.length);
+            long offset = file.length();
+            file.seek(offset);
+            file.write(record);
+            index.put(id, new long[]{offset + Pack.HEADER_LENGTH, data.length});
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e.getMessage());
+        }
+    }
+
+    @Override
+    public List<String> idsWithPrefix(String prefix) {
+        pack();
+        return new LinkedList<>(index.subMap(prefix, prefix + Character.MAX_VALUE).keySet());
+    }
+
+    @Override
+    public void close() {
+        if (pack == null) {
+            return;
+        }
+        try {
+            pack.close();
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e.getMessage());
+        } finally {
+            pack = null;
+            index.clear();
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package gitlet;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Detects renamed files by pairing deleted and added blobs by content similarity.
+ * <p>
+ * Blobs with the same id are paired first. For the rest, the set of distinct lines of
+ * each blob is summarized by a MinHash signature, whose slots agree with probability
+ * equal to the Jaccard similarity of two sets. Signatures are split into bands, and
+ * only blobs sharing a band bucket (locality-sensitive hashing) are compared, so the
+ * cost stays near-linear in the number of candidates.
+ */
+class RenameDetector {
+
+    /**
+     * Minimum similarity for a deleted file and an added file to be a rename.
+     */
+    static final double DEFAULT_THRESHOLD = 0.5;
+
+    private static final int BANDS = 20;
+
+    private static final int ROWS = 3;
+
+    private static final int SIGNATURE_SIZE = BANDS * ROWS;
+
+    private static final long[] SEEDS = new long[SIGNATURE_SIZE];
+
+    static {
+        long seed = 0x9E3779B97F4A7C15L;
+        for (int i = 0; i < SIGNATURE_SIZE; i++) {
+            seed += 0x9E3779B97F4A7C15L;
+            SEEDS[i] = mix(seed);
+        }
+    }
+
+    /**
+     * Represents a file moved from one path to another.
+     */
+    static class Rename {
+        final Repository.FileInfo from;
+        final Repository.FileInfo to;
+        final double similarity;
+
+        Rename(Repository.FileInfo from, Repository.FileInfo to, double similarity) {
+            this.from = from;
+            this.to = to;
+            this.similarity = similarity;
+        }
+    }
+
+    /**
+     * Pair deletedFiles with addedFiles, the paired files are removed from both lists.
+     * contentLoader returns the content of a blob by its id.
+     */
+    static List<Rename> detect(List<Repository.FileInfo> deletedFiles,
+                               List<Repository.FileInfo> addedFiles,
+                               Function<String, String> contentLoader) {
+        List<Rename> renames = new LinkedList<>();
+        if (deletedFiles.isEmpty() || addedFiles.isEmpty()) {
+            return renames;
+        }
+        detectExact(deletedFiles, addedFiles, renames);
+        detectSimilar(deletedFiles, addedFiles, contentLoader, renames);
+        return renames;
+    }
+
+    private static void detectExact(List<Repository.FileInfo> deletedFiles,
+                                    List<Repository.FileInfo> addedFiles,
+                                    List<Rename> renames) {
+        Map<String, List<Repository.FileInfo>> deletedById = new HashMap<>();
+        for (Repository.FileInfo file : deletedFiles) {
+            deletedById.computeIfAbsent(file.id, k -> new LinkedList<>()).add(file);
+        }
+        Set<Repository.FileInfo> paired = new HashSet<>();
+        for (Repository.FileInfo to : addedFiles) {
+            List<Repository.FileInfo> candidates = deletedById.get(to.id);
+            if (Objects.isNull(candidates) || candidates.isEmpty()) {
+                continue;
+            }
+            Repository.FileInfo from = candidates.stream()
+                    .filter(f -> Objects.equals(basename(f.path), basename(to.path)))
+                    .findFirst().orElse(candidates.get(0));
+            candidates.remove(from);
+            paired.add(from);
+            paired.add(to);
+            renames.add(new Rename(from, to, 1.0));
+        }
+        deletedFiles.removeAll(paired);
+        addedFiles.removeAll(paired);
+    }
+
+    private static void detectSimilar(List<Repository.FileInfo> deletedFiles,
+                                      List<Repository.FileInfo> addedFiles,
+                                      Function<String, String> contentLoader,
+                                      List<Rename> renames) {
+        if (deletedFiles.isEmpty() || addedFiles.isEmpty()) {
+            return;
+        }
+        List<Repository.FileInfo> deleted = new ArrayList<>(deletedFiles);
+        List<Repository.FileInfo> added = new ArrayList<>(addedFiles);
+        long[][] deletedSignatures = new long[deleted.size()][];
+        Map<Long, List<Integer>> buckets = new HashMap<>();
+        for (int i = 0; i < deleted.size(); i++) {
+            deletedSignatures[i] = signature(contentLoader.apply(deleted.get(i).id));
+            if (Objects.isNull(deletedSignatures[i])) {
+                continue;
+            }
+            for (int band = 0; band < BANDS; band++) {
+                buckets.computeIfAbsent(bucketKey(deletedSignatures[i], band),
+                        k -> new LinkedList<>()).add(i);
+            }
+        }
+
+        // Candidate pairs: {similarity, deleted index, added index}.
+        List<double[]> pairs = new ArrayList<>();
+        Set<Integer> candidates = new HashSet<>();
+        for (int j = 0; j < added.size(); j++) {
+            long[] addedSignature = signature(contentLoader.apply(added.get(j).id));
+            if (Objects.isNull(addedSignature)) {
+                continue;
+            }
+            candidates.clear();
+            for (int band = 0; band < BANDS; band++) {
+                List<Integer> bucket = buckets.get(bucketKey(addedSignature, band));
+                if (Objects.nonNull(bucket)) {
+                    candidates.addAll(bucket);
+                }
+            }
+            for (int i : candidates) {
+                double similarity = similarity(deletedSignatures[i], addedSignature);
+                if (similarity >= DEFAULT_THRESHOLD) {
+                    pairs.add(new double[]{similarity, i, j});
+                }
+            }
+        }
+
+        // Greedily take the most similar pairs first, prefer files with the same name.
+        pairs.sort(Comparator.<double[]>comparingDouble(p -> -p[0])
+                .thenComparing(p -> !Objects.equals(
+                        basename(deleted.get((int) p[1]).path),
+                        basename(added.get((int) p[2]).path)))
+                .thenComparing(p -> deleted.get((int) p[1]).path)
+                .thenComparing(p -> added.get((int) p[2]).path));
+        boolean[] deletedPaired = new boolean[deleted.size()];
+        boolean[] addedPaired = new boolean[added.size()];
+        Set<Repository.FileInfo> paired = new HashSet<>();
+        for (double[] pair : pairs) {
+            int i = (int) pair[1];
+            int j = (int) pair[2];
+            if (deletedPaired[i] || addedPaired[j]) {
+                continue;
+            }
+            deletedPaired[i] = true;
+            addedPaired[j] = true;
+            renames.add(new Rename(deleted.get(i), added.get(j), pair[0]));
+            paired.add(deleted.get(i));
+            paired.add(added.get(j));
+        }
+        deletedFiles.removeAll(paired);
+        addedFiles.removeAll(paired);
+    }
+
+    /**
+     * Return the MinHash signature of the set of distinct lines of content,
+     * or null if content is empty.
+     */
+    static long[] signature(String content) {
+        Set<Long> shingles = new HashSet<>();
+        for (String line : Diff.splitLines(content)) {
+            shingles.add(mix(line.hashCode()));
+        }
+        if (shingles.isEmpty()) {
+            return null;
+        }
+        long[] signature = new long[SIGNATURE_SIZE];
+        for (int k = 0; k < SIGNATURE_SIZE; k++) {
+            long min = Long.MAX_VALUE;
+            for (long shingle : shingles) {
+                min = Math.min(min, mix(shingle ^ SEEDS[k]));
+            }
+            signature[k] = min;
+        }
+        return signature;
+    }
+
+    /**
+     * Estimate the Jaccard similarity as the fraction of agreeing signature slots.
+     */
+    static double similarity(long[] signature1, long[] signature2) {
+        int same = 0;
+        for (int k = 0; k < SIGNATURE_SIZE; k++) {
+            if (signature1[k] == signature2[k]) {
+                same += 1;
+            }
+        }
+        return 1.0 * same / SIGNATURE_SIZE;
+    }
+
+    private static long bucketKey(long[] signature, int band) {
+        long key = band;
+        for (int r = 0; r < ROWS; r++) {
+            key = mix(key ^ signature[band * ROWS + r]);
+        }
+        return key;
+    }
+
+    /**
+     * The finalizer of SplitMix64, a cheap and well mixed 64-bit hash.
+     */
+    private static long mix(long x) {
+        x = (x ^ (x >>> 30)) * 0xBF58476D1CE4E5B9L;
+        x = (x ^ (x >>> 27)) * 0x94D049BB133111EBL;
+        return x ^ (x >>> 31);
+    }
+
+    private static String basename(String path) {
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+}
@@ -1,13 +1,23 @@
 package gitlet;
 
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
 import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Serializable;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
@@ -17,48 +27,86 @@ import static gitlet.Utils.*;
 /**
  * Represents a gitlet repository.
  */
-public class Repository {
+public class Repository implements Closeable {
 
     /**
-     * The current working directory.
+     * The working directory.
      */
-    public static final File CWD = new File(System.getProperty("user.dir"));
+    public final File cwd;
 
     /**
-     * The .gitlet directory.
+     * The .gitlet directory, holds the HEAD and index of the working directory.
      */
-    public static final File GITLET_DIR = join(CWD, ".gitlet");
+    public final File gitletDir;
+
+    /**
+     * The common .gitlet directory, holds the objects and refs shared by all working
+     * trees. It is the .gitlet directory itself, except for a linked working tree.
+     */
+    public final File commonDir;
 
     /**
      * The object directory.
      */
-    public static final File OBJECT_DIR = join(GITLET_DIR, "objects");
+    public final File objectDir;
+
+    /**
+     * The pack directory, if it exists, objects are stored in a pack file instead of
+     * loose files.
+     */
+    public final File packDir;
 
     /**
      * The reference directory.
      */
-    public static final File REF_DIR = join(GITLET_DIR, "refs");
+    public final File refDir;
 
     /**
      * The branch head reference directory.
      */
-    public static final File HEADS_DIR = join(REF_DIR, "heads");
+    public final File headsDir;
 
     /**
      * The Head file.
      */
-    public static final File HEAD_FILE = join(GITLET_DIR, "HEAD");
+    public final File headFile;
 
     /**
      * The index file.
      */
-    public static final File INDEX_FILE = join(GITLET_DIR, "index");
+    public final File indexFile;
 
     /**
      * The global-log file to store all the commit ids ever made.
      * DOES NOT exist in real git.
      */
-    public static final File GLOBAL_LOG_FILE = join(REF_DIR, "global-log");
+    public final File globalLogFile;
+
+    /**
+     * The remotes file to store the names and directories of the remotes.
+     */
+    public final File remotesFile;
+
+    /**
+     * The worktrees file to store the directories of the linked working trees.
+     */
+    public final File worktreesFile;
+
+    /**
+     * The sparse-checkout file, holds the sparse-checkout patterns of the working tree.
+     */
+    public final File sparseCheckoutFile;
+
+    /**
+     * The blame cache directory, caches the commit ids of each line of a file in a commit.
+     * DOES NOT exist in real git.
+     */
+    public final File blameDir;
+
+    /**
+     * Files of at least this many bytes are stored as chunked blobs.
+     */
+    static final long CHUNKED_BLOB_THRESHOLD = 1024 * 1024;
 
     /**
      * Default branch name.
@@ -80,17 +128,76 @@ public class Repository {
      */
     static final SimpleDateFormat DATE_FORMAT = getDateFormat(DATE_PATTERN);
 
+    /**
+     * The environment variable to choose the object database of a new repository,
+     * `loose` (default) or `pack`.
+     */
+    static final String OBJECT_DB_ENV = "GITLET_OBJECT_DB";
+
+    /**
+     * The file in the .gitlet directory of a linked working tree, holds the path of
+     * the common .gitlet directory.
+     */
+    static final String COMMON_DIR_FILE_NAME = "commondir";
+
+    /**
+     * How long fetch and push wait for the lock of the remote repository.
+     */
+    static final long REMOTE_LOCK_TIMEOUT_MILLIS = 10000;
+
+    /**
+     * The object database of this repository, opened lazily.
+     */
+    private ObjectDatabase objectDatabase;
+
+    /**
+     * The sparse-checkout cone of the working tree, null if disabled, read lazily.
+     */
+    private SparseCheckout sparseCheckout;
+
+    private boolean sparseCheckoutRead;
+
+    /**
+     * Create the repository with the working directory cwd.
+     */
+    Repository(File cwd) {
+        this.cwd = cwd;
+        this.gitletDir = join(cwd, ".gitlet");
+        this.commonDir = commonDirOf(gitletDir);
+        this.objectDir = join(commonDir, "objects");
+        this.packDir = join(objectDir, "pack");
+        this.refDir = join(commonDir, "refs");
+        this.headsDir = join(refDir, "heads");
+        this.headFile = join(gitletDir, "HEAD");
+        this.indexFile = join(gitletDir, "index");
+        this.globalLogFile = join(refDir, "global-log");
+        this.remotesFile = join(commonDir, "remotes");
+        this.worktreesFile = join(commonDir, "worktrees");
+        this.blameDir = join(commonDir, "blame");
+        this.sparseCheckoutFile = join(gitletDir, "info", "sparse-checkout");
+    }
+
     /* COMMANDS */
 
-    static void initCmd() {
-        if (GITLET_DIR.exists()) {
+    void initCmd() {
+        initCmd(Objects.equals("pack", System.getenv(OBJECT_DB_ENV)));
+    }
+
+    /**
+     * Initialize the repository, objects are stored in a pack file if pack is true.
+     */
+    void initCmd(boolean pack) {
+        if (gitletDir.exists()) {
             throw error(
                     "A Gitlet version-control system already exists in the current directory.");
         }
-        createDir(GITLET_DIR);
-        createDir(OBJECT_DIR);
-        createDir(REF_DIR);
-        createDir(HEADS_DIR);
+        createDir(gitletDir);
+        createDir(objectDir);
+        if (pack) {
+            createDir(packDir);
+        }
+        createDir(refDir);
+        createDir(headsDir);
 
         Index index = new Index();
         writeIndex(index);
@@ -113,20 +220,24 @@ public class Repository {
         writeGlobalLog(globalLog);
     }
 
-    static void addCmd(String filePath) {
+    void addCmd(String filePath) {
         File file = pathToFile(filePath);
         if (!file.exists()) {
             throw error("File does not exist.");
         }
 
+        List<String> parts = pathToParts(relativePath(file));
+        if (!inSparseCone(parts, true)) {
+            throw error("The file is outside the sparse-checkout cone.");
+        }
         Blob blob = saveFileAsBlob(file);
 
         Index index = readIndex();
-        index.addLeaf(pathToParts(relativePath(file)), objId(blob));
+        index.addLeaf(parts, objId(blob));
         writeIndex(index);
     }
 
-    static void commitCmd(String message) {
+    void commitCmd(String message) {
         if (Objects.isNull(message) || message.trim().isEmpty()) {
             throw error("Please enter a commit message.");
         }
@@ -141,7 +252,7 @@ public class Repository {
         makeCommit(message, getHeadCommitId());
     }
 
-    private static void makeCommit(String message, String... parentCommitIds) {
+    private void makeCommit(String message, String... parentCommitIds) {
         Index index = readIndex();
         List<Tree> trees = indexToTrees(index);
         for (Tree tree : trees) {
@@ -164,7 +275,7 @@ public class Repository {
         writeGlobalLog(globalLog);
     }
 
-    static void rmCmd(String filePath) {
+    void rmCmd(String filePath) {
         File file = pathToFile(filePath);
         Index index = readIndex();
         Index commitIndex = treeToIndex(lookupObj(getHeadTreeId(), Tree.class));
@@ -190,17 +301,22 @@ public class Repository {
         }
     }
 
-    static void logCmd() {
+    void logCmd() {
         List<Commit> commits = lookupCommits(getHeadCommitId());
         printCommits(commits);
     }
 
-    static void globalLogCmd() {
+    void logAllCmd() {
+        forEachCommitFromAllBranches(commit -> true,
+                commit -> System.out.print(formatCommit(commit)));
+    }
+
+    void globalLogCmd() {
         List<Commit> commits = lookupGlobalCommits();
         printCommits(commits);
     }
 
-    static void findCmd(String message) {
+    void findCmd(String message) {
         List<Commit> commits = lookupGlobalCommits(commit ->
                 Objects.equals(message, commit.getMessage()));
         if (commits.isEmpty()) {
@@ -212,29 +328,61 @@ public class Repository {
         System.out.println(String.join("\n", commitIds));
     }
 
-    private static void printCommits(List<Commit> commits) {
+    void blameCmd(String filePath) {
+        blameCmd(getHeadCommitId(), filePath);
+    }
+
+    void blameCmd(String prefixOfCommitId, String filePath) {
+        String commitId;
+        try {
+            commitId = idFromPrefix(prefixOfCommitId);
+            lookupObj(commitId, Commit.class);
+        } catch (GitletException e) {
+            throw error("No commit with that id exists.");
+        }
+        String[] commitIds = Blame.blame(this, commitId, filePath);
+        List<String> lines = Diff.splitLines(blobContent(lookupBlob(commitId, filePath)));
+        int width = String.valueOf(lines.size()).length();
+        Map<String, Commit> commits = new HashMap<>();
+        StringBuilder sb = new StringBuilder();
+        int lineNumber = 1;
+        for (String line : lines) {
+            String id = commitIds[lineNumber - 1];
+            Commit commit = commits.computeIfAbsent(id, k -> lookupObj(k, Commit.class));
+            sb.append(String.format("%s (%s %" + width + "d) %s\n",
+                    shortId(id), DATE_FORMAT.format(commit.getDate()), lineNumber,
+                    line.endsWith("\n") ? line.substring(0, line.length() - 1) : line));
+            lineNumber += 1;
+        }
+        System.out.printf("%s", sb);
+    }
+
+    private void printCommits(List<Commit> commits) {
         StringBuilder sb = new StringBuilder();
         for (Commit commit : commits) {
-            String mergeInfo = commit.getParentIds().size() <= 1
-                    ? ""
-                    : "Merge: " + commit.getParentIds().stream()
-                    .map(Repository::shortId)
-                    .collect(Collectors.joining(" ")) + "\n";
-            sb.append(String.format("===\n"
-                            + "commit %s\n"
-                            + "%s"
-                            + "Date: %s\n"
-                            + "%s\n\n",
-                    objId(commit),
-                    mergeInfo,
-                    DATE_FORMAT.format(commit.getDate()),
-                    commit.getMessage())
-            );
+            sb.append(formatCommit(commit));
         }
         System.out.printf("%s", sb);
     }
 
-    static void statusCmd() {
+    private static String formatCommit(Commit commit) {
+        String mergeInfo = commit.getParentIds().size() <= 1
+                ? ""
+                : "Merge: " + commit.getParentIds().stream()
+                .map(Repository::shortId)
+                .collect(Collectors.joining(" ")) + "\n";
+        return String.format("===\n"
+                        + "commit %s\n"
+                        + "%s"
+                        + "Date: %s\n"
+                        + "%s\n\n",
+                objId(commit),
+                mergeInfo,
+                DATE_FORMAT.format(commit.getDate()),
+                commit.getMessage());
+    }
+
+    void statusCmd() {
         Head head = readHead();
         String currentBranch = head.getBranchName();
         List<String> branches = listBranchNames();
@@ -284,11 +432,11 @@ public class Repository {
         );
     }
 
-    static void checkoutFileCmd(String filePath) {
+    void checkoutFileCmd(String filePath) {
         checkoutFileCmd(getHeadCommitId(), filePath);
     }
 
-    static void checkoutFileCmd(String prefixOfCommitId, String filePath) {
+    void checkoutFileCmd(String prefixOfCommitId, String filePath) {
         String commitId;
         try {
             commitId = idFromPrefix(prefixOfCommitId);
@@ -305,7 +453,7 @@ public class Repository {
         restoreFile(pathToFile(filePath), blob);
     }
 
-    static void checkoutBranchCmd(String branchName) {
+    void checkoutBranchCmd(String branchName) {
         List<String> branchNames = listBranchNames();
         if (!branchNames.contains(branchName)) {
             throw error("No such branch exists.");
@@ -313,6 +461,9 @@ public class Repository {
         if (Objects.equals(branchName, getHeadBranchName())) {
             throw error("No need to checkout the current branch.");
         }
+        if (isCheckedOutElsewhere(branchName)) {
+            throw error("That branch is already checked out in another working tree.");
+        }
 
         String commitId = readBranch(branchName).getCommitId();
         Commit commit = lookupObj(commitId, Commit.class);
@@ -329,7 +480,7 @@ public class Repository {
         writeHead(head);
     }
 
-    static void branchCmd(String branchName) {
+    void branchCmd(String branchName) {
         List<String> branchNames = listBranchNames();
         if (branchNames.contains(branchName)) {
             throw error("A branch with that name already exists.");
@@ -338,7 +489,7 @@ public class Repository {
         writeBranch(branch);
     }
 
-    static void rmBranchCmd(String branchName) {
+    void rmBranchCmd(String branchName) {
         List<String> branchNames = listBranchNames();
         if (!branchNames.contains(branchName)) {
             throw error("A branch with that name does not exist.");
@@ -346,10 +497,13 @@ public class Repository {
         if (Objects.equals(branchName, getHeadBranchName())) {
             throw error("Cannot remove the current branch.");
         }
+        if (isCheckedOutElsewhere(branchName)) {
+            throw error("That branch is checked out in another working tree.");
+        }
         removeBranch(branchName);
     }
 
-    static void resetCmd(String prefixOfCommitId) {
+    void resetCmd(String prefixOfCommitId) {
         Commit commit;
         String commitId;
         try {
@@ -371,7 +525,7 @@ public class Repository {
         writeBranch(branch);
     }
 
-    static void mergeCmd(String branchName) {
+    void mergeCmd(String branchName) {
         validateNoUncommittedChanges();
         List<String> branchNames = listBranchNames();
         if (!branchNames.contains(branchName)) {
@@ -397,6 +551,12 @@ public class Repository {
             System.out.println("Given branch is an ancestor of the current branch.");
             return;
         } else if (Objects.equals(splitPointId, curCommitId)) {
+            // A fast-forward checks out the given branch, which can only be the
+            // current branch of one working tree.
+            if (isCheckedOutElsewhere(branchName)) {
+                throw error("Cannot fast-forward to a branch that is checked out"
+                        + " in another working tree.");
+            }
             checkoutBranchCmd(branchName);
             System.out.println("Current branch fast-forwarded.");
             return;
@@ -408,13 +568,16 @@ public class Repository {
                 givenModifiedMap = new HashMap<>(),
                 givenAddedMap = new HashMap<>(),
                 givenDeletedMap = new HashMap<>();
+        Map<String, FileInfo> curRenamedMap = new HashMap<>(),
+                givenRenamedMap = new HashMap<>();
         diffTreeChanges(splitPointTree, curTree,
-                curModifiedMap, curAddedMap, curDeletedMap);
+                curModifiedMap, curAddedMap, curDeletedMap, curRenamedMap);
         diffTreeChanges(splitPointTree, givenTree,
-                givenModifiedMap, givenAddedMap, givenDeletedMap);
+                givenModifiedMap, givenAddedMap, givenDeletedMap, givenRenamedMap);
 
-        boolean conflict = handleMerge(curModifiedMap, curAddedMap, curDeletedMap,
-                givenModifiedMap, givenAddedMap, givenDeletedMap);
+        boolean conflict = handleMerge(indexToPathMap(treeToIndex(splitPointTree, null)),
+                curModifiedMap, curAddedMap, curDeletedMap, curRenamedMap,
+                givenModifiedMap, givenAddedMap, givenDeletedMap, givenRenamedMap);
 
         makeCommit(String.format("Merged %s into %s.", branchName, getHeadBranchName()),
                 curCommitId, givenCommitId);
@@ -426,14 +589,55 @@ public class Repository {
     /**
      * Handle merge to update files and index, return true if encountered a merge conflict.
      */
-    private static boolean handleMerge(Map<String, String> curModifiedMap,
-                                       Map<String, String> curAddedMap,
-                                       Map<String, String> curDeletedMap,
-                                       Map<String, String> givenModifiedMap,
-                                       Map<String, String> givenAddedMap,
-                                       Map<String, String> givenDeletedMap) {
-        Index index = readIndex();
+    private boolean handleMerge(Map<String, String> splitPointMap,
+                                Map<String, String> curModifiedMap,
+                                Map<String, String> curAddedMap,
+                                Map<String, String> curDeletedMap,
+                                Map<String, FileInfo> curRenamedMap,
+                                Map<String, String> givenModifiedMap,
+                                Map<String, String> givenAddedMap,
+                                Map<String, String> givenDeletedMap,
+                                Map<String, FileInfo> givenRenamedMap) {
+        // Merge on the full index, files out of the sparse-checkout cone are merged
+        // into the index only and the index is collapsed again afterwards.
+        Index index = expandIndex(readIndex());
         boolean conflict = false;
+        for (Map.Entry<String, FileInfo> entry : givenRenamedMap.entrySet()) {
+            String oldPath = entry.getKey();
+            FileInfo renamed = entry.getValue();
+            if (curModifiedMap.containsKey(oldPath)
+                    && !addsPath(renamed.path, curAddedMap, curRenamedMap)) {
+                // Renamed in the given branch and modified in the current branch,
+                // merge the modification into the renamed file.
+                String curId = curModifiedMap.remove(oldPath);
+                conflict |= writeMergedFile(renamed.path,
+                        splitPointMap.get(oldPath), curId, renamed.id);
+                index.addLeaf(pathToParts(renamed.path), saveMergedFile(renamed.path));
+                deleteFile(pathToFile(oldPath));
+                index.removeLeaf(pathToParts(oldPath));
+            } else {
+                // Otherwise, treat it as being deleted and then added. If the current
+                // branch has its own file at the new path, both paths then conflict.
+                givenDeletedMap.put(oldPath, splitPointMap.get(oldPath));
+                givenAddedMap.put(renamed.path, renamed.id);
+            }
+        }
+        for (Map.Entry<String, FileInfo> entry : curRenamedMap.entrySet()) {
+            String oldPath = entry.getKey();
+            FileInfo renamed = entry.getValue();
+            if (givenModifiedMap.containsKey(oldPath)
+                    && !addsPath(renamed.path, givenAddedMap, givenRenamedMap)) {
+                // Renamed in the current branch and modified in the given branch,
+                // merge the modification into the renamed file.
+                String givenId = givenModifiedMap.remove(oldPath);
+                conflict |= writeMergedFile(renamed.path,
+                        splitPointMap.get(oldPath), renamed.id, givenId);
+                index.addLeaf(pathToParts(renamed.path), saveMergedFile(renamed.path));
+            } else {
+                curDeletedMap.put(oldPath, splitPointMap.get(oldPath));
+                curAddedMap.put(renamed.path, renamed.id);
+            }
+        }
         for (String path : givenDeletedMap.keySet()) {
             if (!curModifiedMap.containsKey(path)) {
                 // Any files present at the split point, unmodified in the current branch,
@@ -447,63 +651,435 @@ public class Repository {
                 // Any files that were not present at the split point and are present
                 // only in the given branch should be checked out and staged.
                 String id = givenAddedMap.get(path);
-                restoreFile(path, id);
+                restoreFileInSparseCone(path, id);
                 index.addLeaf(pathToParts(path), id);
             } else {
                 String curId = curAddedMap.get(path);
                 String givenId = givenAddedMap.get(path);
                 if (!Objects.equals(curId, givenId)) {
-                    // Conflict.
-                    conflict = true;
-                    writeConflictFile(path, curId, givenId);
-                    Blob blob = saveFileAsBlob(path);
-                    index.addLeaf(pathToParts(path), objId(blob));
+                    // Merge line by line, conflict if the changes overlap.
+                    conflict |= writeMergedFile(path, splitPointMap.get(path), curId, givenId);
+                    index.addLeaf(pathToParts(path), saveMergedFile(path));
                 }
             }
         }
         for (String path : curModifiedMap.keySet()) {
             if (givenDeletedMap.containsKey(path)) {
                 // Conflict.
-                conflict = true;
                 String curId = curModifiedMap.get(path);
-                writeConflictFile(path, curId, null);
-                Blob blob = saveFileAsBlob(path);
-                index.addLeaf(pathToParts(path), objId(blob));
+                conflict |= writeMergedFile(path, splitPointMap.get(path), curId, null);
+                index.addLeaf(pathToParts(path), saveMergedFile(path));
             }
         }
         for (String path : givenModifiedMap.keySet()) {
             if (curDeletedMap.containsKey(path)) {
                 String givenId = givenModifiedMap.get(path);
                 // Conflict.
-                conflict = true;
-                writeConflictFile(path, null, givenId);
-                Blob blob = saveFileAsBlob(path);
-                index.addLeaf(pathToParts(path), objId(blob));
+                conflict |= writeMergedFile(path, splitPointMap.get(path), null, givenId);
+                index.addLeaf(pathToParts(path), saveMergedFile(path));
             }
             if (!curModifiedMap.containsKey(path)) {
                 // Any files that have been modified in the given branch since the split
                 // point, but not modified in the current branch since the split point
                 // should be changed to their versions in the given branch.
                 String id = givenModifiedMap.get(path);
-                restoreFile(path, id);
+                restoreFileInSparseCone(path, id);
                 index.addLeaf(pathToParts(path), id);
             } else {
                 String curId = curModifiedMap.get(path);
                 String givenId = givenModifiedMap.get(path);
                 if (!Objects.equals(curId, givenId)) {
-                    // Conflict.
-                    conflict = true;
-                    writeConflictFile(path, curId, givenId);
-                    Blob blob = saveFileAsBlob(path);
-                    index.addLeaf(pathToParts(path), objId(blob));
+                    // Merge line by line, conflict if the changes overlap.
+                    conflict |= writeMergedFile(path, splitPointMap.get(path), curId, givenId);
+                    index.addLeaf(pathToParts(path), saveMergedFile(path));
                 }
             }
         }
-        writeIndex(index);
+        writeIndex(collapseIndex(index));
         return conflict;
     }
 
-    private static void validateNoUncommittedChanges() {
+    /**
+     * Return true if a branch added a file at path, or renamed a file to path.
+     */
+    private static boolean addsPath(String path, Map<String, String> addedMap,
+                                    Map<String, FileInfo> renamedMap) {
+        if (addedMap.containsKey(path)) {
+            return true;
+        }
+        for (FileInfo renamed : renamedMap.values()) {
+            if (Objects.equals(renamed.path, path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Save the merged file at path as a blob and return its id. A file out of the
+     * sparse-checkout cone is removed from the working directory after saved.
+     */
+    private String saveMergedFile(String path) {
+        String id = objId(saveFileAsBlob(path));
+        if (!inSparseCone(pathToParts(path), true)) {
+            deleteFileAndEmptyParents(pathToFile(path));
+        }
+        return id;
+    }
+
+    private void restoreFileInSparseCone(String path, String blobId) {
+        if (inSparseCone(pathToParts(path), true)) {
+            restoreFile(path, blobId);
+        }
+    }
+
+    /**
+     * Write the files of the commit into an archive file at outputPath, or to the
+     * standard output if outputPath is null.
+     */
+    void archiveCmd(String prefixOfCommitId, Archive.Format format, String outputPath) {
+        Commit commit;
+        try {
+            commit = lookupObj(idFromPrefix(prefixOfCommitId), Commit.class);
+        } catch (GitletException e) {
+            throw error("No commit with that id exists.");
+        }
+        File outputFile = Objects.isNull(outputPath) ? null : new File(outputPath);
+        if (Objects.nonNull(outputFile) && !outputFile.isAbsolute()) {
+            outputFile = join(cwd, outputPath);
+        }
+        try (OutputStream out = new BufferedOutputStream(Objects.isNull(outputFile)
+                ? new FileOutputStream(FileDescriptor.out)
+                : Files.newOutputStream(outputFile.toPath()))) {
+            Archive.write(this, commit, format, out);
+        } catch (IOException e) {
+            throw error("Cannot write the archive: %s", e.getMessage());
+        }
+    }
+
+    /**
+     * Create a linked working tree in dirPath with the branch checked out. It has its
+     * own HEAD and index, and shares the objects and refs with this repository.
+     */
+    void worktreeAddCmd(String dirPath, String branchName) {
+        if (!listBranchNames().contains(branchName)) {
+            throw error("No such branch exists.");
+        }
+        if (isCheckedOutElsewhere(branchName) || Objects.equals(branchName, getHeadBranchName())) {
+            throw error("That branch is already checked out in another working tree.");
+        }
+        File dir = new File(dirPath);
+        if (!dir.isAbsolute()) {
+            dir = join(cwd, dirPath);
+        }
+        dir = dir.toPath().normalize().toFile();
+        if (dir.exists() && (!dir.isDirectory() || dir.list().length > 0)) {
+            throw error("A file or directory with that name already exists.");
+        }
+
+        File worktreeGitletDir = join(dir, ".gitlet");
+        worktreeGitletDir.mkdirs();
+        writeContents(join(worktreeGitletDir, COMMON_DIR_FILE_NAME), commonDir.getAbsolutePath());
+        try (Repository worktree = new Repository(dir)) {
+            Commit commit = lookupObj(readBranch(branchName).getCommitId(), Commit.class);
+            Tree tree = lookupObj(commit.getTreeId(), Tree.class);
+            worktree.restoreDir(new LinkedList<>(), tree);
+            worktree.writeIndex(worktree.treeToIndex(tree));
+            Head head = new Head();
+            head.setBranchName(branchName);
+            worktree.writeHead(head);
+        }
+
+        Worktrees worktrees = readWorktrees();
+        worktrees.getDirs().add(dir.getAbsolutePath());
+        writeWorktrees(worktrees);
+    }
+
+    /**
+     * Print the working trees sharing this repository and their current branches,
+     * the main working tree first.
+     */
+    void worktreeListCmd() {
+        StringBuilder sb = new StringBuilder();
+        for (Repository worktree : listWorktrees()) {
+            sb.append(worktree.cwd.getAbsolutePath()).append(" ");
+            Head head = worktree.readHead();
+            if (Objects.nonNull(head.getBranchName())) {
+                sb.append("[").append(head.getBranchName()).append("]");
+            } else {
+                sb.append("(detached ").append(shortId(head.getCommitId())).append(")");
+            }
+            sb.append("\n");
+        }
+        System.out.print(sb);
+    }
+
+    /**
+     * Limit the checked out directories to dirPaths (and the files directly in their
+     * parent directories), or check out all files again if dirPaths is null.
+     */
+    void sparseCheckoutSetCmd(List<String> dirPaths) {
+        validateNoUncommittedChanges();
+        List<String> modifiedFiles = new LinkedList<>();
+        List<String> deletedFiles = new LinkedList<>();
+        diffNotStagedFiles(modifiedFiles, deletedFiles);
+        if (!modifiedFiles.isEmpty() || !deletedFiles.isEmpty()) {
+            throw error("You have uncommitted changes.");
+        }
+
+        SparseCheckout oldCone = sparseCheckout();
+        SparseCheckout newCone = null;
+        if (Objects.nonNull(dirPaths)) {
+            List<String> patterns = new LinkedList<>();
+            for (String dirPath : dirPaths) {
+                patterns.add(String.join("/", pathToParts(relativePath(dirPath))));
+            }
+            newCone = new SparseCheckout(patterns);
+        }
+        Tree tree = lookupObj(getHeadTreeId(), Tree.class);
+        updateSparseWd(tree, new LinkedList<>(), oldCone, newCone);
+
+        if (Objects.isNull(newCone)) {
+            deleteFile(sparseCheckoutFile);
+        } else {
+            newCone.write(sparseCheckoutFile);
+        }
+        setSparseCheckout(newCone);
+        writeIndex(treeToIndex(tree));
+    }
+
+    void sparseCheckoutListCmd() {
+        SparseCheckout cone = sparseCheckout();
+        if (Objects.isNull(cone)) {
+            return;
+        }
+        StringBuilder sb = new StringBuilder();
+        for (String pattern : cone.getPatterns()) {
+            sb.append(pattern).append("\n");
+        }
+        System.out.print(sb);
+    }
+
+    /**
+     * Rewrite the objects, branches, and the HEAD and index of every working tree that
+     * were written by Java serialization in the format of Codec. Objects are copied
+     * into a new object directory, which replaces the old one when all are copied, so
+     * an interrupted migration leaves the repository as it was.
+     */
+    void migrateCmd() {
+        ObjectDatabase database = objectDatabase();
+        File newObjectDir = join(commonDir, "objects.migrate");
+        File oldObjectDir = join(commonDir, "objects.old");
+        deleteFileOrDir(newObjectDir);
+        createDir(newObjectDir);
+        ObjectDatabase newDatabase;
+        if (packDir.isDirectory()) {
+            File newPackDir = join(newObjectDir, "pack");
+            createDir(newPackDir);
+            newDatabase = new PackObjectDatabase(newPackDir);
+        } else {
+            newDatabase = new LooseObjectDatabase(newObjectDir);
+        }
+        for (int i = 0; i < 256; i++) {
+            for (String id : database.idsWithPrefix(String.format("%02x", i))) {
+                newDatabase.write(id, Codec.migrate(database.read(id)));
+            }
+        }
+        // Release the pack files before their directories are moved.
+        newDatabase.close();
+        setObjectDatabase(null);
+        try {
+            deleteFileOrDir(oldObjectDir);
+            Files.move(objectDir.toPath(), oldObjectDir.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            Files.move(newObjectDir.toPath(), objectDir.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException excp) {
+            throw error("Cannot replace the object directory: %s", excp.getMessage());
+        }
+        deleteFileOrDir(oldObjectDir);
+
+        for (String branchName : listBranchNames()) {
+            writeBranch(readBranch(branchName));
+        }
+        for (Repository worktree : listWorktrees()) {
+            worktree.writeHead(worktree.readHead());
+            worktree.writeIndex(worktree.readIndex());
+        }
+    }
+
+    void addRemoteCmd(String remoteName, String remotePath) {
+        Remotes remotes = readRemotes();
+        if (remotes.getDirs().containsKey(remoteName)) {
+            throw error("A remote with that name already exists.");
+        }
+        remotes.getDirs().put(remoteName, remotePath.replace("/", File.separator));
+        writeRemotes(remotes);
+    }
+
+    void rmRemoteCmd(String remoteName) {
+        Remotes remotes = readRemotes();
+        if (!remotes.getDirs().containsKey(remoteName)) {
+            throw error("A remote with that name does not exist.");
+        }
+        remotes.getDirs().remove(remoteName);
+        writeRemotes(remotes);
+    }
+
+    /**
+     * Return the directory holding the objects and refs of the repository with the
+     * .gitlet directory, which is itself unless it is a linked working tree.
+     */
+    static File commonDirOf(File gitletDir) {
+        File commonDirFile = join(gitletDir, COMMON_DIR_FILE_NAME);
+        return commonDirFile.isFile()
+                ? new File(readContentsAsString(commonDirFile))
+                : gitletDir;
+    }
+
+    /**
+     * Lock the remote repository with the .gitlet directory, a shared lock if shared is
+     * true, otherwise an exclusive lock. Return null if the remote is this repository,
+     * whose lock the command already holds.
+     */
+    private RepositoryLock lockRemote(File remoteDir, boolean shared) {
+        try {
+            if (Files.isSameFile(commonDirOf(remoteDir).toPath(), commonDir.toPath())) {
+                return null;
+            }
+        } catch (IOException e) {
+            throw error("Remote directory not found.");
+        }
+        return RepositoryLock.acquireWithin(remoteDir, shared, REMOTE_LOCK_TIMEOUT_MILLIS);
+    }
+
+    @SuppressWarnings("try")
+    void fetchCmd(String remoteName, String remoteBranchName) {
+        File remoteDir = remoteGitletDir(remoteName);
+        File remoteBranchFile = join(remoteDir, "refs", "heads", remoteBranchName);
+        if (!remoteBranchFile.isFile()) {
+            throw error("That remote does not have that branch.");
+        }
+        String commitId;
+        List<String> commitIds;
+        try (RepositoryLock ignored = lockRemote(remoteDir, true);
+             ObjectDatabase remoteDatabase = openObjectDatabase(remoteDir)) {
+            commitId = Codec.read(remoteBranchFile, Branch.class).getCommitId();
+            commitIds = Transfer.transfer(remoteDatabase,
+                    objectDatabase(), commitId, join(gitletDir, "FETCH_PACK"));
+        }
+
+        writeBranch(new Branch(remoteName + "/" + remoteBranchName, commitId));
+        GlobalLog globalLog = readGlobalLog();
+        globalLog.getCommitIds().addAll(commitIds);
+        writeGlobalLog(globalLog);
+    }
+
+    @SuppressWarnings("try")
+    void pushCmd(String remoteName, String remoteBranchName) {
+        File remoteDir = remoteGitletDir(remoteName);
+        File remoteBranchFile = join(remoteDir, "refs", "heads", remoteBranchName);
+        String headCommitId = getHeadCommitId();
+        try (RepositoryLock ignored = lockRemote(remoteDir, false);
+             ObjectDatabase remoteDatabase = openObjectDatabase(remoteDir)) {
+            if (remoteBranchFile.isFile()) {
+                String remoteCommitId = Codec.read(remoteBranchFile, Branch.class).getCommitId();
+                if (!isAncestor(remoteCommitId, headCommitId)) {
+                    throw error("Please pull down remote changes before pushing.");
+                }
+            }
+            List<String> commitIds = Transfer.transfer(objectDatabase(),
+                    remoteDatabase, headCommitId, join(remoteDir, "PUSH_PACK"));
+
+            Codec.write(remoteBranchFile, new Branch(remoteBranchName, headCommitId));
+            File remoteGlobalLogFile = join(remoteDir, "refs", "global-log");
+            GlobalLog globalLog = readObject(remoteGlobalLogFile, GlobalLog.class);
+            globalLog.getCommitIds().addAll(commitIds);
+            writeObject(remoteGlobalLogFile, globalLog);
+        }
+    }
+
+    void pullCmd(String remoteName, String remoteBranchName) {
+        fetchCmd(remoteName, remoteBranchName);
+        mergeCmd(remoteName + "/" + remoteBranchName);
+    }
+
+    /**
+     * Show changes between two sides as unified diffs, limited to filePath if it is
+     * not null. With no commit, compare the index with the working tree; with one
+     * commit, compare the commit with the working tree; with two commits, compare
+     * the two commits.
+     */
+    void diffCmd(List<String> prefixesOfCommitIds, String filePath,
+                 Diff.Algorithm algorithm) {
+        List<String> commitIds = new LinkedList<>();
+        for (String prefixOfCommitId : prefixesOfCommitIds) {
+            try {
+                String commitId = idFromPrefix(prefixOfCommitId);
+                lookupObj(commitId, Commit.class);
+                commitIds.add(commitId);
+            } catch (GitletException e) {
+                throw error("No commit with that id exists.");
+            }
+        }
+        Map<String, String> fromPathMap = commitIds.isEmpty()
+                ? indexToPathMap(readIndex())
+                : commitToPathMap(commitIds.get(0));
+        Map<String, String> toPathMap;
+        boolean toWorkingTree = commitIds.size() < 2;
+        if (toWorkingTree) {
+            // Only files tracked by the index or the from side are compared.
+            toPathMap = new HashMap<>();
+            Set<String> trackedPaths = new HashSet<>(fromPathMap.keySet());
+            trackedPaths.addAll(indexToPathMap(readIndex()).keySet());
+            for (String path : trackedPaths) {
+                if (pathToFile(path).isFile()) {
+                    toPathMap.put(path, objId(createBlob(path)));
+                }
+            }
+        } else {
+            toPathMap = commitToPathMap(commitIds.get(1));
+        }
+
+        String prefix = Objects.isNull(filePath) ? null : relativePath(filePath);
+        TreeSet<String> paths = new TreeSet<>(fromPathMap.keySet());
+        paths.addAll(toPathMap.keySet());
+        StringBuilder sb = new StringBuilder();
+        for (String path : paths) {
+            if (Objects.nonNull(prefix) && !isPathUnder(path, prefix)) {
+                continue;
+            }
+            String fromId = fromPathMap.get(path);
+            String toId = toPathMap.get(path);
+            if (Objects.equals(fromId, toId)) {
+                continue;
+            }
+            List<String> fromLines = Objects.isNull(fromId)
+                    ? List.of() : Diff.splitLines(blobContent(fromId));
+            List<String> toLines;
+            if (Objects.isNull(toId)) {
+                toLines = List.of();
+            } else if (toWorkingTree) {
+                toLines = Diff.splitLines(readContentsAsString(pathToFile(path)));
+            } else {
+                toLines = Diff.splitLines(blobContent(toId));
+            }
+            sb.append(String.format("diff --git a/%s b/%s\n", path, path));
+            sb.append(Objects.isNull(fromId) ? "--- /dev/null\n" : "--- a/" + path + "\n");
+            sb.append(Objects.isNull(toId) ? "+++ /dev/null\n" : "+++ b/" + path + "\n");
+            List<Diff.Edit> edits = Diff.diff(fromLines, toLines, algorithm);
+            sb.append(Diff.unified(fromLines, toLines, edits, Diff.DEFAULT_CONTEXT));
+        }
+        System.out.printf("%s", sb);
+    }
+
+    /**
+     * Check if the relative path is the given prefix path or lies under it.
+     */
+    private boolean isPathUnder(String path, String prefix) {
+        String dir = prefix.endsWith("/") ? prefix : prefix + "/";
+        return Objects.equals(path, prefix) || path.startsWith(dir);
+    }
+
+    private void validateNoUncommittedChanges() {
         List<String> stagedFiles = new LinkedList<>();
         List<String> removedFiles = new LinkedList<>();
         diffStagedFiles(stagedFiles, removedFiles);
@@ -512,7 +1088,7 @@ public class Repository {
         }
     }
 
-    private static void validateNoFilesOverwriting(Tree givenTree) {
+    private void validateNoFilesOverwriting(Tree givenTree) {
         List<String> untrackedFiles = new LinkedList<>();
         diffUntrackedFiles(untrackedFiles);
         if (anyFileInTree(givenTree, untrackedFiles)) {
@@ -523,21 +1099,21 @@ public class Repository {
 
     /* REFERENCE UTILS */
 
-    static Head readHead() {
-        return readObject(HEAD_FILE, Head.class);
+    Head readHead() {
+        return Codec.read(headFile, Head.class);
     }
 
-    static void writeHead(Head head) {
-        writeObject(HEAD_FILE, head);
+    void writeHead(Head head) {
+        Codec.write(headFile, head);
     }
 
-    static String getHeadTreeId() {
+    String getHeadTreeId() {
         String commitId = getHeadCommitId();
         Commit commit = lookupObj(commitId, Commit.class);
         return commit.getTreeId();
     }
 
-    static String getHeadCommitId() {
+    String getHeadCommitId() {
         Head head = readHead();
         if (Objects.isNull(head)) {
             return null;
@@ -550,33 +1126,148 @@ public class Repository {
         }
     }
 
-    static String getHeadBranchName() {
+    String getHeadBranchName() {
         Head head = readHead();
         return head.getBranchName();
     }
 
-    static List<String> listBranchNames() {
-        return plainFilenamesIn(HEADS_DIR);
+    /**
+     * List the names of all branches in lexicographic order, a branch fetched from
+     * a remote is named [remote name]/[branch name].
+     */
+    List<String> listBranchNames() {
+        List<String> branchNames = new ArrayList<>(plainFilenamesIn(headsDir));
+        for (File dir : Objects.requireNonNull(headsDir.listFiles(File::isDirectory))) {
+            for (String name : Objects.requireNonNull(plainFilenamesIn(dir))) {
+                branchNames.add(dir.getName() + "/" + name);
+            }
+        }
+        Collections.sort(branchNames);
+        return branchNames;
+    }
+
+    Branch readBranch(String branchName) {
+        return Codec.read(join(headsDir, branchName), Branch.class);
+    }
+
+    void writeBranch(Branch branch) {
+        File file = join(headsDir, branch.getName());
+        if (!file.getParentFile().exists()) {
+            createDir(file.getParentFile());
+        }
+        Codec.write(file, branch);
     }
 
-    static Branch readBranch(String branchName) {
-        return readObject(join(HEADS_DIR, branchName), Branch.class);
+    void removeBranch(String branchName) {
+        deleteFile(join(headsDir, branchName));
     }
 
-    static void writeBranch(Branch branch) {
-        writeObject(join(HEADS_DIR, branch.getName()), branch);
+    Remotes readRemotes() {
+        if (!remotesFile.exists()) {
+            return new Remotes();
+        }
+        return readObject(remotesFile, Remotes.class);
     }
 
-    static void removeBranch(String branchName) {
-        deleteFile(join(HEADS_DIR, branchName));
+    void writeRemotes(Remotes remotes) {
+        writeObject(remotesFile, remotes);
     }
 
-    static GlobalLog readGlobalLog() {
-        return readObject(GLOBAL_LOG_FILE, GlobalLog.class);
+    /**
+     * Return the .gitlet directory of the remote, throw error if not exists.
+     */
+    File remoteGitletDir(String remoteName) {
+        String path = readRemotes().getDirs().get(remoteName);
+        if (Objects.isNull(path)) {
+            throw error("A remote with that name does not exist.");
+        }
+        File dir = new File(path);
+        if (!dir.isAbsolute()) {
+            dir = join(cwd, path);
+        }
+        if (!dir.isDirectory()) {
+            throw error("Remote directory not found.");
+        }
+        return dir;
     }
 
-    static void writeGlobalLog(GlobalLog globalLog) {
-        writeObject(GLOBAL_LOG_FILE, globalLog);
+    static class Remotes implements Serializable {
+        /* The computed value, so remotes files written before it was declared stay readable. */
+        private static final long serialVersionUID = 9072022920369162659L;
+
+        Map<String, String> dirs;
+
+        Remotes() {
+            this.dirs = new TreeMap<>();
+        }
+
+        public Map<String, String> getDirs() {
+            return dirs;
+        }
+    }
+
+    Worktrees readWorktrees() {
+        if (!worktreesFile.exists()) {
+            return new Worktrees();
+        }
+        return readObject(worktreesFile, Worktrees.class);
+    }
+
+    void writeWorktrees(Worktrees worktrees) {
+        writeObject(worktreesFile, worktrees);
+    }
+
+    /**
+     * Return all working trees sharing the objects and refs, the main working tree
+     * first. Linked working trees whose directories are removed are skipped.
+     */
+    List<Repository> listWorktrees() {
+        List<Repository> worktrees = new LinkedList<>();
+        worktrees.add(new Repository(commonDir.getAbsoluteFile().getParentFile()));
+        for (String dir : readWorktrees().getDirs()) {
+            if (join(dir, ".gitlet", COMMON_DIR_FILE_NAME).isFile()) {
+                worktrees.add(new Repository(new File(dir)));
+            }
+        }
+        return worktrees;
+    }
+
+    /**
+     * Check if the branch is the current branch of another working tree.
+     */
+    boolean isCheckedOutElsewhere(String branchName) {
+        for (Repository worktree : listWorktrees()) {
+            if (Objects.equals(worktree.gitletDir.getAbsoluteFile(), gitletDir.getAbsoluteFile())) {
+                continue;
+            }
+            if (Objects.equals(branchName, worktree.getHeadBranchName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static class Worktrees implements Serializable {
+        /* The computed value, so worktrees files written before it was declared stay readable. */
+        private static final long serialVersionUID = -4723866107213478163L;
+
+        Set<String> dirs;
+
+        Worktrees() {
+            this.dirs = new TreeSet<>();
+        }
+
+        public Set<String> getDirs() {
+            return dirs;
+        }
+    }
+
+    GlobalLog readGlobalLog() {
+        return readObject(globalLogFile, GlobalLog.class);
+    }
+
+    void writeGlobalLog(GlobalLog globalLog) {
+        writeObject(globalLogFile, globalLog);
     }
 
     static class GlobalLog implements Serializable {
@@ -591,20 +1282,129 @@ public class Repository {
         }
     }
 
+    /* SPARSE CHECKOUT UTILS */
+
+    /**
+     * Return the sparse-checkout cone of the working tree, null if disabled.
+     */
+    SparseCheckout sparseCheckout() {
+        if (!sparseCheckoutRead) {
+            sparseCheckout = SparseCheckout.read(sparseCheckoutFile);
+            sparseCheckoutRead = true;
+        }
+        return sparseCheckout;
+    }
+
+    void setSparseCheckout(SparseCheckout cone) {
+        sparseCheckout = cone;
+        sparseCheckoutRead = true;
+    }
+
+    /**
+     * Check if the file (or directory) with the path parts is in the sparse-checkout
+     * cone, always true if sparse checkout is disabled.
+     */
+    boolean inSparseCone(List<String> parts, boolean isFile) {
+        SparseCheckout cone = sparseCheckout();
+        if (Objects.isNull(cone)) {
+            return true;
+        }
+        return isFile ? cone.containsFile(parts) : cone.containsDir(parts);
+    }
+
+    /**
+     * Check out the files of the tree that enter the cone from oldCone to newCone,
+     * and remove the files that leave it. Directories out of both cones are skipped.
+     */
+    private void updateSparseWd(Tree tree, List<String> parts,
+                                SparseCheckout oldCone, SparseCheckout newCone) {
+        for (Tree.Entry entry : tree.getEntryMap().values()) {
+            parts.add(entry.name);
+            if (entry.isTree()) {
+                if (Objects.isNull(oldCone) || Objects.isNull(newCone)
+                        || oldCone.containsDir(parts) || newCone.containsDir(parts)) {
+                    updateSparseWd(lookupObj(entry.id, Tree.class), parts, oldCone, newCone);
+                }
+            } else {
+                boolean wasIn = Objects.isNull(oldCone) || oldCone.containsFile(parts);
+                boolean isIn = Objects.isNull(newCone) || newCone.containsFile(parts);
+                File file = pathToFile(partsToPath(parts));
+                if (isIn && !wasIn) {
+                    restoreFile(file, lookupObj(entry.id, Blob.class));
+                } else if (!isIn && wasIn) {
+                    deleteFileAndEmptyParents(file);
+                }
+            }
+            parts.remove(parts.size() - 1);
+        }
+    }
+
+    /**
+     * Replace the sparse nodes of the index with the nodes of their trees.
+     */
+    Index expandIndex(Index index) {
+        expandIndexHelper(index.root);
+        return index;
+    }
+
+    private void expandIndexHelper(Index.Node node) {
+        for (Index.Node childNode : new ArrayList<>(node.childMap.values())) {
+            if (Index.isSparse(childNode)) {
+                Index.Node expanded = new Index.Node(childNode.name, null, new TreeMap<>());
+                treeToIndexHelper(lookupObj(childNode.id, Tree.class), expanded,
+                        new LinkedList<>(), null);
+                node.childMap.put(childNode.name, expanded);
+            } else if (!Index.isLeaf(childNode)) {
+                expandIndexHelper(childNode);
+            }
+        }
+    }
+
+    /**
+     * Replace the directories out of the sparse-checkout cone with sparse nodes,
+     * the trees of those directories are saved.
+     */
+    Index collapseIndex(Index index) {
+        if (Objects.nonNull(sparseCheckout())) {
+            collapseIndexHelper(index.root, new LinkedList<>());
+        }
+        return index;
+    }
+
+    private void collapseIndexHelper(Index.Node node, List<String> parts) {
+        for (Index.Node childNode : new ArrayList<>(node.childMap.values())) {
+            if (Index.isLeaf(childNode) || Index.isSparse(childNode)) {
+                continue;
+            }
+            parts.add(childNode.name);
+            if (inSparseCone(parts, false)) {
+                collapseIndexHelper(childNode, parts);
+            } else {
+                List<Tree> trees = new LinkedList<>();
+                String treeId = indexToTreesHelper(childNode, trees);
+                for (Tree tree : trees) {
+                    putObj(tree);
+                }
+                node.childMap.put(childNode.name, Index.Node.sparseDir(childNode.name, treeId));
+            }
+            parts.remove(parts.size() - 1);
+        }
+    }
+
     /* INDEX UTILS */
 
-    static Index readIndex() {
-        return readObject(INDEX_FILE, Index.class);
+    Index readIndex() {
+        return Codec.read(indexFile, Index.class);
     }
 
-    static void writeIndex(Index index) {
-        writeObject(INDEX_FILE, index);
+    void writeIndex(Index index) {
+        Codec.write(indexFile, index);
     }
 
     /**
      * Diff index with current commit to get staged files.
      */
-    static void diffStagedFiles(List<String> stagedFiles, List<String> removedFiles) {
+    void diffStagedFiles(List<String> stagedFiles, List<String> removedFiles) {
         Map<String, String> indexPathMap = indexToPathMap(readIndex());
         Tree tree = lookupObj(getHeadTreeId(), Tree.class);
         Map<String, String> commitPathMap = indexToPathMap(treeToIndex(tree));
@@ -627,9 +1427,9 @@ public class Repository {
     /**
      * Diff index with current working directory to get not staged files.
      */
-    static void diffNotStagedFiles(List<String> modifiedFiles, List<String> deletedFiles) {
+    void diffNotStagedFiles(List<String> modifiedFiles, List<String> deletedFiles) {
         Map<String, String> indexPathMap = indexToPathMap(readIndex());
-        Set<String> cwdFilePaths = listAllFilePaths(CWD);
+        Set<String> cwdFilePaths = listAllFilePaths(cwd);
         for (String path : indexPathMap.keySet()) {
             if (!cwdFilePaths.contains(path)) {
                 deletedFiles.add(path);
@@ -645,14 +1445,16 @@ public class Repository {
      * Diff index with current working directory to get untracked files.
      * Like real git, if all files in a directory is untracked, use the directory instead of files.
      */
-    static void diffUntrackedFiles(List<String> untrackedFiles) {
+    void diffUntrackedFiles(List<String> untrackedFiles) {
         Index index = readIndex();
-        diffUntrackedFilesHelper(index.root, CWD, new LinkedList<>(), untrackedFiles);
+        long start = Trace.start();
+        diffUntrackedFilesHelper(index.root, cwd, new LinkedList<>(), untrackedFiles);
+        Trace.end(Trace.Phase.WALK_WORKTREE, start, 0);
         Collections.sort(untrackedFiles);
     }
 
-    private static void diffUntrackedFilesHelper(Index.Node node, File dir, List<String> parts,
-                                                 List<String> untrackedFiles) {
+    private void diffUntrackedFilesHelper(Index.Node node, File dir, List<String> parts,
+                                          List<String> untrackedFiles) {
         for (File file : Objects.requireNonNull(listFiles(dir))) {
             String filename = file.getName();
             parts.add(filename);
@@ -663,7 +1465,7 @@ public class Repository {
             } else {
                 if (!node.childMap.containsKey(filename)) {
                     untrackedFiles.add(relativePath(partsToPath(parts)));
-                } else {
+                } else if (!Index.isSparse(node.childMap.get(filename))) {
                     diffUntrackedFilesHelper(
                             node.childMap.get(filename), file, parts, untrackedFiles);
                 }
@@ -675,7 +1477,7 @@ public class Repository {
     /**
      * Check if there are any given files in the tree.
      */
-    private static boolean anyFileInTree(Tree tree, List<String> filePaths) {
+    private boolean anyFileInTree(Tree tree, List<String> filePaths) {
         Map<String, String> pathMap = indexToPathMap(treeToIndex(tree));
         for (String filePath : filePaths) {
             if (pathMap.containsKey(filePath)) {
@@ -688,14 +1490,18 @@ public class Repository {
     /**
      * Return map of filepath -> id
      */
-    static Map<String, String> indexToPathMap(Index index) {
+    Map<String, String> indexToPathMap(Index index) {
         Map<String, String> pathToId = new HashMap<>();
         indexToPathMapHelper(index.root, new LinkedList<>(), pathToId);
         return pathToId;
     }
 
-    private static void indexToPathMapHelper(Index.Node node, List<String> parts,
-                                             Map<String, String> pathToId) {
+    private void indexToPathMapHelper(Index.Node node, List<String> parts,
+                                      Map<String, String> pathToId) {
+        if (Index.isSparse(node)) {
+            // Files out of the sparse-checkout cone are not listed.
+            return;
+        }
         parts.add(node.name);
         if (Index.isLeaf(node)) {
             pathToId.put(relativePath(partsToPath(parts)), node.id);
@@ -708,14 +1514,22 @@ public class Repository {
         parts.remove(parts.size() - 1);
     }
 
-    static List<Tree> indexToTrees(Index index) {
+    /**
+     * Return map of filepath -> blob id of all files in a commit.
+     */
+    Map<String, String> commitToPathMap(String commitId) {
+        Commit commit = lookupObj(commitId, Commit.class);
+        return indexToPathMap(treeToIndex(lookupObj(commit.getTreeId(), Tree.class)));
+    }
+
+    List<Tree> indexToTrees(Index index) {
         List<Tree> trees = new LinkedList<>();
         indexToTreesHelper(index.root, trees);
         return trees;
     }
 
-    private static String indexToTreesHelper(Index.Node node, List<Tree> trees) {
-        if (Index.isLeaf(node)) {
+    private String indexToTreesHelper(Index.Node node, List<Tree> trees) {
+        if (Index.isLeaf(node) || Index.isSparse(node)) {
             return node.id;
         }
         Map<String, Tree.Entry> entryMap = new HashMap<>();
@@ -734,49 +1548,88 @@ public class Repository {
         return objId(newTree);
     }
 
-    static Index treeToIndex(Tree tree) {
+    /**
+     * Return the index of the tree, directories out of the sparse-checkout cone are
+     * collapsed into sparse nodes.
+     */
+    Index treeToIndex(Tree tree) {
+        return treeToIndex(tree, sparseCheckout());
+    }
+
+    /**
+     * Return the index of the tree, directories out of cone are collapsed into sparse
+     * nodes. If cone is null, the full index is returned.
+     */
+    Index treeToIndex(Tree tree, SparseCheckout cone) {
         Index index = new Index();
-        treeToIndexHelper(tree, index.root);
+        treeToIndexHelper(tree, index.root, new LinkedList<>(), cone);
         return index;
     }
 
-    private static void treeToIndexHelper(Tree tree, Index.Node node) {
+    private void treeToIndexHelper(Tree tree, Index.Node node, List<String> parts,
+                                   SparseCheckout cone) {
         for (Tree.Entry entry : tree.getEntryMap().values()) {
             if (entry.isBlob()) {
                 node.childMap.put(entry.name, new Index.Node(entry.name, entry.id));
             } else if (entry.isTree()) {
-                Index.Node childNode = new Index.Node(entry.name, null, new TreeMap<>());
-                Tree childTree = lookupObj(entry.id, Tree.class);
-                treeToIndexHelper(childTree, childNode);
-                node.childMap.put(entry.name, childNode);
+                parts.add(entry.name);
+                if (Objects.nonNull(cone) && !cone.containsDir(parts)) {
+                    node.childMap.put(entry.name, Index.Node.sparseDir(entry.name, entry.id));
+                } else {
+                    Index.Node childNode = new Index.Node(entry.name, null, new TreeMap<>());
+                    Tree childTree = lookupObj(entry.id, Tree.class);
+                    treeToIndexHelper(childTree, childNode, parts, cone);
+                    node.childMap.put(entry.name, childNode);
+                }
+                parts.remove(parts.size() - 1);
             }
         }
     }
 
     /**
-     * Diff two trees to get modified, added and deleted maps,
-     * map entry is filepath -> id.
+     * Diff two trees to get modified, added, deleted and renamed maps,
+     * map entry is filepath -> id, renamed map entry is old filepath -> new file.
      */
-    static void diffTreeChanges(Tree fromTree, Tree toTree,
-                                Map<String, String> modifiedMap,
-                                Map<String, String> addedMap,
-                                Map<String, String> deletedMap) {
+    void diffTreeChanges(Tree fromTree, Tree toTree,
+                         Map<String, String> modifiedMap,
+                         Map<String, String> addedMap,
+                         Map<String, String> deletedMap,
+                         Map<String, FileInfo> renamedMap) {
         List<FileInfo> modifiedFiles = new LinkedList<>(),
                 addedFiles = new LinkedList<>(),
                 deletedFiles = new LinkedList<>();
-        diffTreeChanges(fromTree, toTree, modifiedFiles, addedFiles, deletedFiles);
+        List<RenameDetector.Rename> renamedFiles = new LinkedList<>();
+        diffTreeChanges(fromTree, toTree, modifiedFiles, addedFiles, deletedFiles, renamedFiles);
         modifiedMap.putAll(FileInfo.toPathMap(modifiedFiles));
         addedMap.putAll(FileInfo.toPathMap(addedFiles));
         deletedMap.putAll(FileInfo.toPathMap(deletedFiles));
+        for (RenameDetector.Rename rename : renamedFiles) {
+            renamedMap.put(rename.from.path, rename.to);
+        }
+    }
+
+    /**
+     * Diff two trees to get modified, added, deleted and renamed files.
+     * A deleted file and an added file with similar contents are paired as a rename,
+     * and removed from deletedFiles and addedFiles.
+     */
+    void diffTreeChanges(Tree fromTree, Tree toTree,
+                         List<FileInfo> modifiedFiles,
+                         List<FileInfo> addedFiles,
+                         List<FileInfo> deletedFiles,
+                         List<RenameDetector.Rename> renamedFiles) {
+        diffTreeChanges(fromTree, toTree, modifiedFiles, addedFiles, deletedFiles);
+        renamedFiles.addAll(
+                RenameDetector.detect(deletedFiles, addedFiles, this::blobContent));
     }
 
     /**
      * Diff two trees to get modified, added and deleted files.
      */
-    static void diffTreeChanges(Tree fromTree, Tree toTree,
-                                List<FileInfo> modifiedFiles,
-                                List<FileInfo> addedFiles,
-                                List<FileInfo> deletedFiles) {
+    void diffTreeChanges(Tree fromTree, Tree toTree,
+                         List<FileInfo> modifiedFiles,
+                         List<FileInfo> addedFiles,
+                         List<FileInfo> deletedFiles) {
         List<String> parts = new LinkedList<>();
         for (Tree.Entry entry : fromTree.getEntryMap().values()) {
             diffTreeChangesHelper(entry,
@@ -791,11 +1644,11 @@ public class Repository {
         }
     }
 
-    private static void diffTreeChangesHelper(Tree.Entry fromEntry, Tree.Entry toEntry,
-                                              List<String> parts,
-                                              List<FileInfo> modifiedFiles,
-                                              List<FileInfo> addedFiles,
-                                              List<FileInfo> deletedFiles) {
+    private void diffTreeChangesHelper(Tree.Entry fromEntry, Tree.Entry toEntry,
+                                       List<String> parts,
+                                       List<FileInfo> modifiedFiles,
+                                       List<FileInfo> addedFiles,
+                                       List<FileInfo> deletedFiles) {
         if (Objects.isNull(fromEntry)) {
             parts.add(toEntry.name);
             String path = relativePath(partsToPath(parts));
@@ -887,36 +1740,90 @@ public class Repository {
 
     /* OBJECT UTILS */
 
+    /**
+     * Return the object database of this repository. A repository initialized with
+     * a pack directory uses a pack file, otherwise loose files.
+     */
+    ObjectDatabase objectDatabase() {
+        if (Objects.isNull(objectDatabase)) {
+            objectDatabase = openObjectDatabase(commonDir);
+        }
+        return objectDatabase;
+    }
+
+    /**
+     * Open the object database of the repository with the .gitlet directory.
+     */
+    static ObjectDatabase openObjectDatabase(File gitletDir) {
+        File objectDir = join(gitletDir, "objects");
+        File packDir = join(objectDir, "pack");
+        return packDir.isDirectory()
+                ? new PackObjectDatabase(packDir)
+                : new LooseObjectDatabase(objectDir);
+    }
+
+    /**
+     * Replace the object database of this repository, e.g. with an
+     * InMemoryObjectDatabase to run commands without object I/O. The previous
+     * object database is closed.
+     */
+    void setObjectDatabase(ObjectDatabase database) {
+        if (Objects.nonNull(objectDatabase) && objectDatabase != database) {
+            objectDatabase.close();
+        }
+        objectDatabase = database;
+    }
+
+    /**
+     * Close the object database of this repository, it is opened again if the
+     * repository is used afterwards.
+     */
+    @Override
+    public void close() {
+        setObjectDatabase(null);
+    }
+
     /**
      * Lookup an object from object database by id, throw error if not exists.
      */
-    static <T extends Obj> T lookupObj(String id, Class<T> expectedObjClass) {
-        File file = objFilepath(id);
-        if (!file.exists()) {
-            throw error("Object does not exists: %s", file.getPath());
+    <T extends Obj> T lookupObj(String id, Class<T> expectedObjClass) {
+        return lookupObj(objectDatabase(), id, expectedObjClass);
+    }
+
+    /**
+     * Lookup an object from the given object database by id, throw error if not exists.
+     */
+    static <T extends Obj> T lookupObj(ObjectDatabase database, String id,
+                                       Class<T> expectedObjClass) {
+        long start = Trace.start();
+        byte[] data = database.read(id);
+        if (Objects.isNull(data)) {
+            throw error("Object does not exists: %s", id);
         }
-        return readObject(file, expectedObjClass);
+        T obj = Codec.decode(data, expectedObjClass);
+        Trace.end(Trace.Phase.LOOKUP_OBJ, start, data.length);
+        return obj;
     }
 
     /**
      * Put(insert or update) an object into object database.
      */
-    static void putObj(Obj obj) {
-        File file = objFilepath(obj);
-        if (file.exists()) {
+    void putObj(Obj obj) {
+        long start = Trace.start();
+        String id = objId(obj);
+        if (objectDatabase().contains(id)) {
+            Trace.end(Trace.Phase.PUT_OBJ, start, 0);
             return;
         }
-        File parent = file.getParentFile();
-        if (!parent.exists()) {
-            createDir(file.getParentFile());
-        }
-        writeObject(file, obj);
+        byte[] data = Codec.encode(obj);
+        objectDatabase().write(id, data);
+        Trace.end(Trace.Phase.PUT_OBJ, start, data.length);
     }
 
     /**
      * Lookup history commits from the given commitId to the initial commitId.
      */
-    static List<Commit> lookupCommits(String commitId) {
+    List<Commit> lookupCommits(String commitId) {
         List<Commit> commits = new LinkedList<>();
         Commit curCommit = lookupObj(commitId, Commit.class);
         while (curCommit.getParentIds().size() > 0) {
@@ -930,7 +1837,7 @@ public class Repository {
     /**
      * Lookup all commits ever made, The order of the commits does not matter.
      */
-    static List<Commit> lookupGlobalCommits() {
+    List<Commit> lookupGlobalCommits() {
         return lookupGlobalCommits(commit -> true);
     }
 
@@ -938,7 +1845,7 @@ public class Repository {
      * Lookup all commits ever made that satisfy the specified filter,
      * The order of the commits does not matter.
      */
-    static List<Commit> lookupGlobalCommits(CommitFilter filter) {
+    List<Commit> lookupGlobalCommits(CommitFilter filter) {
         List<String> commitIds = readGlobalLog().getCommitIds();
         List<Commit> commits = commitIds.stream()
                 .map(id -> lookupObj(id, Commit.class))
@@ -949,39 +1856,54 @@ public class Repository {
     }
 
     /**
-     * Lookup the commits from all branches.
+     * Pass the commits from all branches that satisfy the specified filter to
+     * action, from the newest commit to the oldest one.
+     * <p>
+     * All branch tips are walked together as a k-way merge: a max-heap keyed on
+     * commit date holds the frontier, each step pops the newest commit, hands it
+     * to action and pushes its unseen parents. Every commit is visited once, and
+     * only the frontier and the ids of the seen commits are kept, not the commits
+     * already handed to action.
      */
-    static List<Commit> lookupCommitsFromAllBranches() {
-        return lookupCommitsFromAllBranches(commit -> true);
+    void forEachCommitFromAllBranches(CommitFilter filter, Consumer<Commit> action) {
+        PriorityQueue<CommitEntry> frontier = new PriorityQueue<>();
+        Set<String> seenCommitIds = new HashSet<>();
+        for (String name : listBranchNames()) {
+            String id = readBranch(name).getCommitId();
+            if (seenCommitIds.add(id)) {
+                frontier.add(new CommitEntry(id, lookupObj(id, Commit.class)));
+            }
+        }
+        while (!frontier.isEmpty()) {
+            CommitEntry entry = frontier.poll();
+            if (filter.accept(entry.commit)) {
+                action.accept(entry.commit);
+            }
+            for (String parentId : entry.commit.getParentIds()) {
+                if (seenCommitIds.add(parentId)) {
+                    frontier.add(new CommitEntry(parentId, lookupObj(parentId, Commit.class)));
+                }
+            }
+        }
     }
 
     /**
-     * Lookup the commits from all branches that satisfy the specified filter.
+     * A commit in the frontier of a time-ordered walk, newer commits come first.
      */
-    static List<Commit> lookupCommitsFromAllBranches(CommitFilter filter) {
-        List<Commit> commits = new LinkedList<>();
-        List<String> commitIds = listBranchNames().stream()
-                .map((name) -> readBranch(name).getCommitId())
-                .collect(Collectors.toList());
-        lookupCommitsFromAllBranchesHelper(commitIds, filter, new HashSet<>(), commits);
-        return commits;
-    }
+    static class CommitEntry implements Comparable<CommitEntry> {
+        final String id;
+        final Commit commit;
 
-    private static void lookupCommitsFromAllBranchesHelper(List<String> commitIds,
-                                                           CommitFilter filter,
-                                                           Set<String> seenCommitIds,
-                                                           List<Commit> result) {
-        for (String id : commitIds) {
-            if (seenCommitIds.contains(id)) {
-                return;
-            }
-            seenCommitIds.add(id);
-            Commit commit = lookupObj(id, Commit.class);
-            if (filter.accept(commit)) {
-                result.add(commit);
-            }
-            lookupCommitsFromAllBranchesHelper(commit.getParentIds(),
-                    filter, seenCommitIds, result);
+        CommitEntry(String id, Commit commit) {
+            this.id = id;
+            this.commit = commit;
+        }
+
+        @Override
+        public int compareTo(CommitEntry o) {
+            int cmp = o.commit.getDate().compareTo(this.commit.getDate());
+            // Break ties by id to keep the output order stable.
+            return cmp != 0 ? cmp : this.id.compareTo(o.id);
         }
     }
 
@@ -991,48 +1913,95 @@ public class Repository {
     }
 
     /**
-     * Lookup the split point commit of two given commits, the split point is
-     * the latest common ancestor of two commits.
+     * Check if the commit with ancestorId is in the history of the commit with commitId.
      */
-    static Commit lookupSplitPointCommit(String commitId1, String commitId2) {
-        TreeMap<Integer, String> splitPointMap = new TreeMap<>();
-        lookupSplitPointCommitHelper(commitId1, commitId2,
-                commitId1, commitId2, 0, splitPointMap);
-        String splitPointId = splitPointMap.firstEntry().getValue();
-        return lookupObj(splitPointId, Commit.class);
+    boolean isAncestor(String ancestorId, String commitId) {
+        if (!objectDatabase().contains(ancestorId)) {
+            return false;
+        }
+        Deque<String> queue = new ArrayDeque<>();
+        Set<String> seenCommitIds = new HashSet<>();
+        queue.add(commitId);
+        while (!queue.isEmpty()) {
+            String id = queue.poll();
+            if (Objects.equals(id, ancestorId)) {
+                return true;
+            }
+            if (seenCommitIds.add(id)) {
+                queue.addAll(lookupObj(id, Commit.class).getParentIds());
+            }
+        }
+        return false;
     }
 
-    private static void lookupSplitPointCommitHelper(String id1, String id2,
-                                                     String commitId1, String commitId2,
-                                                     int depth,
-                                                     TreeMap<Integer, String> splitPointMap) {
-        if (Objects.equals(id1, id2)) {
-            splitPointMap.put(depth, id1);
-            return;
+    /**
+     * Lookup the split point commit of two given commits, the split point is
+     * the latest common ancestor of two commits: a common ancestor that is not an
+     * ancestor of another common ancestor. If there are several of them (after
+     * criss-cross merges), the one fewest parent links away from the first commit
+     * is chosen.
+     */
+    Commit lookupSplitPointCommit(String commitId1, String commitId2) {
+        Map<String, Integer> distances1 = lookupAncestorDistances(commitId1);
+        Set<String> commonIds = new HashSet<>();
+        for (String id : lookupAncestorDistances(commitId2).keySet()) {
+            if (distances1.containsKey(id)) {
+                commonIds.add(id);
+            }
         }
-        Commit commit1 = lookupObj(id1, Commit.class);
-        Commit commit2 = lookupObj(id2, Commit.class);
-        List<String> parentIdList1 = commit1.getParentIds();
-        if (parentIdList1.isEmpty()) {
-            parentIdList1.add(commitId2);
+
+        // The ancestors of a common ancestor are common too, so the common ancestors
+        // that are not the latest are exactly the parents of common ancestors.
+        Set<String> olderIds = new HashSet<>();
+        for (String id : commonIds) {
+            olderIds.addAll(lookupObj(id, Commit.class).getParentIds());
+        }
+        String splitPointId = null;
+        for (String id : commonIds) {
+            if (olderIds.contains(id)) {
+                continue;
+            }
+            if (splitPointId == null
+                    || distances1.get(id) < distances1.get(splitPointId)
+                    || distances1.get(id).equals(distances1.get(splitPointId))
+                    && id.compareTo(splitPointId) < 0) {
+                splitPointId = id;
+            }
         }
-        List<String> parentIdList2 = commit2.getParentIds();
-        if (parentIdList2.isEmpty()) {
-            parentIdList2.add(commitId1);
+        if (splitPointId == null) {
+            throw error("No split point between the two commits.");
         }
-        for (String parentId1 : parentIdList1) {
-            for (String parentId2 : parentIdList2) {
-                lookupSplitPointCommitHelper(parentId1, parentId2, commitId1, commitId2,
-                        depth + 1, splitPointMap);
+        return lookupObj(splitPointId, Commit.class);
+    }
+
+    /**
+     * Return the number of parent links from the given commit to each of its
+     * ancestors (the commit itself included), found by a BFS that visits each
+     * commit once.
+     */
+    private Map<String, Integer> lookupAncestorDistances(String commitId) {
+        Map<String, Integer> distances = new HashMap<>();
+        Deque<String> queue = new ArrayDeque<>();
+        distances.put(commitId, 0);
+        queue.add(commitId);
+        while (!queue.isEmpty()) {
+            String id = queue.poll();
+            int distance = distances.get(id);
+            for (String parentId : lookupObj(id, Commit.class).getParentIds()) {
+                if (!distances.containsKey(parentId)) {
+                    distances.put(parentId, distance + 1);
+                    queue.add(parentId);
+                }
             }
         }
+        return distances;
     }
 
     /**
      * Lookup the blob with filePath from the given commitId,
      * throw error if the blob not exists.
      */
-    static Blob lookupBlob(String commitId, String filePath) {
+    Blob lookupBlob(String commitId, String filePath) {
         Commit commit = lookupObj(commitId, Commit.class);
         Tree tree = lookupObj(commit.getTreeId(), Tree.class);
         Blob blob = lookupBlobHelper(tree, pathToParts(relativePath(filePath)));
@@ -1042,7 +2011,7 @@ public class Repository {
         return blob;
     }
 
-    private static Blob lookupBlobHelper(Tree tree, List<String> parts) {
+    private Blob lookupBlobHelper(Tree tree, List<String> parts) {
         if (parts.size() < 1) {
             return null;
         }
@@ -1062,7 +2031,7 @@ public class Repository {
     /**
      * Restore the working directory to a tree.
      */
-    static void restoreWd(Tree dstTree) {
+    void restoreWd(Tree dstTree) {
         Tree srcTree = lookupObj(getHeadTreeId(), Tree.class);
         restoreWdHelper(srcTree, dstTree, new LinkedList<>());
     }
@@ -1070,7 +2039,7 @@ public class Repository {
     /**
      * Restore the working directory from a srcTree to a dstTree.
      */
-    private static void restoreWdHelper(Tree srcTree, Tree dstTree, List<String> parts) {
+    private void restoreWdHelper(Tree srcTree, Tree dstTree, List<String> parts) {
         for (Tree.Entry srcEntry : srcTree.getEntryMap().values()) {
             parts.add(srcEntry.name);
             File file = pathToFile(partsToPath(parts));
@@ -1083,13 +2052,18 @@ public class Repository {
         for (Tree.Entry dstEntry : dstTree.getEntryMap().values()) {
             parts.add(dstEntry.name);
             File file = pathToFile(partsToPath(parts));
+            if (dstEntry.isTree() && !inSparseCone(parts, false)) {
+                // Directories out of the sparse-checkout cone are not checked out.
+                parts.remove(parts.size() - 1);
+                continue;
+            }
             if (!srcTree.getEntryMap().containsKey(dstEntry.name)) {
                 // Restore files or directories that are not in srcTree.
                 if (dstEntry.isBlob()) {
                     Blob blob = lookupObj(dstEntry.id, Blob.class);
                     restoreFile(file, blob);
                 } else {
-                    restoreDir(parts, dstTree);
+                    restoreDir(parts, lookupObj(dstEntry.id, Tree.class));
                 }
             } else {
                 Tree.Entry srcEntry = srcTree.getEntryMap().get(dstEntry.name);
@@ -1108,6 +2082,7 @@ public class Repository {
                     if (srcEntry.isBlob()) {
                         // `file` is a file in srcTree, and a directory in dstTree.
                         deleteFile(file);
+                        restoreDir(parts, lookupObj(dstEntry.id, Tree.class));
                     } else {
                         // `file` is a file in dstTree, and a directory in srcTree.
                         deleteFileOrDir(file);
@@ -1120,7 +2095,7 @@ public class Repository {
         }
     }
 
-    static void restoreDir(List<String> parts, Tree tree) {
+    void restoreDir(List<String> parts, Tree tree) {
         File dir = pathToFile(partsToPath(parts));
         if (!dir.exists()) {
             createDir(dir);
@@ -1131,7 +2106,7 @@ public class Repository {
             if (entry.isBlob()) {
                 Blob blob = lookupObj(entry.id, Blob.class);
                 restoreFile(file, blob);
-            } else {
+            } else if (inSparseCone(parts, false)) {
                 Tree childTree = lookupObj(entry.id, Tree.class);
                 restoreDir(parts, childTree);
             }
@@ -1139,31 +2114,77 @@ public class Repository {
         }
     }
 
-    static void restoreFile(String path, String blobId) {
+    /**
+     * Return the content of the blob with the given id.
+     */
+    String blobContent(String blobId) {
+        return blobContent(lookupObj(blobId, Blob.class));
+    }
+
+    /**
+     * Return the content of the blob, the chunks of a chunked blob are reassembled.
+     */
+    String blobContent(Blob blob) {
+        if (!blob.isChunked()) {
+            return blob.getContent();
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (String chunkId : blob.getChunkIds()) {
+            out.writeBytes(lookupObj(chunkId, Chunk.class).getContent());
+        }
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    void restoreFile(String path, String blobId) {
         Blob blob = lookupObj(blobId, Blob.class);
         restoreFile(pathToFile(path), blob);
     }
 
-    static void restoreFile(File file, Blob blob) {
-        writeFile(file, blob.getContent());
+    void restoreFile(File file, Blob blob) {
+        if (!blob.isChunked()) {
+            writeFile(file, blob.getContent());
+            return;
+        }
+        // Stream the chunks into the file, only one chunk is in memory at a time.
+        createParentDirs(file);
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file.toPath()))) {
+            for (String chunkId : blob.getChunkIds()) {
+                out.write(lookupObj(chunkId, Chunk.class).getContent());
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e.getMessage());
+        }
     }
 
     /**
-     * Replace the contents of the conflicted file with curBlobId and givenBlobId,
-     * curBlobId or givenBlobId can be null.
+     * Replace the contents of the file with a three-way merge of curBlobId and
+     * givenBlobId against baseBlobId, return true if encountered a conflict.
+     * Non-overlapping changes are merged automatically and only the conflicting
+     * hunks are wrapped in conflict markers. If curBlobId or givenBlobId is null
+     * (the file is deleted on one side), the whole file is a conflict.
+     * baseBlobId can be null if the file is absent in the split point.
      */
-    static void writeConflictFile(String path, String curBlobId, String givenBlobId) {
-        String curContent = Objects.nonNull(curBlobId)
-                ? lookupObj(curBlobId, Blob.class).getContent() : "";
-        String givenContent = Objects.nonNull(givenBlobId)
-                ? lookupObj(givenBlobId, Blob.class).getContent() : "";
-        String content = String.format("<<<<<<< HEAD\n"
-                        + "%s"
-                        + "=======\n"
-                        + "%s"
-                        + ">>>>>>>\n",
-                curContent, givenContent);
-        writeFile(pathToFile(path), content);
+    boolean writeMergedFile(String path, String baseBlobId,
+                            String curBlobId, String givenBlobId) {
+        File file = pathToFile(path);
+        createParentDirs(file);
+        try (Writer out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            if (Objects.isNull(curBlobId) || Objects.isNull(givenBlobId)) {
+                Merge3.writeConflict(
+                        Objects.nonNull(curBlobId) ? blobContent(curBlobId) : "",
+                        Objects.nonNull(givenBlobId) ? blobContent(givenBlobId) : "",
+                        out);
+                return true;
+            }
+            List<String> baseLines = Objects.nonNull(baseBlobId)
+                    ? Diff.splitLines(blobContent(baseBlobId)) : List.of();
+            return Merge3.merge(baseLines,
+                    Diff.splitLines(blobContent(curBlobId)),
+                    Diff.splitLines(blobContent(givenBlobId)),
+                    out);
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e.getMessage());
+        }
     }
 
     static String objId(Obj obj) {
@@ -1174,16 +2195,7 @@ public class Repository {
         return id.substring(0, 7);
     }
 
-    static File objFilepath(Obj obj) {
-        String id = objId(obj);
-        return objFilepath(id);
-    }
-
-    static File objFilepath(String id) {
-        return join(Repository.OBJECT_DIR, id.substring(0, 2), id.substring(2));
-    }
-
-    static Blob saveFileAsBlob(String path) {
+    Blob saveFileAsBlob(String path) {
         return saveFileAsBlob(pathToFile(path));
     }
 
@@ -1191,41 +2203,54 @@ public class Repository {
      * Create a blob of the file and save it to object database,
      * return the saved blob.
      */
-    static Blob saveFileAsBlob(File file) {
-        Blob blob = createBlob(file);
+    Blob saveFileAsBlob(File file) {
+        Blob blob = createBlob(file, true);
         putObj(blob);
         return blob;
     }
 
-    static Blob createBlob(String path) {
+    Blob createBlob(String path) {
         return createBlob(pathToFile(path));
     }
 
-    static Blob createBlob(File file) {
-        return new Blob(readContentsAsString(file));
+    /**
+     * Create a blob of the file without saving it to object database.
+     */
+    Blob createBlob(File file) {
+        return createBlob(file, false);
+    }
+
+    /**
+     * Create a blob of the file. A file of at least CHUNKED_BLOB_THRESHOLD bytes is
+     * split into content-defined chunks, and becomes a chunked blob recording the
+     * chunk ids. If saveChunks is true, the chunks are saved to object database, a
+     * chunk already saved is shared instead of stored again.
+     */
+    Blob createBlob(File file, boolean saveChunks) {
+        if (file.length() < CHUNKED_BLOB_THRESHOLD) {
+            return new Blob(readContentsAsString(file));
+        }
+        List<String> chunkIds = new ArrayList<>();
+        long[] size = {0};
+        Chunker.chunk(file, content -> {
+            Chunk chunk = new Chunk(content);
+            if (saveChunks) {
+                putObj(chunk);
+            }
+            chunkIds.add(objId(chunk));
+            size[0] += content.length;
+        });
+        return new Blob(chunkIds, size[0]);
     }
 
-    static String idFromPrefix(String prefixOfId) {
+    String idFromPrefix(String prefixOfId) {
         int length = prefixOfId.length();
         if (length == 40) {
             return prefixOfId;
         } else if (length >= 2 && length < 40) {
-            String dirName = prefixOfId.substring(0, 2);
-            String fileName = prefixOfId.substring(2);
-            List<String> dirNames = Arrays.stream(listFiles(OBJECT_DIR))
-                    .map(File::getName).collect(Collectors.toList());
-            if (dirNames.contains(dirName)) {
-                List<String> fileNames = plainFilenamesIn(join(OBJECT_DIR, dirName));
-                if (Objects.nonNull(fileNames)) {
-                    if (length == 2 && fileNames.size() == 1) {
-                        return dirName + fileNames.get(0);
-                    }
-                    List<String> matchedFileNames = fileNames.stream()
-                            .filter(f -> f.startsWith(fileName)).collect(Collectors.toList());
-                    if (matchedFileNames.size() == 1) {
-                        return dirName + matchedFileNames.get(0);
-                    }
-                }
+            List<String> matchedIds = objectDatabase().idsWithPrefix(prefixOfId);
+            if (matchedIds.size() == 1) {
+                return matchedIds.get(0);
             }
         }
         throw error("Incorrect prefix.");
@@ -1242,13 +2267,15 @@ public class Repository {
                 !ignoreFiles.contains(Utils.join(d, name).getName()));
     }
 
-    static Set<String> listAllFilePaths(File dir) {
+    Set<String> listAllFilePaths(File dir) {
+        long start = Trace.start();
         Set<String> filePaths = new HashSet<>();
         listAllFilePathsHelper(dir, filePaths);
+        Trace.end(Trace.Phase.WALK_WORKTREE, start, 0);
         return filePaths;
     }
 
-    private static void listAllFilePathsHelper(File file, Set<String> filePaths) {
+    private void listAllFilePathsHelper(File file, Set<String> filePaths) {
         if (file.isFile()) {
             filePaths.add(relativePath(file));
         } else if (file.isDirectory()) {
@@ -1261,31 +2288,32 @@ public class Repository {
     /**
      * Convert path to file.
      */
-    static File pathToFile(String filePath) {
-        return join(CWD, relativePath(filePath));
+    File pathToFile(String filePath) {
+        return join(cwd, relativePath(filePath));
     }
 
-    static String relativePath(String filePath) {
-        return relativePath(new File(filePath));
+    String relativePath(String filePath) {
+        File file = new File(filePath);
+        return relativePath(file.isAbsolute() ? file : join(cwd, filePath));
     }
 
-    static String relativePath(File file) {
-        return relativePath(file, CWD);
+    String relativePath(File file) {
+        return relativePath(file, cwd);
     }
 
     static String relativePath(File file, File base) {
         return base.toURI().relativize(file.toURI()).getPath();
     }
 
-    static List<String> pathToParts(String filePath) {
+    List<String> pathToParts(String filePath) {
         Path path = Paths.get(relativePath(filePath));
         return StreamSupport.stream(path.spliterator(), false)
                 .map(Path::toString)
                 .collect(Collectors.toList());
     }
 
-    static String partsToPath(List<String> parts) {
-        return relativePath(join(CWD, parts.toArray(String[]::new)));
+    String partsToPath(List<String> parts) {
+        return relativePath(join(cwd, parts.toArray(String[]::new)));
     }
 
     static void createDir(File dir) {
@@ -1304,14 +2332,10 @@ public class Repository {
      * Create parent directories of file as needed.
      */
     static void createParentDirs(File file) {
-        List<String> parts = pathToParts(relativePath(file));
-        if (parts.size() >= 2) {
-            String parentDir = partsToPath(parts.subList(0, parts.size() - 1));
-            try {
-                Files.createDirectories(Paths.get(parentDir));
-            } catch (IOException e) {
-                throw new RuntimeException(e);
-            }
+        try {
+            Files.createDirectories(file.getAbsoluteFile().getParentFile().toPath());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
         }
     }
 
@@ -1319,6 +2343,20 @@ public class Repository {
         file.delete();
     }
 
+    /**
+     * Delete a file, and its parent directories up to the working directory that
+     * become empty.
+     */
+    void deleteFileAndEmptyParents(File file) {
+        deleteFile(file);
+        File dir = file.getParentFile();
+        while (Objects.nonNull(dir) && !dir.equals(cwd) && dir.isDirectory()
+                && Objects.requireNonNull(dir.list()).length == 0) {
+            deleteFile(dir);
+            dir = dir.getParentFile();
+        }
+    }
+
     /**
      * Delete a file or delete a directory recursively.
      */
@@ -1334,8 +2372,8 @@ public class Repository {
         file.delete();
     }
 
-    static boolean isInitialized() {
-        return GITLET_DIR.exists();
+    boolean isInitialized() {
+        return gitletDir.exists();
     }
 
     /* DATE UTILS */
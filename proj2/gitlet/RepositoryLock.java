@@ -0,0 +1,114 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.Objects;
+
+import static gitlet.Utils.*;
+
+/**
+ * A lock on a repository, held on the .gitlet/lock file with FileChannel.lock.
+ * <p>
+ * Commands that only read the repository hold a shared lock, so any number of them
+ * can run at once; commands that write the repository hold an exclusive lock, so they
+ * wait for the readers to finish and block new ones. The lock is released by close(),
+ * or by the operating system when the process exits.
+ * <p>
+ * A command holds the lock of its own repository for its whole run, so fetch and push
+ * take the lock of the remote with acquireWithin, which gives up after a timeout: two
+ * repositories pushing to each other would otherwise wait for each other forever.
+ */
+class RepositoryLock implements AutoCloseable {
+
+    static final String LOCK_FILE_NAME = "lock";
+
+    /* How long to sleep between two tries in acquireWithin. */
+    private static final long RETRY_MILLIS = 50;
+
+    private final RandomAccessFile file;
+
+    private final FileLock lock;
+
+    private RepositoryLock(RandomAccessFile file, FileLock lock) {
+        this.file = file;
+        this.lock = lock;
+    }
+
+    /**
+     * Block until the lock on the repository with the .gitlet directory is acquired,
+     * a shared lock if shared is true, otherwise an exclusive lock.
+     */
+    static RepositoryLock acquire(File gitletDir, boolean shared) {
+        RandomAccessFile file = null;
+        try {
+            file = new RandomAccessFile(join(gitletDir, LOCK_FILE_NAME), "rw");
+            FileChannel channel = file.getChannel();
+            return new RepositoryLock(file, channel.lock(0, Long.MAX_VALUE, shared));
+        } catch (IOException excp) {
+            closeQuietly(file);
+            throw error("Cannot lock the repository: %s", excp.getMessage());
+        } catch (OverlappingFileLockException excp) {
+            closeQuietly(file);
+            throw error("Cannot lock the repository: it is already locked by this command.");
+        }
+    }
+
+    /**
+     * Acquire the lock on the repository with the .gitlet directory like acquire, but
+     * fail with an error if it is not acquired within timeoutMillis.
+     */
+    static RepositoryLock acquireWithin(File gitletDir, boolean shared, long timeoutMillis) {
+        RandomAccessFile file = null;
+        try {
+            file = new RandomAccessFile(join(gitletDir, LOCK_FILE_NAME), "rw");
+            FileChannel channel = file.getChannel();
+            long deadline = System.currentTimeMillis() + timeoutMillis;
+            while (true) {
+                FileLock lock = channel.tryLock(0, Long.MAX_VALUE, shared);
+                if (Objects.nonNull(lock)) {
+                    return new RepositoryLock(file, lock);
+                }
+                if (System.currentTimeMillis() >= deadline) {
+                    closeQuietly(file);
+                    throw error("The repository is locked by another command, try again later.");
+                }
+                Thread.sleep(RETRY_MILLIS);
+            }
+        } catch (IOException excp) {
+            closeQuietly(file);
+            throw error("Cannot lock the repository: %s", excp.getMessage());
+        } catch (OverlappingFileLockException excp) {
+            closeQuietly(file);
+            throw error("Cannot lock the repository: it is already locked by this command.");
+        } catch (InterruptedException excp) {
+            closeQuietly(file);
+            Thread.currentThread().interrupt();
+            throw error("Interrupted while waiting for the repository lock.");
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            lock.release();
+        } catch (IOException ignored) {
+            // The lock is released when the file is closed anyway.
+        }
+        closeQuietly(file);
+    }
+
+    private static void closeQuietly(RandomAccessFile file) {
+        if (Objects.isNull(file)) {
+            return;
+        }
+        try {
+            file.close();
+        } catch (IOException ignored) {
+            // Nothing to do.
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package gitlet;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+import static gitlet.Utils.*;
+
+/**
+ * The sparse-checkout cone of a working tree, stored in .gitlet/info/sparse-checkout.
+ * <p>
+ * Like the cone mode of git, each pattern is a directory. A directory is in the cone
+ * if it is a pattern, is under a pattern, or is a parent of a pattern, and only the
+ * files directly in a directory of the cone are checked out. The root directory is
+ * always in the cone. A directory out of the cone is kept in the index as a single
+ * node holding the id of its tree, so it is never read unless the cone changes.
+ */
+class SparseCheckout {
+
+    private final List<String> patterns;
+
+    private final List<List<String>> dirs;
+
+    SparseCheckout(List<String> patterns) {
+        this.patterns = new ArrayList<>();
+        this.dirs = new ArrayList<>();
+        for (String pattern : patterns) {
+            List<String> parts = new LinkedList<>(Arrays.asList(pattern.split("/")));
+            parts.removeIf(String::isEmpty);
+            if (!parts.isEmpty()) {
+                this.patterns.add(String.join("/", parts));
+                this.dirs.add(parts);
+            }
+        }
+    }
+
+    /**
+     * Read the cone from the file, return null if sparse checkout is disabled.
+     */
+    static SparseCheckout read(File file) {
+        if (!file.isFile()) {
+            return null;
+        }
+        return new SparseCheckout(Arrays.asList(readContentsAsString(file).split("\n")));
+    }
+
+    void write(File file) {
+        Repository.createParentDirs(file);
+        StringBuilder sb = new StringBuilder();
+        for (String pattern : patterns) {
+            sb.append(pattern).append("\n");
+        }
+        writeContents(file, sb.toString());
+    }
+
+    List<String> getPatterns() {
+        return patterns;
+    }
+
+    /**
+     * Check if the directory with the path parts is in the cone.
+     */
+    boolean containsDir(List<String> parts) {
+        if (parts.isEmpty()) {
+            return true;
+        }
+        for (List<String> dir : dirs) {
+            if (isPrefix(dir, parts) || isPrefix(parts, dir)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Check if the file with the path parts is checked out.
+     */
+    boolean containsFile(List<String> parts) {
+        return containsDir(parts.subList(0, parts.size() - 1));
+    }
+
+    private static boolean isPrefix(List<String> prefix, List<String> parts) {
+        return prefix.size() <= parts.size() && prefix.equals(parts.subList(0, prefix.size()));
+    }
+}
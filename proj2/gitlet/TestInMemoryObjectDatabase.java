@@ -0,0 +1,61 @@
+package gitlet;
+
+import static org.junit.Assert.*;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+/** Tests of commands run against the in-memory object database, InMemoryObjectDatabase. */
+public class TestInMemoryObjectDatabase {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /** Commits are made and read back from memory, no object is written to disk. */
+    @Test
+    public void testCommandsInMemory() {
+        File dir = folder.getRoot();
+        InMemoryObjectDatabase database = new InMemoryObjectDatabase();
+        try (Repository repository = new Repository(dir)) {
+            repository.setObjectDatabase(database);
+            repository.initCmd(false);
+            Utils.writeContents(Utils.join(dir, "a.txt"), "version 1");
+            repository.addCmd("a.txt");
+            repository.commitCmd("first");
+            String firstId = repository.getHeadCommitId();
+            Utils.writeContents(Utils.join(dir, "a.txt"), "version 2");
+            repository.addCmd("a.txt");
+            repository.commitCmd("second");
+
+            String log = captureOutput(repository::logCmd);
+            assertTrue(log.contains("second"));
+            assertTrue(log.contains("first"));
+            assertTrue(log.contains("initial commit"));
+
+            repository.resetCmd(firstId);
+            assertEquals("version 1", Utils.readContentsAsString(Utils.join(dir, "a.txt")));
+        }
+        // The initial commit and its tree, then a commit, a tree and a blob for each commit
+        assertEquals(8, database.size());
+        String[] objectFiles = Utils.join(dir, ".gitlet", "objects").list();
+        assertNotNull(objectFiles);
+        assertEquals(0, objectFiles.length);
+    }
+
+    private static String captureOutput(Runnable command) {
+        PrintStream stdout = System.out;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(out, true, StandardCharsets.UTF_8));
+        try {
+            command.run();
+        } finally {
+            System.setOut(stdout);
+        }
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
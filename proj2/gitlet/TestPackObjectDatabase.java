@@ -0,0 +1,122 @@
+package gitlet;
+
+import static org.junit.Assert.*;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.nio.charset.StandardCharsets;
+
+/** Tests of the pack file object database, PackObjectDatabase. */
+public class TestPackObjectDatabase {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testWriteAndReopen() throws IOException {
+        File dir = folder.getRoot();
+        String a = Utils.sha1("a");
+        String b = Utils.sha1("b");
+        PackObjectDatabase database = new PackObjectDatabase(dir);
+        database.write(a, bytes("object a"));
+        database.write(b, bytes("object b"));
+
+        database = new PackObjectDatabase(dir);
+        assertArrayEquals(bytes("object a"), database.read(a));
+        assertArrayEquals(bytes("object b"), database.read(b));
+        assertNull(database.read(Utils.sha1("c")));
+        assertEquals(1, database.idsWithPrefix(a.substring(0, 6)).size());
+    }
+
+    /** Objects written after a truncated record from an interrupted write are found again. */
+    @Test
+    public void testWriteAfterTruncatedRecord() throws IOException {
+        File dir = folder.getRoot();
+        String a = Utils.sha1("a");
+        String b = Utils.sha1("b");
+        String c = Utils.sha1("c");
+        PackObjectDatabase database = new PackObjectDatabase(dir);
+        database.write(a, bytes("object a"));
+        database.write(b, bytes("object b"));
+
+        // Cut the record of b in the middle of its data
+        File packFile = Utils.join(dir, PackObjectDatabase.PACK_FILENAME);
+        try (RandomAccessFile file = new RandomAccessFile(packFile, "rw")) {
+            file.setLength(file.length() - 3);
+        }
+
+        database = new PackObjectDatabase(dir);
+        assertTrue(database.contains(a));
+        assertFalse(database.contains(b));
+        database.write(c, bytes("object c"));
+        database.write(b, bytes("object b again"));
+
+        database = new PackObjectDatabase(dir);
+        assertArrayEquals(bytes("object a"), database.read(a));
+        assertArrayEquals(bytes("object b again"), database.read(b));
+        assertArrayEquals(bytes("object c"), database.read(c));
+    }
+
+    /** A closed database releases the pack file, and opens it again on the next access. */
+    @Test
+    public void testCloseAndReuse() throws IOException {
+        File dir = folder.getRoot();
+        String a = Utils.sha1("a");
+        String b = Utils.sha1("b");
+        PackObjectDatabase database = new PackObjectDatabase(dir);
+        database.write(a, bytes("object a"));
+        database.close();
+        database.close();
+        database.write(b, bytes("object b"));
+        assertArrayEquals(bytes("object a"), database.read(a));
+        database.close();
+
+        File packFile = Utils.join(dir, PackObjectDatabase.PACK_FILENAME);
+        assertTrue(packFile.delete());
+        assertNull(database.read(a));
+    }
+
+    /** A pack stream ends cleanly only at a record boundary. */
+    @Test
+    public void testUnpackTruncated() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Pack.writeRecord(out, Utils.sha1("a"), bytes("object a"));
+        Pack.writeRecord(out, Utils.sha1("b"), bytes("object b"));
+        byte[] pack = out.toByteArray();
+        int recordLength = Pack.HEADER_LENGTH + "object a".length();
+
+        assertEquals(0, unpack(new byte[0]));
+        assertEquals(2, unpack(pack));
+        assertEquals(1, unpack(Arrays.copyOf(pack, recordLength)));
+        for (int length : new int[]{recordLength + 1, recordLength + Pack.HEADER_LENGTH,
+                                    pack.length - 1}) {
+            try {
+                unpack(Arrays.copyOf(pack, length));
+                fail("unpacked a pack truncated to " + length + " bytes");
+            } catch (EOFException e) {
+                assertTrue(e.getMessage().startsWith("Corrupt pack"));
+            }
+        }
+    }
+
+    private int unpack(byte[] pack) throws IOException {
+        PackObjectDatabase database = new PackObjectDatabase(folder.newFolder());
+        try {
+            return Pack.unpack(new ByteArrayInputStream(pack), database);
+        } finally {
+            database.close();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package gitlet;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Counts the calls, bytes and time spent in each phase of a command, and prints a
+ * breakdown to stderr when the command exits.
+ * <p>
+ * Tracing is enabled by the `--trace` option of gitlet (which sets the gitlet.trace
+ * property before this class is loaded) or the GITLET_TRACE environment variable.
+ * ENABLED is a static final constant, so when tracing is disabled the JIT removes
+ * the calls of start and end, and a traced method costs the same as before.
+ * <p>
+ * Phases nest, e.g. lookup-obj includes the deserialize and read-file of the object,
+ * so the time of a phase is inclusive and the times do not add up to the total.
+ * The counters are not synchronized, gitlet runs a command on a single thread.
+ */
+class Trace {
+
+    static final String TRACE_PROPERTY = "gitlet.trace";
+
+    static final String TRACE_ENV = "GITLET_TRACE";
+
+    static final boolean ENABLED = Boolean.getBoolean(TRACE_PROPERTY)
+            || System.getenv(TRACE_ENV) != null;
+
+    enum Phase {
+        LOOKUP_OBJ("lookup-obj"),
+        PUT_OBJ("put-obj"),
+        DESERIALIZE("deserialize"),
+        SERIALIZE("serialize"),
+        SHA1("sha1"),
+        READ_FILE("read-file"),
+        WRITE_FILE("write-file"),
+        WALK_WORKTREE("walk-worktree");
+
+        private final String name;
+
+        Phase(String name) {
+            this.name = name;
+        }
+    }
+
+    private static final long[] CALLS = new long[Phase.values().length];
+
+    private static final long[] BYTES = new long[Phase.values().length];
+
+    private static final long[] NANOS = new long[Phase.values().length];
+
+    static {
+        if (ENABLED) {
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> print(System.err)));
+        }
+    }
+
+    /**
+     * Return the start time of a phase, pass it to end when the phase ends.
+     */
+    static long start() {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    /**
+     * End a phase started at start, which handled the given number of bytes.
+     */
+    static void end(Phase phase, long start, long bytes) {
+        if (ENABLED) {
+            int i = phase.ordinal();
+            CALLS[i] += 1;
+            BYTES[i] += bytes;
+            NANOS[i] += System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * Print the counters of every phase that was entered, and the total time since
+     * the JVM started.
+     */
+    static void print(PrintStream out) {
+        out.printf("%-14s %10s %14s %12s%n", "phase", "calls", "bytes", "time (ms)");
+        for (Phase phase : Phase.values()) {
+            int i = phase.ordinal();
+            if (CALLS[i] > 0) {
+                out.printf("%-14s %10d %14d %12.3f%n",
+                        phase.name, CALLS[i], BYTES[i], NANOS[i] / 1e6);
+            }
+        }
+        out.printf("%-14s %10s %14s %12.3f%n",
+                "total", "", "", (double) ManagementFactory.getRuntimeMXBean().getUptime());
+    }
+}
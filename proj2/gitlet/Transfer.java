@@ -0,0 +1,136 @@
+package gitlet;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Transfers the history of a commit between two object databases.
+ * <p>
+ * The sender walks the commit graph from the wanted commit, and stops at every commit
+ * the receiver already has: a commit is only stored together with all of its history,
+ * so it is a common commit and nothing behind it needs to be sent. The missing commits
+ * and the trees, blobs and chunks they reference that the receiver does not have are
+ * written as a single pack, which is streamed through a spool file and unpacked by the
+ * receiver. Objects are packed in dependency order (parents before children, entries
+ * before trees, trees before commits), so an interrupted transfer never leaves a
+ * commit without its history.
+ */
+class Transfer {
+
+    private final ObjectDatabase from;
+
+    private final ObjectDatabase to;
+
+    private final Set<String> sent = new HashSet<>();
+
+    private final List<String> sentCommitIds = new LinkedList<>();
+
+    private Transfer(ObjectDatabase from, ObjectDatabase to) {
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * Copy the commit with wantedId and its history from one database to the other,
+     * using spoolFile to hold the pack. Return the ids of the commits copied, oldest first.
+     */
+    static List<String> transfer(ObjectDatabase from, ObjectDatabase to, String wantedId,
+                                 File spoolFile) {
+        Transfer transfer = new Transfer(from, to);
+        try {
+            try (OutputStream out = new BufferedOutputStream(
+                    Files.newOutputStream(spoolFile.toPath()))) {
+                transfer.packCommits(wantedId, out);
+            }
+            try (InputStream in = new BufferedInputStream(
+                    Files.newInputStream(spoolFile.toPath()))) {
+                Pack.unpack(in, to);
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e.getMessage());
+        } finally {
+            spoolFile.delete();
+        }
+        return transfer.sentCommitIds;
+    }
+
+    /**
+     * Pack the commits missing in the receiver in post-order, so parents come first.
+     */
+    private void packCommits(String wantedId, OutputStream out) throws IOException {
+        Deque<String> stack = new ArrayDeque<>();
+        Set<String> visited = new HashSet<>();
+        stack.push(wantedId);
+        while (!stack.isEmpty()) {
+            String id = stack.peek();
+            if (to.contains(id) || sent.contains(id)) {
+                stack.pop();
+                continue;
+            }
+            Commit commit = Repository.lookupObj(from, id, Commit.class);
+            if (visited.add(id)) {
+                // Visit the parents first.
+                for (String parentId : commit.getParentIds()) {
+                    if (!visited.contains(parentId)) {
+                        stack.push(parentId);
+                    }
+                }
+                continue;
+            }
+            stack.pop();
+            packTree(commit.getTreeId(), out);
+            packObj(id, out);
+            sentCommitIds.add(id);
+        }
+    }
+
+    /**
+     * Pack the tree and the objects it references that are missing in the receiver.
+     * A tree the receiver has is complete, so it is not walked.
+     */
+    private void packTree(String treeId, OutputStream out) throws IOException {
+        if (to.contains(treeId) || sent.contains(treeId)) {
+            return;
+        }
+        Tree tree = Repository.lookupObj(from, treeId, Tree.class);
+        for (Tree.Entry entry : tree.getEntryMap().values()) {
+            if (entry.isTree()) {
+                packTree(entry.id, out);
+            } else {
+                packBlob(entry.id, out);
+            }
+        }
+        packObj(treeId, out);
+    }
+
+    private void packBlob(String blobId, OutputStream out) throws IOException {
+        if (to.contains(blobId) || sent.contains(blobId)) {
+            return;
+        }
+        Blob blob = Repository.lookupObj(from, blobId, Blob.class);
+        if (blob.isChunked()) {
+            for (String chunkId : blob.getChunkIds()) {
+                if (!to.contains(chunkId) && !sent.contains(chunkId)) {
+                    packObj(chunkId, out);
+                }
+            }
+        }
+        packObj(blobId, out);
+    }
+
+    private void packObj(String id, OutputStream out) throws IOException {
+        Pack.writeRecord(out, id, from.read(id));
+        sent.add(id);
+    }
+}